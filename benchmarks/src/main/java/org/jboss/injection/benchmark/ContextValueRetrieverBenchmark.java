@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark;
+
+import org.jboss.injection.benchmark.support.LocalNaming;
+import org.jboss.injection.inject.naming.CachingContextValueRetriever;
+import org.jboss.injection.inject.naming.ContextValueRetriever;
+import org.jboss.util.naming.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.naming.Context;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ContextValueRetriever#getValue()} against an in-memory naming context.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextValueRetrieverBenchmark
+{
+   private static final String JNDI_NAME = "benchmark/env/value";
+
+   private final LocalNaming naming = new LocalNaming();
+
+   private Context context;
+   private ContextValueRetriever<String> valueRetriever;
+   private CachingContextValueRetriever<String> cachingValueRetriever;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      context = naming.start();
+      Util.bind(context, JNDI_NAME, "value");
+      valueRetriever = new ContextValueRetriever<String>(context, JNDI_NAME);
+      cachingValueRetriever = new CachingContextValueRetriever<String>(context, JNDI_NAME);
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      cachingValueRetriever.close();
+      Util.unbind(context, JNDI_NAME);
+      context.close();
+      naming.stop();
+   }
+
+   @Benchmark
+   public String lookup()
+   {
+      return valueRetriever.getValue();
+   }
+
+   @Benchmark
+   public String cachedLookup()
+   {
+      return cachingValueRetriever.getValue();
+   }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark;
+
+import org.jboss.injection.benchmark.support.Resolvers;
+import org.jboss.injection.naming.test.deployer.support.SwitchBoardGenerator;
+import org.jboss.injection.resolve.naming.EnvironmentProcessor;
+import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EnvironmentProcessor#process(Object, Environment...)} across environment sizes.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentProcessorBenchmark
+{
+   @Param({"10", "100", "1000", "10000", "100000"})
+   private int references;
+
+   private EnvironmentProcessor<Object> environmentProcessor;
+   private Environment environment;
+
+   @Setup
+   public void setUp()
+   {
+      environmentProcessor = Resolvers.register(new EnvironmentProcessor<Object>());
+      final SwitchBoardGenerator generator = new SwitchBoardGenerator();
+      generator.setEnvironmentEntriesPerComponent(references);
+      environment = generator.generate().getComponents().get(0);
+   }
+
+   @Benchmark
+   public List<ResolverResult<?>> process() throws Exception
+   {
+      return environmentProcessor.process(null, environment);
+   }
+}
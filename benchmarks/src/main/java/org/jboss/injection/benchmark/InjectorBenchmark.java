@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark;
+
+import org.jboss.injection.benchmark.support.BenchmarkTarget;
+import org.jboss.injection.benchmark.support.LocalNaming;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.ContextInjectionPoint;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.FieldInjectionPoint;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.MethodInjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.naming.Context;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Injector#inject(Object)} for each kind of injection point.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InjectorBenchmark
+{
+   private final LocalNaming naming = new LocalNaming();
+   private final BenchmarkTarget target = new BenchmarkTarget();
+   private final ValueRetriever<String> valueRetriever = new GenericValueRetriever<String>("value");
+
+   private Context context;
+   private Injector<BenchmarkTarget> fieldInjector;
+   private Injector<BenchmarkTarget> fieldHandleInjector;
+   private Injector<BenchmarkTarget> methodInjector;
+   private Injector<BenchmarkTarget> methodHandleInjector;
+   private Injector<Context> contextInjector;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      context = naming.start();
+      fieldInjector = new Injector<BenchmarkTarget>(new FieldInjectionPoint<BenchmarkTarget, String>(BenchmarkTarget.class.getDeclaredField("fieldProperty")), valueRetriever);
+      fieldHandleInjector = new Injector<BenchmarkTarget>(new FieldHandleInjectionPoint<BenchmarkTarget, String>(BenchmarkTarget.class.getDeclaredField("fieldProperty")), valueRetriever);
+      methodInjector = new Injector<BenchmarkTarget>(new MethodInjectionPoint<BenchmarkTarget, String>(BenchmarkTarget.class.getDeclaredMethod("setMethodProperty", String.class)), valueRetriever);
+      methodHandleInjector = new Injector<BenchmarkTarget>(new MethodHandleInjectionPoint<BenchmarkTarget, String>(BenchmarkTarget.class.getDeclaredMethod("setMethodProperty", String.class)), valueRetriever);
+      contextInjector = new Injector<Context>(new ContextInjectionPoint<String>("benchmark/env/value"), valueRetriever);
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      context.close();
+      naming.stop();
+   }
+
+   @Benchmark
+   public BenchmarkTarget fieldInjection()
+   {
+      fieldInjector.inject(target);
+      return target;
+   }
+
+   @Benchmark
+   public BenchmarkTarget fieldHandleInjection()
+   {
+      fieldHandleInjector.inject(target);
+      return target;
+   }
+
+   @Benchmark
+   public BenchmarkTarget methodInjection()
+   {
+      methodInjector.inject(target);
+      return target;
+   }
+
+   @Benchmark
+   public BenchmarkTarget methodHandleInjection()
+   {
+      methodHandleInjector.inject(target);
+      return target;
+   }
+
+   @Benchmark
+   public Context contextInjection()
+   {
+      contextInjector.inject(context);
+      return context;
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark;
+
+import org.jboss.deployers.structure.spi.DeploymentUnit;
+import org.jboss.injection.benchmark.support.Resolvers;
+import org.jboss.injection.naming.deployer.SwitchBoardOperatorDeployer;
+import org.jboss.injection.naming.switchboard.SwitchBoardMetaData;
+import org.jboss.injection.naming.test.deployer.support.SwitchBoardGenerator;
+import org.jboss.injection.resolve.naming.EnvironmentProcessor;
+import org.jboss.reloaded.naming.deployers.javaee.JavaEEComponentInformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures {@link SwitchBoardOperatorDeployer#deploy(DeploymentUnit, SwitchBoardMetaData)} with a mocked
+ * deployment unit and resolvers that do no work, so only the deployer's own cost is measured.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchBoardOperatorDeployerBenchmark
+{
+   @Param({"10", "1000", "100000"})
+   private int references;
+
+   @Param({"1", "20"})
+   private int components;
+
+   private SwitchBoardOperatorDeployer deployer;
+   private DeploymentUnit unit;
+   private SwitchBoardMetaData switchBoardMetaData;
+
+   @Setup
+   public void setUp()
+   {
+      // Stub only mocks, so invocations are not recorded for verification across iterations
+      unit = mock(DeploymentUnit.class, withSettings().stubOnly());
+      when(unit.getTopLevel()).thenReturn(unit);
+
+      final JavaEEComponentInformer componentInformer = mock(JavaEEComponentInformer.class, withSettings().stubOnly());
+      when(componentInformer.getApplicationName(unit)).thenReturn("Application");
+      when(componentInformer.getModulePath(unit)).thenReturn("Module");
+
+      deployer = new SwitchBoardOperatorDeployer();
+      deployer.setEnvironmentProcessor(Resolvers.register(new EnvironmentProcessor<DeploymentUnit>()));
+      deployer.setComponentInformer(componentInformer);
+
+      final SwitchBoardGenerator generator = new SwitchBoardGenerator();
+      generator.setComponents(components);
+      generator.setEnvironmentEntriesPerComponent(references / components);
+      switchBoardMetaData = generator.generate();
+   }
+
+   @Benchmark
+   public DeploymentUnit deploy() throws Exception
+   {
+      deployer.deploy(unit, switchBoardMetaData);
+      return unit;
+   }
+}
@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark.support;
+
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.injection.resolve.spi.Resolver;
+import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+
+/**
+ * Resolver for environment entries which does no work beyond creating the result, so the benchmarks
+ * measure the processing around resolution rather than the resolution itself.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <C> The resolution context type
+ */
+public class EnvironmentEntryResolver<C> implements Resolver<EnvironmentEntryMetaData, C, ResolverResult<String>>, EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>
+{
+   public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+   {
+      return environment.getEnvironmentEntries();
+   }
+
+   public Class<EnvironmentEntryMetaData> getMetaDataType()
+   {
+      return EnvironmentEntryMetaData.class;
+   }
+
+   public ResolverResult<String> resolve(final C context, final EnvironmentEntryMetaData metaData)
+   {
+      return new ResolverResult<String>("env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+   }
+}
@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark.support;
+
+import org.jnp.server.SingletonNamingServer;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.Hashtable;
+
+/**
+ * In-memory naming server used by the benchmarks, so lookups and bindings do not leave the JVM.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class LocalNaming
+{
+   private SingletonNamingServer namingServer;
+
+   /**
+    * Start the naming server.
+    *
+    * @return A context backed by the in-memory naming server
+    * @throws NamingException If the server can not be started
+    */
+   public Context start() throws NamingException
+   {
+      namingServer = new SingletonNamingServer();
+      final Hashtable<String, String> environment = new Hashtable<String, String>();
+      environment.put(Context.INITIAL_CONTEXT_FACTORY, "org.jnp.interfaces.LocalOnlyContextFactory");
+      environment.put(Context.URL_PKG_PREFIXES, "org.jboss.naming:org.jnp.interfaces");
+      return new InitialContext(environment);
+   }
+
+   /**
+    * Stop the naming server.
+    */
+   public void stop()
+   {
+      if(namingServer != null)
+         namingServer.destroy();
+      namingServer = null;
+   }
+}
@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark.support;
+
+import org.jboss.injection.resolve.naming.EnvironmentProcessor;
+
+/**
+ * Registers the benchmark resolvers with an {@link EnvironmentProcessor}.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class Resolvers
+{
+   private Resolvers()
+   {
+   }
+
+   /**
+    * Register a visitor and resolver for every reference type created by the
+    * {@link org.jboss.injection.naming.test.deployer.support.SwitchBoardGenerator}.
+    *
+    * @param environmentProcessor The processor to register with
+    * @param <C> The resolution context type
+    * @return The processor
+    */
+   public static <C> EnvironmentProcessor<C> register(final EnvironmentProcessor<C> environmentProcessor)
+   {
+      final EnvironmentEntryResolver<C> environmentEntryResolver = new EnvironmentEntryResolver<C>();
+      environmentProcessor.addMetaDataVisitor(environmentEntryResolver);
+      environmentProcessor.addResolver(environmentEntryResolver);
+
+      final EjbReferenceResolver<C> ejbReferenceResolver = new EjbReferenceResolver<C>();
+      environmentProcessor.addMetaDataVisitor(ejbReferenceResolver);
+      environmentProcessor.addResolver(ejbReferenceResolver);
+
+      final ResourceReferenceResolver<C> resourceReferenceResolver = new ResourceReferenceResolver<C>();
+      environmentProcessor.addMetaDataVisitor(resourceReferenceResolver);
+      environmentProcessor.addResolver(resourceReferenceResolver);
+      return environmentProcessor;
+   }
+}
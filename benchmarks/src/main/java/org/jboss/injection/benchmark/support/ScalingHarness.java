@@ -0,0 +1,378 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.benchmark;
+
+import org.jboss.deployers.structure.spi.DeploymentUnit;
+import org.jboss.injection.benchmark.support.LocalNaming;
+import org.jboss.injection.benchmark.support.Resolvers;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.SwitchBoardOperator;
+import org.jboss.injection.naming.deployer.SwitchBoardOperatorDeployer;
+import org.jboss.injection.naming.switchboard.SwitchBoardMetaData;
+import org.jboss.injection.naming.test.deployer.support.SwitchBoardGenerator;
+import org.jboss.injection.resolve.naming.EnvironmentProcessor;
+import org.jboss.injection.resolve.naming.ResolutionException;
+import org.jboss.injection.resolve.naming.ResolvedReferences;
+import org.jboss.injection.resolve.spi.ResolverResultConsumer;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.reloaded.naming.deployers.javaee.JavaEEComponentInformer;
+import org.jboss.util.naming.Util;
+import org.jboss.xb.binding.Unmarshaller;
+import org.jboss.xb.binding.UnmarshallerFactory;
+import org.jboss.xb.binding.sunday.unmarshalling.DefaultSchemaResolver;
+
+import javax.naming.Context;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Runs generated deployments of increasing size through parse, {@link EnvironmentProcessor#process},
+ * {@link SwitchBoardOperatorDeployer#deployBeanMetaData} and {@link SwitchBoardOperator#start()}, and reports
+ * how the time and memory of each phase scale.  A phase whose time grows faster than
+ * {@link #SUPER_LINEAR_EXPONENT} times the growth in references is flagged.
+ * <p/>
+ * Options: <code>--components=25,50,100,200,400 --references-per-type=25 --duplicate-ratio=0.1 --iterations=3</code>
+ * <p/>
+ * Allocation is measured for the harness thread only, so bindings performed by a parallel operator start are
+ * not included.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class ScalingHarness
+{
+   /** Scaling exponent above which a phase is reported as super-linear */
+   public static final double SUPER_LINEAR_EXPONENT = 1.2;
+
+   private static final String[] PHASES = {"parse", "process", "deploy", "start"};
+
+   private int[] componentCounts = {25, 50, 100, 200, 400};
+   private int referencesPerType = 25;
+   private double duplicateRatio = 0.1;
+   private int iterations = 3;
+
+   public static void main(final String[] args) throws Exception
+   {
+      final ScalingHarness harness = new ScalingHarness();
+      for(String arg : args)
+      {
+         final int separator = arg.indexOf('=');
+         if(!arg.startsWith("--") || separator < 0)
+            throw new IllegalArgumentException("Unrecognized argument: " + arg);
+         final String name = arg.substring(2, separator);
+         final String value = arg.substring(separator + 1);
+         if(name.equals("components"))
+         {
+            final String[] counts = value.split(",");
+            final int[] componentCounts = new int[counts.length];
+            for(int i = 0; i < counts.length; i++)
+               componentCounts[i] = Integer.parseInt(counts[i].trim());
+            harness.setComponentCounts(componentCounts);
+         }
+         else if(name.equals("references-per-type"))
+            harness.setReferencesPerType(Integer.parseInt(value));
+         else if(name.equals("duplicate-ratio"))
+            harness.setDuplicateRatio(Double.parseDouble(value));
+         else if(name.equals("iterations"))
+            harness.setIterations(Integer.parseInt(value));
+         else
+            throw new IllegalArgumentException("Unrecognized argument: " + arg);
+      }
+      harness.report(harness.run(), System.out);
+   }
+
+   /**
+    * Measure each configured deployment size.
+    *
+    * @return A measurement for each size, smallest first
+    * @throws Exception If any phase fails
+    */
+   public List<Measurement> run() throws Exception
+   {
+      final List<Measurement> measurements = new ArrayList<Measurement>(componentCounts.length);
+      for(int components : componentCounts)
+      {
+         final SwitchBoardGenerator generator = new SwitchBoardGenerator();
+         generator.setComponents(components);
+         generator.setReferencesPerType(referencesPerType);
+         generator.setDuplicateRatio(duplicateRatio);
+
+         final File xml = File.createTempFile("generated", "-switchboard.xml");
+         try
+         {
+            SwitchBoardGenerator.writeXml(generator.generate(), xml);
+            Measurement best = null;
+            for(int i = 0; i < iterations; i++)
+            {
+               final Measurement measurement = measure(components, generator.getReferenceCount(), xml);
+               if(best == null || measurement.getTotalNanos() < best.getTotalNanos())
+                  best = measurement;
+            }
+            measurements.add(best);
+         }
+         finally
+         {
+            xml.delete();
+         }
+      }
+      return measurements;
+   }
+
+   private Measurement measure(final int components, final int references, final File xml) throws Exception
+   {
+      final LocalNaming naming = new LocalNaming();
+      final Context context = naming.start();
+      try
+      {
+         final long baseline = usedMemory();
+         final long allocated = allocatedBytes();
+         final long[] nanos = new long[PHASES.length];
+
+         long start = System.nanoTime();
+         final SwitchBoardMetaData switchBoardMetaData = parse(xml);
+         nanos[0] = System.nanoTime() - start;
+
+         final TimingDeployer deployer = new TimingDeployer();
+         start = System.nanoTime();
+         deployer.deploy(deployer.unit, switchBoardMetaData);
+         nanos[1] = deployer.environmentProcessor.nanos;
+         nanos[2] = System.nanoTime() - start - nanos[1];
+
+         final List<SwitchBoardOperator> operators = new ArrayList<SwitchBoardOperator>(deployer.injectors.size());
+         start = System.nanoTime();
+         for(int i = 0; i < deployer.injectors.size(); i++)
+         {
+            final SwitchBoardOperator operator = new SwitchBoardOperator(Util.createSubcontext(context, "operator" + i), deployer.injectors.get(i));
+            operator.start();
+            operators.add(operator);
+         }
+         nanos[3] = System.nanoTime() - start;
+
+         final long allocatedBytes = allocated < 0 ? -1 : allocatedBytes() - allocated;
+         final long retainedBytes = usedMemory() - baseline;
+         // Keeps the deployment reachable until the retained memory has been measured
+         if(operators.size() != deployer.injectors.size() || switchBoardMetaData.getComponents() == null)
+            throw new IllegalStateException("Not every operator was started");
+         return new Measurement(components, references, nanos, allocatedBytes, retainedBytes);
+      }
+      finally
+      {
+         context.close();
+         naming.stop();
+      }
+   }
+
+   private static SwitchBoardMetaData parse(final File xml) throws Exception
+   {
+      final Unmarshaller unmarshaller = UnmarshallerFactory.newInstance().newUnmarshaller();
+      unmarshaller.setSchemaValidation(false);
+      unmarshaller.setValidation(false);
+      final InputStream in = new BufferedInputStream(new FileInputStream(xml));
+      try
+      {
+         final DefaultSchemaResolver resolver = new DefaultSchemaResolver();
+         resolver.addClassBinding("urn:jboss:switchboard:1.0", SwitchBoardMetaData.class);
+         return (SwitchBoardMetaData) unmarshaller.unmarshal(in, resolver);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private static long usedMemory()
+   {
+      final Runtime runtime = Runtime.getRuntime();
+      for(int i = 0; i < 3; i++)
+         System.gc();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   private static long allocatedBytes()
+   {
+      final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      if(threadMXBean instanceof com.sun.management.ThreadMXBean)
+         return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+      return -1;
+   }
+
+   /**
+    * Print the measurements along with the scaling exponent of each phase between consecutive sizes.
+    *
+    * @param measurements The measurements, smallest first
+    * @param out          The stream to print to
+    */
+   public void report(final List<Measurement> measurements, final PrintStream out)
+   {
+      out.printf("%10s %10s %10s %10s %10s %10s %14s %14s%n", "components", "references", "parse(ms)", "process(ms)", "deploy(ms)", "start(ms)", "allocated(MB)", "retained(MB)");
+      for(Measurement measurement : measurements)
+      {
+         out.printf("%10d %10d %10.1f %10.1f %10.1f %10.1f %14.1f %14.1f%n", measurement.components, measurement.references,
+            millis(measurement.nanos[0]), millis(measurement.nanos[1]), millis(measurement.nanos[2]), millis(measurement.nanos[3]),
+            megabytes(measurement.allocatedBytes), megabytes(measurement.retainedBytes));
+      }
+      out.println();
+      for(int i = 1; i < measurements.size(); i++)
+      {
+         final Measurement previous = measurements.get(i - 1);
+         final Measurement current = measurements.get(i);
+         final StringBuilder line = new StringBuilder();
+         line.append(previous.references).append(" -> ").append(current.references).append(" references:");
+         for(int phase = 0; phase < PHASES.length; phase++)
+         {
+            final double exponent = exponent(previous.references, current.references, previous.nanos[phase], current.nanos[phase]);
+            line.append(String.format(" %s=%.2f", PHASES[phase], exponent));
+            if(exponent > SUPER_LINEAR_EXPONENT)
+               line.append(" (SUPER-LINEAR)");
+         }
+         out.println(line);
+      }
+   }
+
+   private static double exponent(final long previousSize, final long currentSize, final long previousValue, final long currentValue)
+   {
+      if(previousSize <= 0 || currentSize <= previousSize || previousValue <= 0 || currentValue <= 0)
+         return Double.NaN;
+      return Math.log((double) currentValue / previousValue) / Math.log((double) currentSize / previousSize);
+   }
+
+   private static double millis(final long nanos)
+   {
+      return nanos / 1000000.0;
+   }
+
+   private static double megabytes(final long bytes)
+   {
+      return bytes < 0 ? Double.NaN : bytes / (1024.0 * 1024.0);
+   }
+
+   public void setComponentCounts(final int[] componentCounts)
+   {
+      this.componentCounts = componentCounts;
+   }
+
+   public void setReferencesPerType(final int referencesPerType)
+   {
+      this.referencesPerType = referencesPerType;
+   }
+
+   public void setDuplicateRatio(final double duplicateRatio)
+   {
+      this.duplicateRatio = duplicateRatio;
+   }
+
+   public void setIterations(final int iterations)
+   {
+      this.iterations = iterations;
+   }
+
+   /**
+    * The result of measuring one deployment size.
+    */
+   public static class Measurement
+   {
+      private final int components;
+      private final int references;
+      private final long[] nanos;
+      private final long allocatedBytes;
+      private final long retainedBytes;
+
+      private Measurement(final int components, final int references, final long[] nanos, final long allocatedBytes, final long retainedBytes)
+      {
+         this.components = components;
+         this.references = references;
+         this.nanos = nanos;
+         this.allocatedBytes = allocatedBytes;
+         this.retainedBytes = retainedBytes;
+      }
+
+      public long getTotalNanos()
+      {
+         long total = 0;
+         for(long phaseNanos : nanos)
+            total += phaseNanos;
+         return total;
+      }
+   }
+
+   /**
+    * Environment processor which accumulates the time spent processing, including the creation of the injectors
+    * the deployer streams the results into.
+    */
+   private static class TimingEnvironmentProcessor extends EnvironmentProcessor<DeploymentUnit>
+   {
+      private long nanos;
+
+      @Override
+      public void process(final DeploymentUnit context, final Iterable<Environment> environments, final ResolvedReferences previous, final ResolvedReferences current, final ResolverResultConsumer consumer) throws ResolutionException
+      {
+         final long start = System.nanoTime();
+         try
+         {
+            super.process(context, environments, previous, current, consumer);
+         }
+         finally
+         {
+            nanos += System.nanoTime() - start;
+         }
+      }
+   }
+
+   /**
+    * Deployer against a mocked deployment unit which keeps the injectors it creates for each operator.
+    */
+   private static class TimingDeployer extends SwitchBoardOperatorDeployer
+   {
+      private final TimingEnvironmentProcessor environmentProcessor = new TimingEnvironmentProcessor();
+      private final List<List<Injector<Context>>> injectors = new ArrayList<List<Injector<Context>>>();
+      private final DeploymentUnit unit;
+
+      private TimingDeployer()
+      {
+         unit = mock(DeploymentUnit.class, withSettings().stubOnly());
+         when(unit.getTopLevel()).thenReturn(unit);
+         final JavaEEComponentInformer componentInformer = mock(JavaEEComponentInformer.class, withSettings().stubOnly());
+         when(componentInformer.getApplicationName(unit)).thenReturn("Application");
+         when(componentInformer.getModulePath(unit)).thenReturn("Module");
+         setComponentInformer(componentInformer);
+         setEnvironmentProcessor(Resolvers.register(environmentProcessor));
+      }
+
+      @Override
+      protected void deployBeanMetaData(final DeploymentUnit unit, final String componentName, final List<Injector<Context>> injectors, final Collection<String> dependencies)
+      {
+         super.deployBeanMetaData(unit, componentName, injectors, dependencies);
+         this.injectors.add(injectors);
+      }
+   }
+}
@@ -0,0 +1,246 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject;
+
+import org.jboss.injection.inject.metrics.InjectionMetrics;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.spi.AsyncValueRetriever;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Injects a list of {@link Injector}s into a target with all the value retrievals in flight at once, so the time
+ * taken is that of the slowest retrieval rather than the sum of all of them.
+ * <p>
+ * {@link AsyncValueRetriever}s are started directly.  Other value retrievers are run on the executor, or on the
+ * calling thread if there is none, and {@link GenericValueRetriever}s are used as is.  Only the retrievals run
+ * asynchronously: once every value has been retrieved the values are set in injector order on the calling thread.
+ * If any retrieval fails no value is set and the failure of the first failing injector is thrown.  Injectors which
+ * do not inject through a single injection point, such as fused injectors, are injected on the calling thread after
+ * the other values have been set.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ */
+public class AsyncInjector<T>
+{
+   private final List<Injection<T, ?>> injections;
+   private final List<Injector<T>> otherInjectors;
+   private final Executor executor;
+
+   /**
+    * Create a new AsyncInjector which runs synchronous value retrievers on the calling thread.  Only
+    * {@link AsyncValueRetriever}s overlap.
+    *
+    * @param injectors The injectors to inject into each target
+    */
+   public AsyncInjector(final List<Injector<T>> injectors)
+   {
+      this(injectors, null);
+   }
+
+   /**
+    * Create a new AsyncInjector which runs synchronous value retrievers on an executor.
+    *
+    * @param injectors The injectors to inject into each target
+    * @param executor The executor used to run synchronous value retrievers, or null to run them on the calling thread
+    */
+   public AsyncInjector(final List<Injector<T>> injectors, final Executor executor)
+   {
+      if(injectors == null) throw new IllegalArgumentException("Injectors must not be null");
+      this.injections = new ArrayList<Injection<T, ?>>(injectors.size());
+      this.otherInjectors = new ArrayList<Injector<T>>();
+      for(Injector<T> injector : injectors)
+      {
+         final InjectionPoint<T, ?> injectionPoint = injector.getInjectionPoint();
+         if(injectionPoint == null)
+            otherInjectors.add(injector);
+         else
+            injections.add(createInjection(injectionPoint, injector.getValueRetriever()));
+      }
+      this.executor = executor;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T, V> Injection<T, V> createInjection(final InjectionPoint<T, V> injectionPoint, final ValueRetriever<?> valueRetriever)
+   {
+      return new Injection<T, V>(injectionPoint, (ValueRetriever<V>) valueRetriever);
+   }
+
+   /**
+    * Performs the injections, waiting for all the values to be retrieved.  The values are set on the calling thread.
+    *
+    * @param target The target object receiving the injections
+    */
+   public void inject(final T target)
+   {
+      final InjectionMetrics metrics = InjectionMetrics.getInstance();
+      final long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+      boolean failed = true;
+      try
+      {
+         final List<CompletableFuture<?>> values = new ArrayList<CompletableFuture<?>>(injections.size());
+         for(Injection<T, ?> injection : injections)
+            values.add(injection.retrieve(executor));
+         try
+         {
+            CompletableFuture.allOf(values.toArray(new CompletableFuture<?>[values.size()])).get();
+         }
+         catch(ExecutionException e)
+         {
+            // Report the first injector which failed, not whichever failed first
+            for(CompletableFuture<?> value : values)
+            {
+               if(value.isCompletedExceptionally())
+                  throw rethrow(getFailure(value));
+            }
+            throw rethrow(e.getCause());
+         }
+         for(int i = 0; i < injections.size(); i++)
+            injections.get(i).set(target, values.get(i).join());
+         for(Injector<T> injector : otherInjectors)
+            injector.inject(target);
+         failed = false;
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("Interrupted while injecting " + target, e);
+      }
+      finally
+      {
+         if(metrics.isEnabled())
+            metrics.recordInjection(target == null ? null : target.getClass(), System.nanoTime() - start, failed);
+      }
+   }
+
+   private static Throwable getFailure(final CompletableFuture<?> value)
+   {
+      try
+      {
+         value.join();
+         return null;
+      }
+      catch(CompletionException e)
+      {
+         return e.getCause() != null ? e.getCause() : e;
+      }
+      catch(RuntimeException e)
+      {
+         return e;
+      }
+   }
+
+   private static RuntimeException rethrow(final Throwable failure)
+   {
+      if(failure instanceof RuntimeException)
+         return (RuntimeException) failure;
+      if(failure instanceof Error)
+         throw (Error) failure;
+      return new RuntimeException("Failed to inject target", failure);
+   }
+
+   /**
+    * A single injection point and the value retriever used to obtain its value.
+    */
+   private static class Injection<T, V>
+   {
+      private final InjectionPoint<T, V> injectionPoint;
+      private final ValueRetriever<V> valueRetriever;
+
+      private Injection(final InjectionPoint<T, V> injectionPoint, final ValueRetriever<V> valueRetriever)
+      {
+         this.injectionPoint = injectionPoint;
+         this.valueRetriever = valueRetriever;
+      }
+
+      /**
+       * Start retrieving the value, adapting synchronous retrievers.
+       */
+      private CompletableFuture<V> retrieve(final Executor executor)
+      {
+         if(valueRetriever instanceof AsyncValueRetriever)
+         {
+            try
+            {
+               return ((AsyncValueRetriever<V>) valueRetriever).getValueAsync().toCompletableFuture();
+            }
+            catch(RuntimeException e)
+            {
+               return failed(e);
+            }
+         }
+         if(executor == null || valueRetriever instanceof GenericValueRetriever)
+         {
+            try
+            {
+               return CompletableFuture.completedFuture(valueRetriever.getValue());
+            }
+            catch(RuntimeException e)
+            {
+               return failed(e);
+            }
+         }
+         return CompletableFuture.supplyAsync(new Supplier<V>()
+         {
+            public V get()
+            {
+               return valueRetriever.getValue();
+            }
+         }, executor);
+      }
+
+      private static <V> CompletableFuture<V> failed(final Throwable failure)
+      {
+         final CompletableFuture<V> future = new CompletableFuture<V>();
+         future.completeExceptionally(failure);
+         return future;
+      }
+
+      @SuppressWarnings("unchecked")
+      private void set(final T target, final Object value)
+      {
+         injectionPoint.set(target, (V) value);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "injectionPoint=" + injectionPoint + ", valueRetriever=" + valueRetriever;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "AsyncInjector{" + "injections=" + injections + ", otherInjectors=" + otherInjectors + ", executor=" + executor + '}';
+   }
+}
@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Injects a list of {@link Injector}s into a batch of targets, such as the instances
+ * used to pre-fill an instance pool.
+ * <p>
+ * Each injector retrieves its value once per batch (see {@link Injector#resolve()}) and that
+ * value is then injected into every target of the batch.  When an executor is provided, batches
+ * larger than the partition size are split and the partitions are injected concurrently.
+ * </p>
+ * <p>
+ * Because every target receives the same instance, the injectors must only retrieve values which
+ * can be shared between targets, such as environment entries, stateless or singleton session bean
+ * references, data sources and other resource factories.  Values for which each lookup creates a new
+ * instance, for example stateful session beans or prototype scoped objects, are also shared and so must
+ * not be injected through a BulkInjector; use an {@link Injector} per target for them instead.
+ * Shared values may be used by several targets concurrently and must be thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ */
+public class BulkInjector<T>
+{
+   private final List<Injector<T>> injectors;
+   private final ExecutorService executor;
+   private final int partitionSize;
+
+   /**
+    * Create a new BulkInjector which injects all targets on the calling thread.
+    *
+    * @param injectors The injectors to inject into each target
+    */
+   public BulkInjector(final List<Injector<T>> injectors)
+   {
+      this(injectors, null, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Create a new BulkInjector which splits large batches across an executor.
+    *
+    * @param injectors The injectors to inject into each target
+    * @param executor The executor used to inject partitions concurrently, or null to inject on the calling thread
+    * @param partitionSize The maximum number of targets injected by a single task
+    */
+   public BulkInjector(final List<Injector<T>> injectors, final ExecutorService executor, final int partitionSize)
+   {
+      if(injectors == null) throw new IllegalArgumentException("Injectors must not be null");
+      if(partitionSize < 1) throw new IllegalArgumentException("Partition size must be positive");
+      this.injectors = injectors;
+      this.executor = executor;
+      this.partitionSize = partitionSize;
+   }
+
+   /**
+    * Performs the injections into every target of the batch.  Each injector's value is retrieved
+    * once and the same instance is injected into all the targets.
+    *
+    * @param targets The target objects receiving the injections
+    */
+   public void inject(final Collection<? extends T> targets)
+   {
+      if(targets == null) throw new IllegalArgumentException("Targets must not be null");
+      if(targets.isEmpty())
+         return;
+
+      final List<Injector<T>> resolvedInjectors = new ArrayList<Injector<T>>(injectors.size());
+      for(Injector<T> injector : injectors)
+      {
+         resolvedInjectors.add(injector.resolve());
+      }
+
+      if(executor == null || targets.size() <= partitionSize)
+      {
+         inject(resolvedInjectors, targets);
+         return;
+      }
+
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      List<T> partition = new ArrayList<T>(partitionSize);
+      for(T target : targets)
+      {
+         partition.add(target);
+         if(partition.size() == partitionSize)
+         {
+            futures.add(executor.submit(new InjectionTask<T>(resolvedInjectors, partition)));
+            partition = new ArrayList<T>(partitionSize);
+         }
+      }
+      if(!partition.isEmpty())
+      {
+         futures.add(executor.submit(new InjectionTask<T>(resolvedInjectors, partition)));
+      }
+      await(futures);
+   }
+
+   private static <T> void inject(final List<Injector<T>> injectors, final Collection<? extends T> targets)
+   {
+      for(T target : targets)
+      {
+         Injector.injectAll(injectors, target);
+      }
+   }
+
+   private static void await(final List<Future<Void>> futures)
+   {
+      Throwable failure = null;
+      for(Future<Void> future : futures)
+      {
+         try
+         {
+            future.get();
+         }
+         catch(ExecutionException e)
+         {
+            if(failure == null)
+               failure = e.getCause();
+         }
+         catch(InterruptedException e)
+         {
+            for(Future<Void> remaining : futures)
+            {
+               remaining.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while injecting targets", e);
+         }
+      }
+      if(failure == null)
+         return;
+      if(failure instanceof RuntimeException)
+         throw (RuntimeException) failure;
+      if(failure instanceof Error)
+         throw (Error) failure;
+      throw new RuntimeException("Failed to inject targets", failure);
+   }
+
+   private static class InjectionTask<T> implements Callable<Void>
+   {
+      private final List<Injector<T>> injectors;
+      private final Collection<? extends T> targets;
+
+      private InjectionTask(final List<Injector<T>> injectors, final Collection<? extends T> targets)
+      {
+         this.injectors = injectors;
+         this.targets = targets;
+      }
+
+      public Void call() throws Exception
+      {
+         inject(injectors, targets);
+         return null;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "BulkInjector{" + "injectors=" + injectors + ", executor=" + executor + ", partitionSize=" + partitionSize + '}';
+   }
+}
@@ -21,9 +21,15 @@
  */
 package org.jboss.injection.inject;
 
+import org.jboss.injection.inject.metrics.InjectionMetrics;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
 import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.spi.PrimitiveInjectionPoint;
+import org.jboss.injection.inject.spi.PrimitiveValueRetriever;
 import org.jboss.injection.inject.spi.ValueRetriever;
 
+import java.util.List;
+
 /**
  * Injectors injectInto an inject into a target.
  *
@@ -32,7 +38,7 @@ import org.jboss.injection.inject.spi.ValueRetriever;
  */
 public class Injector<T>
 {
-   private final TypedDelegate<T, ?> delegate;
+   private final Delegate<T> delegate;
 
    /**
     * Create a new Injector with an injection point and value retriever
@@ -44,7 +50,30 @@ public class Injector<T>
    {
       if(injectionPoint == null) throw new IllegalArgumentException("TypedDelegate point can not be null");
       if(valueRetriever == null) throw new IllegalArgumentException("Value retriever can not be null");
-      delegate = new TypedDelegate<T, V>(injectionPoint, valueRetriever);
+      delegate = createDelegate(injectionPoint, valueRetriever);
+   }
+
+   private static <T, V> Delegate<T> createDelegate(final InjectionPoint<T, V> injectionPoint, final ValueRetriever<V> valueRetriever)
+   {
+      // Inject primitives without boxing when both sides support it
+      if(injectionPoint instanceof PrimitiveInjectionPoint && valueRetriever instanceof PrimitiveValueRetriever)
+      {
+         final PrimitiveInjectionPoint<T, V> primitiveInjectionPoint = (PrimitiveInjectionPoint<T, V>) injectionPoint;
+         if(primitiveInjectionPoint.getPrimitiveType() != null)
+            return new PrimitiveDelegate<T, V>(primitiveInjectionPoint, (PrimitiveValueRetriever<V>) valueRetriever);
+      }
+      return new TypedDelegate<T, V>(injectionPoint, valueRetriever);
+   }
+
+   /**
+    * Create a new Injector which performs the injection through the provided delegate.
+    *
+    * @param delegate The delegate performing the injection
+    */
+   protected Injector(final Delegate<T> delegate)
+   {
+      if(delegate == null) throw new IllegalArgumentException("Delegate can not be null");
+      this.delegate = delegate;
    }
 
    /**
@@ -57,13 +86,103 @@ public class Injector<T>
       delegate.injectInto(target);
    }
 
+   /**
+    * Performs the injections of a list of injectors into a target, in order.  When the {@link InjectionMetrics}
+    * are enabled the time taken to inject the target instance is recorded once, for all the injectors.
+    *
+    * @param injectors The injectors to inject into the target
+    * @param target The target object receiving the injections
+    * @param <T> The target object type
+    */
+   public static <T> void injectAll(final List<Injector<T>> injectors, final T target)
+   {
+      final InjectionMetrics metrics = InjectionMetrics.getInstance();
+      if(!metrics.isEnabled())
+      {
+         for(Injector<T> injector : injectors)
+            injector.inject(target);
+         return;
+      }
+      final long start = System.nanoTime();
+      boolean failed = true;
+      try
+      {
+         for(Injector<T> injector : injectors)
+            injector.inject(target);
+         failed = false;
+      }
+      finally
+      {
+         metrics.recordInjection(target == null ? null : target.getClass(), System.nanoTime() - start, failed);
+      }
+   }
+
+   /**
+    * Get the injection point this injector injects into.
+    *
+    * @return The injection point, or null if this injector does not inject through a single injection point
+    */
+   public InjectionPoint<T, ?> getInjectionPoint()
+   {
+      if(delegate instanceof TypedDelegate)
+         return ((TypedDelegate<T, ?>) delegate).injectionPoint;
+      return null;
+   }
+
+   /**
+    * Get the value retriever used to obtain the injected value.
+    *
+    * @return The value retriever, or null if this injector does not inject through a single injection point
+    */
+   public ValueRetriever<?> getValueRetriever()
+   {
+      if(delegate instanceof TypedDelegate)
+         return ((TypedDelegate<T, ?>) delegate).valueRetriever;
+      return null;
+   }
+
+   /**
+    * Create an injector which retrieves the value once, now, and injects that same
+    * value into every target it is used with.  This allows a batch of targets to share
+    * a single value retrieval, so it must only be used for values which can be shared
+    * between targets.
+    *
+    * @return The resolved injector
+    */
+   public Injector<T> resolve()
+   {
+      return new Injector<T>(delegate.resolve());
+   }
+
+   /**
+    * Performs the actual injection into a target on behalf of an Injector.
+    *
+    * @param <T> The target object type
+    */
+   protected interface Delegate<T>
+   {
+      /**
+       * Inject into the target
+       *
+       * @param target The target object receiving the injection
+       */
+      void injectInto(T target);
+
+      /**
+       * Create a delegate which injects the value currently retrieved by this delegate.
+       *
+       * @return The resolved delegate
+       */
+      Delegate<T> resolve();
+   }
+
    /**
     *  The purpose of this delegate is to hide the <V> value parameter from the public API of the
     *  Injector class as it is only used creation time, and is no longer needed for the call to inject.
     *  Basically internally formalizing the contract between the injection point's required value type
     *  and the type returned by the value retriever.
    */
-   private static class TypedDelegate<T, V>
+   private static class TypedDelegate<T, V> implements Delegate<T>
    {
       private final ValueRetriever<V> valueRetriever;
       private final InjectionPoint<T, V> injectionPoint;
@@ -74,22 +193,66 @@ public class Injector<T>
          this.valueRetriever = valueRetriever;
       }
 
-      private void injectInto(T target)
+      public void injectInto(T target)
       {
          final V value = getValue();
          injectionPoint.set(target, value);
       }
 
 
+      public Delegate<T> resolve()
+      {
+         return new TypedDelegate<T, V>(injectionPoint, new GenericValueRetriever<V>(getValue()));
+      }
+
       protected V getValue()
       {
          return valueRetriever.getValue();
       }
+
+      @Override
+      public String toString()
+      {
+         return "injectionPoint=" + injectionPoint + ", valueRetriever=" + valueRetriever;
+      }
+   }
+
+   /**
+    * Delegate which passes primitive values from the value retriever to the injection point without boxing them.
+    */
+   private static class PrimitiveDelegate<T, V> extends TypedDelegate<T, V>
+   {
+      private final PrimitiveInjectionPoint<T, V> injectionPoint;
+      private final PrimitiveValueRetriever<V> valueRetriever;
+      private final Class<?> primitiveType;
+
+      private PrimitiveDelegate(final PrimitiveInjectionPoint<T, V> injectionPoint, final PrimitiveValueRetriever<V> valueRetriever)
+      {
+         super(injectionPoint, valueRetriever);
+         this.injectionPoint = injectionPoint;
+         this.valueRetriever = valueRetriever;
+         this.primitiveType = injectionPoint.getPrimitiveType();
+      }
+
+      @Override
+      public void injectInto(T target)
+      {
+         if(primitiveType == int.class)
+            injectionPoint.setInt(target, valueRetriever.getIntValue());
+         else if(primitiveType == long.class)
+            injectionPoint.setLong(target, valueRetriever.getLongValue());
+         else if(primitiveType == boolean.class)
+            injectionPoint.setBoolean(target, valueRetriever.getBooleanValue());
+         else if(primitiveType == double.class)
+            injectionPoint.setDouble(target, valueRetriever.getDoubleValue());
+         else
+            super.injectInto(target);
+      }
    }
 
    @Override
    public String toString()
    {
-      return "Injector{" + "injectionPoint=" + delegate.injectionPoint + ", valueRetriever=" + delegate.valueRetriever +  '}';
+      return "Injector{" + delegate +  '}';
    }
 }
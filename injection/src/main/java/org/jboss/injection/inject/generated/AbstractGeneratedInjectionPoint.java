@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.generated;
+
+import org.jboss.injection.inject.pojo.AbstractAccessibleObjectBeanProperty;
+import org.jboss.injection.inject.spi.PrimitiveInjectionPoint;
+
+/**
+ * Base for generated injection points.  Generated subclasses implement {@link #set(Object, Object)} and, for members
+ * with an <code>int</code>, <code>long</code>, <code>boolean</code> or <code>double</code> type, the matching
+ * primitive setter.  Values are checked and converted with the helpers of this class, so invalid values fail with
+ * the same {@link IllegalArgumentException} and primitives are widened as with {@link java.lang.reflect.Field#set}.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ * @param <V> The injected value type
+ */
+public abstract class AbstractGeneratedInjectionPoint<T, V> implements PrimitiveInjectionPoint<T, V>
+{
+   private final Class<?> declaringClass;
+   private final Class<?> valueType;
+   private final Class<?> primitiveType;
+
+   /**
+    * Create a new generated injection point.
+    *
+    * @param declaringClass The class declaring the member
+    * @param valueType      The field type or setter parameter type
+    */
+   protected AbstractGeneratedInjectionPoint(final Class<?> declaringClass, final Class<?> valueType)
+   {
+      if(declaringClass == null) throw new IllegalArgumentException("Declaring class can not be null");
+      if(valueType == null) throw new IllegalArgumentException("Value type can not be null");
+      this.declaringClass = declaringClass;
+      this.valueType = valueType;
+      if(valueType == int.class || valueType == long.class || valueType == boolean.class || valueType == double.class)
+         this.primitiveType = valueType;
+      else
+         this.primitiveType = null;
+   }
+
+   /**
+    * Get the class declaring the member.
+    *
+    * @return The declaring class
+    */
+   public Class<?> getDeclaringClass()
+   {
+      return declaringClass;
+   }
+
+   /**
+    * Get the field type or setter parameter type.
+    *
+    * @return The value type
+    */
+   public Class<?> getValueType()
+   {
+      return valueType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public Class<?> getPrimitiveType()
+   {
+      return primitiveType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setInt(final T target, final int value)
+   {
+      throw unsupported(int.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setLong(final T target, final long value)
+   {
+      throw unsupported(long.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setBoolean(final T target, final boolean value)
+   {
+      throw unsupported(boolean.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setDouble(final T target, final double value)
+   {
+      throw unsupported(double.class);
+   }
+
+   /**
+    * Check a value can be assigned to the value type of a reference member.
+    *
+    * @param value The value
+    * @return The value
+    * @throws IllegalArgumentException If the value is not an instance of the value type
+    */
+   protected Object checkValue(final Object value)
+   {
+      if(value != null && !valueType.isInstance(value))
+         throw createIllegalArgumentException(value);
+      return value;
+   }
+
+   /**
+    * Unbox a value for a <code>boolean</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value is not a Boolean
+    */
+   protected boolean toBoolean(final Object value)
+   {
+      if(value instanceof Boolean)
+         return (Boolean) value;
+      throw createIllegalArgumentException(value);
+   }
+
+   /**
+    * Unbox a value for a <code>byte</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value is not a Byte
+    */
+   protected byte toByte(final Object value)
+   {
+      if(value instanceof Byte)
+         return (Byte) value;
+      throw createIllegalArgumentException(value);
+   }
+
+   /**
+    * Unbox a value for a <code>char</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value is not a Character
+    */
+   protected char toChar(final Object value)
+   {
+      if(value instanceof Character)
+         return (Character) value;
+      throw createIllegalArgumentException(value);
+   }
+
+   /**
+    * Unbox and widen a value for a <code>short</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value can not be widened to a short
+    */
+   protected short toShort(final Object value)
+   {
+      if(value instanceof Short || value instanceof Byte)
+         return ((Number) value).shortValue();
+      throw createIllegalArgumentException(value);
+   }
+
+   /**
+    * Unbox and widen a value for an <code>int</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value can not be widened to an int
+    */
+   protected int toInt(final Object value)
+   {
+      if(value instanceof Integer || value instanceof Short || value instanceof Byte)
+         return ((Number) value).intValue();
+      if(value instanceof Character)
+         return (Character) value;
+      throw createIllegalArgumentException(value);
+   }
+
+   /**
+    * Unbox and widen a value for a <code>long</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value can not be widened to a long
+    */
+   protected long toLong(final Object value)
+   {
+      if(value instanceof Long)
+         return (Long) value;
+      return toInt(value);
+   }
+
+   /**
+    * Unbox and widen a value for a <code>float</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value can not be widened to a float
+    */
+   protected float toFloat(final Object value)
+   {
+      if(value instanceof Float)
+         return (Float) value;
+      return toLong(value);
+   }
+
+   /**
+    * Unbox and widen a value for a <code>double</code> member.
+    *
+    * @param value The boxed value
+    * @return The primitive value
+    * @throws IllegalArgumentException If the value can not be widened to a double
+    */
+   protected double toDouble(final Object value)
+   {
+      if(value instanceof Double)
+         return (Double) value;
+      return toFloat(value);
+   }
+
+   /**
+    * Create the exception for a value which can not be set, with the same message as the reflective injection
+    * points.
+    */
+   private IllegalArgumentException createIllegalArgumentException(final Object value)
+   {
+      return AbstractAccessibleObjectBeanProperty.createIllegalArgumentException("failed to set value " + value + " on " + this, valueType, value);
+   }
+
+   private IllegalStateException unsupported(final Class<?> type)
+   {
+      return new IllegalStateException(this + " has value type " + valueType + " and can not be set with a " + type + " value");
+   }
+}
@@ -0,0 +1,46 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.generated;
+
+import org.jboss.injection.inject.spi.InjectionPoint;
+
+/**
+ * Injection points generated ahead of time for the injection targets of a single class.  Implementations are
+ * generated by the jboss-injection-maven-plugin into the package of the target class, named after the target
+ * class binary name with {@link #CLASS_SUFFIX} appended, and set values with plain field assignments and setter
+ * calls instead of reflection.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public interface GeneratedInjectionPoints
+{
+   /** Suffix appended to the target class name to get the name of the generated class */
+   String CLASS_SUFFIX = "$$InjectionPoints";
+
+   /**
+    * Get the generated injection point for an injection target name.
+    *
+    * @param targetName The injection target name
+    * @return The injection point, or null if no injection point was generated for the target
+    */
+   InjectionPoint<Object, Object> getInjectionPoint(String targetName);
+}
@@ -0,0 +1,250 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.index;
+
+import org.jboss.injection.inject.pojo.AbstractAccessibleObjectBeanProperty;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.spi.PrimitiveInjectionPoint;
+
+/**
+ * InjectionPoint planned from an {@link InjectionTargetIndex} entry.  The declaring class is not loaded until the
+ * injection point is first used or explicitly resolved, at which point a {@link MethodHandleInjectionPoint} or
+ * {@link FieldHandleInjectionPoint} is created for the indexed member and used for all injections.  Final fields
+ * get a reflective {@link org.jboss.injection.inject.pojo.FieldInjectionPoint}, which is given boxed primitive values.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ * @param <V> The injected value type
+ */
+public class IndexedInjectionPoint<T, V> implements PrimitiveInjectionPoint<T, V>
+{
+   private final ClassLoader classLoader;
+   private final IndexedMember member;
+   private final Class<?> primitiveType;
+
+   private volatile AbstractAccessibleObjectBeanProperty<?, T, V> delegate;
+
+   /**
+    * Create a new injection point for an indexed member.
+    *
+    * @param classLoader The class loader used to load the declaring class
+    * @param member      The indexed member
+    */
+   public IndexedInjectionPoint(final ClassLoader classLoader, final IndexedMember member)
+   {
+      if(classLoader == null) throw new IllegalArgumentException("Class loader can not be null");
+      if(member == null) throw new IllegalArgumentException("Member can not be null");
+      this.classLoader = classLoader;
+      this.member = member;
+      this.primitiveType = getPrimitiveType(member.getTypeName());
+   }
+
+   private static Class<?> getPrimitiveType(final String typeName)
+   {
+      if("int".equals(typeName))
+         return int.class;
+      if("long".equals(typeName))
+         return long.class;
+      if("boolean".equals(typeName))
+         return boolean.class;
+      if("double".equals(typeName))
+         return double.class;
+      return null;
+   }
+
+   /**
+    * Get the indexed member.
+    *
+    * @return The member
+    */
+   public IndexedMember getMember()
+   {
+      return member;
+   }
+
+   /**
+    * Get the name of the injected value type, without loading it.
+    *
+    * @return The value type name
+    */
+   public String getValueTypeName()
+   {
+      return member.getTypeName();
+   }
+
+   /**
+    * Load the declaring class and resolve the member.
+    *
+    * @return The injection point for the member
+    */
+   public AbstractAccessibleObjectBeanProperty<?, T, V> resolve()
+   {
+      AbstractAccessibleObjectBeanProperty<?, T, V> delegate = this.delegate;
+      if(delegate == null)
+      {
+         synchronized(this)
+         {
+            delegate = this.delegate;
+            if(delegate == null)
+            {
+               delegate = createDelegate();
+               this.delegate = delegate;
+            }
+         }
+      }
+      return delegate;
+   }
+
+   private AbstractAccessibleObjectBeanProperty<?, T, V> createDelegate()
+   {
+      try
+      {
+         final Class<?> declaringClass = Class.forName(member.getDeclaringClass(), false, classLoader);
+         if(member.getKind() == IndexedMember.Kind.METHOD)
+         {
+            final Class<?> parameterType = primitiveType != null ? primitiveType : loadType(member.getTypeName());
+            return new MethodHandleInjectionPoint<T, V>(declaringClass.getDeclaredMethod(member.getMemberName(), parameterType));
+         }
+         return FieldHandleInjectionPoint.<T, V>create(declaringClass.getDeclaredField(member.getMemberName()));
+      }
+      catch(ClassNotFoundException e)
+      {
+         throw new RuntimeException("Failed to load class for indexed injection target " + member, e);
+      }
+      catch(NoSuchMethodException e)
+      {
+         throw new RuntimeException("Indexed injection target no longer exists " + member, e);
+      }
+      catch(NoSuchFieldException e)
+      {
+         throw new RuntimeException("Indexed injection target no longer exists " + member, e);
+      }
+   }
+
+   private Class<?> loadType(final String typeName) throws ClassNotFoundException
+   {
+      if("byte".equals(typeName))
+         return byte.class;
+      if("short".equals(typeName))
+         return short.class;
+      if("char".equals(typeName))
+         return char.class;
+      if("float".equals(typeName))
+         return float.class;
+      return Class.forName(typeName, false, classLoader);
+   }
+
+   /**
+    * Get the declaring class, loading it if required.
+    *
+    * @return The declaring class
+    */
+   public Class<?> getDeclaringClass()
+   {
+      return resolve().getDeclaringClass();
+   }
+
+   /**
+    * Get the value type, loading it if required.
+    *
+    * @return The value type
+    */
+   public Class<?> getValueType()
+   {
+      return resolve().getValueType();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void set(final T target, final V value)
+   {
+      resolve().set(target, value);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public Class<?> getPrimitiveType()
+   {
+      return primitiveType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings("unchecked")
+   public void setInt(final T target, final int value)
+   {
+      final AbstractAccessibleObjectBeanProperty<?, T, V> delegate = resolve();
+      if(delegate instanceof PrimitiveInjectionPoint)
+         ((PrimitiveInjectionPoint<T, V>) delegate).setInt(target, value);
+      else
+         delegate.set(target, (V) Integer.valueOf(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings("unchecked")
+   public void setLong(final T target, final long value)
+   {
+      final AbstractAccessibleObjectBeanProperty<?, T, V> delegate = resolve();
+      if(delegate instanceof PrimitiveInjectionPoint)
+         ((PrimitiveInjectionPoint<T, V>) delegate).setLong(target, value);
+      else
+         delegate.set(target, (V) Long.valueOf(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings("unchecked")
+   public void setBoolean(final T target, final boolean value)
+   {
+      final AbstractAccessibleObjectBeanProperty<?, T, V> delegate = resolve();
+      if(delegate instanceof PrimitiveInjectionPoint)
+         ((PrimitiveInjectionPoint<T, V>) delegate).setBoolean(target, value);
+      else
+         delegate.set(target, (V) Boolean.valueOf(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings("unchecked")
+   public void setDouble(final T target, final double value)
+   {
+      final AbstractAccessibleObjectBeanProperty<?, T, V> delegate = resolve();
+      if(delegate instanceof PrimitiveInjectionPoint)
+         ((PrimitiveInjectionPoint<T, V>) delegate).setDouble(target, value);
+      else
+         delegate.set(target, (V) Double.valueOf(value));
+   }
+
+   @Override
+   public String toString()
+   {
+      return "IndexedInjectionPoint{" + "member=" + member + '}';
+   }
+}
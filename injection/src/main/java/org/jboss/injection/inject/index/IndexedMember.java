@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.index;
+
+/**
+ * An injection target member recorded in an {@link InjectionTargetIndex}.  The target class and target name are
+ * the values found in the injection target metadata, the remaining values describe the member they resolve to.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class IndexedMember
+{
+   /**
+    * The kind of member used for injection
+    */
+   public enum Kind
+   {
+      FIELD, METHOD
+   }
+
+   private final String targetClass;
+   private final String targetName;
+   private final String declaringClass;
+   private final Kind kind;
+   private final String memberName;
+   private final String typeName;
+
+   /**
+    * Create a new indexed member
+    *
+    * @param targetClass    The injection target class name
+    * @param targetName     The injection target name
+    * @param declaringClass The name of the class declaring the member
+    * @param kind           The kind of member
+    * @param memberName     The field or method name
+    * @param typeName       The name of the field type or setter parameter type
+    */
+   public IndexedMember(final String targetClass, final String targetName, final String declaringClass, final Kind kind,
+      final String memberName, final String typeName)
+   {
+      if(targetClass == null) throw new IllegalArgumentException("Target class can not be null");
+      if(targetName == null) throw new IllegalArgumentException("Target name can not be null");
+      if(declaringClass == null) throw new IllegalArgumentException("Declaring class can not be null");
+      if(kind == null) throw new IllegalArgumentException("Kind can not be null");
+      if(memberName == null) throw new IllegalArgumentException("Member name can not be null");
+      if(typeName == null) throw new IllegalArgumentException("Type name can not be null");
+      this.targetClass = targetClass;
+      this.targetName = targetName;
+      this.declaringClass = declaringClass;
+      this.kind = kind;
+      this.memberName = memberName;
+      this.typeName = typeName;
+   }
+
+   public String getTargetClass()
+   {
+      return targetClass;
+   }
+
+   public String getTargetName()
+   {
+      return targetName;
+   }
+
+   public String getDeclaringClass()
+   {
+      return declaringClass;
+   }
+
+   public Kind getKind()
+   {
+      return kind;
+   }
+
+   public String getMemberName()
+   {
+      return memberName;
+   }
+
+   public String getTypeName()
+   {
+      return typeName;
+   }
+
+   @Override
+   public boolean equals(final Object o)
+   {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+
+      final IndexedMember that = (IndexedMember) o;
+      return targetClass.equals(that.targetClass) && targetName.equals(that.targetName) && declaringClass.equals(that.declaringClass)
+         && kind == that.kind && memberName.equals(that.memberName) && typeName.equals(that.typeName);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      int result = targetClass.hashCode();
+      result = 31 * result + targetName.hashCode();
+      result = 31 * result + memberName.hashCode();
+      return result;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "IndexedMember{" + "targetClass='" + targetClass + '\'' + ", targetName='" + targetName + '\'' + ", declaringClass='" + declaringClass + '\''
+         + ", kind=" + kind + ", memberName='" + memberName + '\'' + ", typeName='" + typeName + '\'' + '}';
+   }
+}
@@ -0,0 +1,267 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Read only index of injection target members, produced at build time by the {@link InjectionTargetIndexWriter}
+ * and shipped in the archive as {@link #RESOURCE_NAME}.  It allows injection points to be planned from the injection
+ * target metadata without loading the target classes.
+ * <p/>
+ * Index files are memory-mapped and searched in place.  The format is a header of magic, version, string count and
+ * entry count, followed by the string offsets, the entries sorted by target class and target name, and the strings
+ * themselves as an unsigned short length and UTF-8 bytes.  Each entry holds six ints: the target class, target name,
+ * declaring class, member kind, member name and type name, all but the kind being string indexes.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionTargetIndex
+{
+   /** Location of the index within an archive */
+   public static final String RESOURCE_NAME = "META-INF/injection-targets.idx";
+
+   static final int MAGIC = 0x4A494458;
+   static final int VERSION = 1;
+   static final int HEADER_SIZE = 16;
+   static final int ENTRY_SIZE = 24;
+   static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private static final InjectionTargetIndex EMPTY = new InjectionTargetIndex(Collections.<ByteBuffer>emptyList());
+
+   private final List<ByteBuffer> buffers;
+
+   private InjectionTargetIndex(final List<ByteBuffer> buffers)
+   {
+      this.buffers = buffers;
+   }
+
+   /**
+    * Load every index visible to a class loader.  Indexes in the file system are memory-mapped, indexes in
+    * archives are read into memory.
+    *
+    * @param classLoader The class loader
+    * @return The combined index, which is empty if the class loader has no index
+    * @throws IOException If an index can not be read
+    */
+   public static InjectionTargetIndex load(final ClassLoader classLoader) throws IOException
+   {
+      final Enumeration<URL> resources = classLoader.getResources(RESOURCE_NAME);
+      if(!resources.hasMoreElements())
+         return EMPTY;
+      final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+      while(resources.hasMoreElements())
+         buffers.add(read(resources.nextElement()));
+      return new InjectionTargetIndex(buffers);
+   }
+
+   /**
+    * Memory-map an index file.
+    *
+    * @param file The index file
+    * @return The index
+    * @throws IOException If the file can not be mapped or is not an index
+    */
+   public static InjectionTargetIndex map(final File file) throws IOException
+   {
+      return new InjectionTargetIndex(Collections.singletonList(mapFile(file)));
+   }
+
+   /**
+    * Read an index from a stream.
+    *
+    * @param in The stream holding the index, which is not closed
+    * @return The index
+    * @throws IOException If the stream can not be read or does not hold an index
+    */
+   public static InjectionTargetIndex read(final InputStream in) throws IOException
+   {
+      return new InjectionTargetIndex(Collections.singletonList(readStream(in)));
+   }
+
+   private static ByteBuffer read(final URL url) throws IOException
+   {
+      if("file".equals(url.getProtocol()))
+      {
+         try
+         {
+            return mapFile(new File(url.toURI()));
+         }
+         catch(URISyntaxException e)
+         {
+            // Fall through and read it as a stream
+         }
+      }
+      final InputStream in = url.openStream();
+      try
+      {
+         return readStream(in);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private static ByteBuffer mapFile(final File file) throws IOException
+   {
+      final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try
+      {
+         final FileChannel channel = randomAccessFile.getChannel();
+         return validate(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+      }
+      finally
+      {
+         // The mapping remains valid after the file is closed
+         randomAccessFile.close();
+      }
+   }
+
+   private static ByteBuffer readStream(final InputStream in) throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while((read = in.read(buffer)) != -1)
+         out.write(buffer, 0, read);
+      return validate(ByteBuffer.wrap(out.toByteArray()), "stream");
+   }
+
+   private static ByteBuffer validate(final ByteBuffer buffer, final String source) throws IOException
+   {
+      if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+         throw new IOException("Not an injection target index: " + source);
+      if(buffer.getInt(4) != VERSION)
+         throw new IOException("Unsupported injection target index version " + buffer.getInt(4) + ": " + source);
+      return buffer;
+   }
+
+   /**
+    * Find the member an injection target resolves to.
+    *
+    * @param targetClass The injection target class name
+    * @param targetName  The injection target name
+    * @return The member, or null if the target is not in the index
+    */
+   public IndexedMember lookup(final String targetClass, final String targetName)
+   {
+      if(buffers.isEmpty())
+         return null;
+      final byte[] classKey = targetClass.getBytes(UTF8);
+      final byte[] nameKey = targetName.getBytes(UTF8);
+      for(ByteBuffer buffer : buffers)
+      {
+         final int entry = search(buffer, classKey, nameKey);
+         if(entry >= 0)
+            return readMember(buffer, entry);
+      }
+      return null;
+   }
+
+   /**
+    * Get the number of members in the index.
+    *
+    * @return The number of members
+    */
+   public int size()
+   {
+      int size = 0;
+      for(ByteBuffer buffer : buffers)
+         size += buffer.getInt(12);
+      return size;
+   }
+
+   private static int search(final ByteBuffer buffer, final byte[] classKey, final byte[] nameKey)
+   {
+      final int entriesStart = getEntriesStart(buffer);
+      int low = 0;
+      int high = buffer.getInt(12) - 1;
+      while(low <= high)
+      {
+         final int middle = (low + high) >>> 1;
+         final int entryOffset = entriesStart + middle * ENTRY_SIZE;
+         int comparison = compare(buffer, buffer.getInt(entryOffset), classKey);
+         if(comparison == 0)
+            comparison = compare(buffer, buffer.getInt(entryOffset + 4), nameKey);
+         if(comparison < 0)
+            low = middle + 1;
+         else if(comparison > 0)
+            high = middle - 1;
+         else
+            return middle;
+      }
+      return -1;
+   }
+
+   /**
+    * Compare an indexed string with a key, by unsigned bytes of their UTF-8 encoding.
+    */
+   private static int compare(final ByteBuffer buffer, final int stringIndex, final byte[] key)
+   {
+      final int offset = buffer.getInt(HEADER_SIZE + stringIndex * 4);
+      final int length = buffer.getShort(offset) & 0xFFFF;
+      final int common = Math.min(length, key.length);
+      for(int i = 0; i < common; i++)
+      {
+         final int difference = (buffer.get(offset + 2 + i) & 0xFF) - (key[i] & 0xFF);
+         if(difference != 0)
+            return difference;
+      }
+      return length - key.length;
+   }
+
+   private static IndexedMember readMember(final ByteBuffer buffer, final int entry)
+   {
+      final int entryOffset = getEntriesStart(buffer) + entry * ENTRY_SIZE;
+      return new IndexedMember(readString(buffer, buffer.getInt(entryOffset)), readString(buffer, buffer.getInt(entryOffset + 4)),
+         readString(buffer, buffer.getInt(entryOffset + 8)), IndexedMember.Kind.values()[buffer.getInt(entryOffset + 12)],
+         readString(buffer, buffer.getInt(entryOffset + 16)), readString(buffer, buffer.getInt(entryOffset + 20)));
+   }
+
+   private static String readString(final ByteBuffer buffer, final int stringIndex)
+   {
+      final int offset = buffer.getInt(HEADER_SIZE + stringIndex * 4);
+      final byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+      for(int i = 0; i < bytes.length; i++)
+         bytes[i] = buffer.get(offset + 2 + i);
+      return new String(bytes, UTF8);
+   }
+
+   private static int getEntriesStart(final ByteBuffer buffer)
+   {
+      return HEADER_SIZE + buffer.getInt(8) * 4;
+   }
+}
@@ -0,0 +1,325 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.index;
+
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Build time writer for an {@link InjectionTargetIndex}.  Each class added is scanned for the fields and setters
+ * that could be named by an injection target, using the same rules the
+ * {@link org.jboss.injection.inject.naming.InjectionProcessor} applies when it loads the class at deploy time:
+ * a non private single argument <code>set</code> method takes precedence over a field of the same target name.
+ * <p/>
+ * The <code>index-injection-targets</code> goal of the jboss-injection-maven-plugin indexes the compiled classes of a
+ * module in the <code>process-classes</code> phase, writing the index to {@link InjectionTargetIndex#RESOURCE_NAME} so it
+ * is shipped in the archive.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionTargetIndexWriter
+{
+   private static final Logger log = Logger.getLogger(InjectionTargetIndexWriter.class);
+
+   private static final Comparator<byte[]> UNSIGNED_BYTES = new Comparator<byte[]>()
+   {
+      public int compare(final byte[] first, final byte[] second)
+      {
+         final int common = Math.min(first.length, second.length);
+         for(int i = 0; i < common; i++)
+         {
+            final int difference = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if(difference != 0)
+               return difference;
+         }
+         return first.length - second.length;
+      }
+   };
+
+   private final Map<String, Map<String, IndexedMember>> members = new HashMap<String, Map<String, IndexedMember>>();
+
+   /**
+    * Add every injectable field and setter declared by a class.
+    *
+    * @param targetClass The class to index
+    */
+   public void add(final Class<?> targetClass)
+   {
+      final String className = targetClass.getName();
+      final Map<String, IndexedMember> setters = new HashMap<String, IndexedMember>();
+      for(Method method : targetClass.getDeclaredMethods())
+      {
+         if(Modifier.isPrivate(method.getModifiers()) || method.getParameterTypes().length != 1)
+            continue;
+         final String name = method.getName();
+         if(name.length() <= 3 || !name.startsWith("set"))
+            continue;
+         final String targetName = name.substring(3);
+         if(!setters.containsKey(targetName))
+            setters.put(targetName, new IndexedMember(className, targetName, className, IndexedMember.Kind.METHOD, name,
+               method.getParameterTypes()[0].getName()));
+      }
+      for(Field field : targetClass.getDeclaredFields())
+      {
+         if(!setters.containsKey(field.getName()))
+            add(new IndexedMember(className, field.getName(), className, IndexedMember.Kind.FIELD, field.getName(), field.getType().getName()));
+      }
+      for(IndexedMember member : setters.values())
+         add(member);
+   }
+
+   /**
+    * Add every class in a directory of compiled classes.  Classes which can not be loaded are skipped.
+    *
+    * @param classesDirectory The directory of compiled classes
+    * @param classLoader The classloader used to load the classes, which is able to load any class they reference
+    * @return The names of the skipped classes, mapped to the reason they were skipped
+    */
+   public Map<String, String> addClasses(final File classesDirectory, final ClassLoader classLoader)
+   {
+      final List<String> classNames = new ArrayList<String>();
+      collectClassNames(classesDirectory, "", classNames);
+      Collections.sort(classNames);
+
+      final Map<String, String> skipped = new LinkedHashMap<String, String>();
+      for(String className : classNames)
+      {
+         try
+         {
+            add(Class.forName(className, false, classLoader));
+         }
+         catch(ClassNotFoundException e)
+         {
+            skipped.put(className, e.toString());
+         }
+         catch(LinkageError e)
+         {
+            skipped.put(className, e.toString());
+         }
+      }
+      log.debugf("Indexed %d members of %d classes in %s", size(), classNames.size() - skipped.size(), classesDirectory);
+      return skipped;
+   }
+
+   /**
+    * Add a single member.  A member with the same target class and target name replaces any previous one.
+    *
+    * @param member The member
+    */
+   public void add(final IndexedMember member)
+   {
+      Map<String, IndexedMember> classMembers = members.get(member.getTargetClass());
+      if(classMembers == null)
+      {
+         classMembers = new HashMap<String, IndexedMember>();
+         members.put(member.getTargetClass(), classMembers);
+      }
+      classMembers.put(member.getTargetName(), member);
+   }
+
+   /**
+    * Get the number of members added.
+    *
+    * @return The number of members
+    */
+   public int size()
+   {
+      int size = 0;
+      for(Map<String, IndexedMember> classMembers : members.values())
+         size += classMembers.size();
+      return size;
+   }
+
+   /**
+    * Write the index.
+    *
+    * @param out The stream to write to, which is not closed
+    * @throws IOException If the index can not be written
+    */
+   public void write(final OutputStream out) throws IOException
+   {
+      final List<byte[]> strings = new ArrayList<byte[]>();
+      final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+      final List<int[]> entries = new ArrayList<int[]>();
+      for(IndexedMember member : sortedMembers())
+      {
+         entries.add(new int[] {
+            intern(member.getTargetClass(), strings, stringIndexes),
+            intern(member.getTargetName(), strings, stringIndexes),
+            intern(member.getDeclaringClass(), strings, stringIndexes),
+            member.getKind().ordinal(),
+            intern(member.getMemberName(), strings, stringIndexes),
+            intern(member.getTypeName(), strings, stringIndexes)
+         });
+      }
+
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final DataOutputStream data = new DataOutputStream(buffer);
+      data.writeInt(InjectionTargetIndex.MAGIC);
+      data.writeInt(InjectionTargetIndex.VERSION);
+      data.writeInt(strings.size());
+      data.writeInt(entries.size());
+      int offset = InjectionTargetIndex.HEADER_SIZE + strings.size() * 4 + entries.size() * InjectionTargetIndex.ENTRY_SIZE;
+      for(byte[] string : strings)
+      {
+         data.writeInt(offset);
+         offset += 2 + string.length;
+      }
+      for(int[] entry : entries)
+      {
+         for(int value : entry)
+            data.writeInt(value);
+      }
+      for(byte[] string : strings)
+      {
+         data.writeShort(string.length);
+         data.write(string);
+      }
+      data.flush();
+      buffer.writeTo(out);
+   }
+
+   private List<IndexedMember> sortedMembers()
+   {
+      final Map<byte[], Map<byte[], IndexedMember>> sorted = new TreeMap<byte[], Map<byte[], IndexedMember>>(UNSIGNED_BYTES);
+      for(Map<String, IndexedMember> classMembers : members.values())
+      {
+         final Map<byte[], IndexedMember> sortedClassMembers = new TreeMap<byte[], IndexedMember>(UNSIGNED_BYTES);
+         String targetClass = null;
+         for(IndexedMember member : classMembers.values())
+         {
+            sortedClassMembers.put(member.getTargetName().getBytes(InjectionTargetIndex.UTF8), member);
+            targetClass = member.getTargetClass();
+         }
+         if(targetClass != null)
+            sorted.put(targetClass.getBytes(InjectionTargetIndex.UTF8), sortedClassMembers);
+      }
+      final List<IndexedMember> result = new ArrayList<IndexedMember>();
+      for(Map<byte[], IndexedMember> classMembers : sorted.values())
+         result.addAll(classMembers.values());
+      return result;
+   }
+
+   private static int intern(final String value, final List<byte[]> strings, final Map<String, Integer> stringIndexes) throws IOException
+   {
+      Integer index = stringIndexes.get(value);
+      if(index == null)
+      {
+         final byte[] bytes = value.getBytes(InjectionTargetIndex.UTF8);
+         if(bytes.length > 0xFFFF)
+            throw new IOException("String too long for injection target index: " + value);
+         index = strings.size();
+         strings.add(bytes);
+         stringIndexes.put(value, index);
+      }
+      return index;
+   }
+
+   /**
+    * Write the index to a file, creating its directory if needed.
+    *
+    * @param indexFile The file to write
+    * @throws IOException If the index can not be written
+    */
+   public void write(final File indexFile) throws IOException
+   {
+      final File parent = indexFile.getParentFile();
+      if(parent != null && !parent.isDirectory() && !parent.mkdirs())
+         throw new IOException("Failed to create directory " + parent);
+      final OutputStream out = new FileOutputStream(indexFile);
+      try
+      {
+         write(out);
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   /**
+    * Index a directory of compiled classes.
+    * <p/>
+    * Arguments are the index file to write, the classes directory and any additional class path entries needed to
+    * load the classes.
+    *
+    * @param args The arguments
+    * @throws Exception If the index can not be created
+    */
+   public static void main(final String[] args) throws Exception
+   {
+      if(args.length < 2)
+         throw new IllegalArgumentException("Usage: InjectionTargetIndexWriter <index file> <classes directory> [class path entries...]");
+      final File indexFile = new File(args[0]);
+      final File classesDirectory = new File(args[1]);
+      final URL[] urls = new URL[args.length - 1];
+      for(int i = 1; i < args.length; i++)
+         urls[i - 1] = new File(args[i]).toURI().toURL();
+
+      final InjectionTargetIndexWriter writer = new InjectionTargetIndexWriter();
+      final URLClassLoader classLoader = new URLClassLoader(urls, InjectionTargetIndexWriter.class.getClassLoader());
+      try
+      {
+         for(Map.Entry<String, String> skipped : writer.addClasses(classesDirectory, classLoader).entrySet())
+            log.warnf("Skipping %s: %s", skipped.getKey(), skipped.getValue());
+      }
+      finally
+      {
+         classLoader.close();
+      }
+      writer.write(indexFile);
+   }
+
+   private static void collectClassNames(final File directory, final String packagePrefix, final List<String> classNames)
+   {
+      final File[] files = directory.listFiles();
+      if(files == null)
+         return;
+      for(File file : files)
+      {
+         final String name = file.getName();
+         if(file.isDirectory())
+            collectClassNames(file, packagePrefix + name + ".", classNames);
+         else if(name.endsWith(".class") && !"package-info.class".equals(name))
+            classNames.add(packagePrefix + name.substring(0, name.length() - 6));
+      }
+   }
+}
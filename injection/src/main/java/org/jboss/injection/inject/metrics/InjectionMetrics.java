@@ -0,0 +1,301 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Optional instrumentation of ENC lookups, ENC bindings and target injection.  Recording is off
+ * by default, in which case the instrumented code paths only pay for a single volatile read.  It can
+ * be turned on with the <code>org.jboss.injection.metrics.enabled</code> system property or through
+ * the MBean.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionMetrics implements InjectionMetricsMBean
+{
+   /** The object name the metrics are registered under */
+   public static final String OBJECT_NAME = "jboss.injection:service=InjectionMetrics";
+
+   /** System property used to enable recording at startup */
+   public static final String ENABLED_PROPERTY = "org.jboss.injection.metrics.enabled";
+
+   private static final InjectionMetrics INSTANCE = new InjectionMetrics(Boolean.getBoolean(ENABLED_PROPERTY));
+
+   private static final Comparator<Statistic> SLOWEST = new Comparator<Statistic>()
+   {
+      public int compare(final Statistic first, final Statistic second)
+      {
+         return compareLongs(second.getMeanNanos(), first.getMeanNanos());
+      }
+   };
+
+   private static final Comparator<Statistic> HOTTEST = new Comparator<Statistic>()
+   {
+      public int compare(final Statistic first, final Statistic second)
+      {
+         return compareLongs(second.getCount(), first.getCount());
+      }
+   };
+
+   private volatile boolean enabled;
+   private final ConcurrentMap<String, Statistic> lookups = new ConcurrentHashMap<String, Statistic>();
+   private final ConcurrentMap<String, Statistic> bindings = new ConcurrentHashMap<String, Statistic>();
+   private final ConcurrentMap<String, Statistic> injections = new ConcurrentHashMap<String, Statistic>();
+
+   /**
+    * Create a new instance.  Most callers should use the shared instance from {@link #getInstance()}.
+    *
+    * @param enabled Whether to start recording immediately
+    */
+   public InjectionMetrics(final boolean enabled)
+   {
+      this.enabled = enabled;
+   }
+
+   /**
+    * Get the shared instance used by the injection code.
+    *
+    * @return The shared instance
+    */
+   public static InjectionMetrics getInstance()
+   {
+      return INSTANCE;
+   }
+
+   /**
+    * Register this instance with an MBeanServer under {@link #OBJECT_NAME}.
+    *
+    * @param server The MBeanServer
+    * @throws JMException If registration fails
+    */
+   public void register(final MBeanServer server) throws JMException
+   {
+      server.registerMBean(this, new ObjectName(OBJECT_NAME));
+   }
+
+   /**
+    * Unregister this instance from an MBeanServer.
+    *
+    * @param server The MBeanServer
+    * @throws JMException If unregistration fails
+    */
+   public void unregister(final MBeanServer server) throws JMException
+   {
+      server.unregisterMBean(new ObjectName(OBJECT_NAME));
+   }
+
+   public boolean isEnabled()
+   {
+      return enabled;
+   }
+
+   public void setEnabled(final boolean enabled)
+   {
+      this.enabled = enabled;
+   }
+
+   public void reset()
+   {
+      lookups.clear();
+      bindings.clear();
+      injections.clear();
+   }
+
+   /**
+    * Record a lookup of an ENC name.
+    *
+    * @param jndiName The name looked up
+    * @param nanos    The elapsed time in nanoseconds
+    * @param failed   Whether the lookup failed
+    */
+   public void recordLookup(final String jndiName, final long nanos, final boolean failed)
+   {
+      getStatistic(lookups, jndiName).record(nanos, failed);
+   }
+
+   /**
+    * Record a binding of an ENC name.
+    *
+    * @param jndiName The name bound
+    * @param nanos    The elapsed time in nanoseconds
+    * @param failed   Whether the binding failed
+    */
+   public void recordBind(final String jndiName, final long nanos, final boolean failed)
+   {
+      getStatistic(bindings, jndiName).record(nanos, failed);
+   }
+
+   /**
+    * Record the injection of every injector of a target instance.
+    *
+    * @param targetClass The class of the target injected into
+    * @param nanos       The elapsed time in nanoseconds
+    * @param failed      Whether the injection failed
+    */
+   public void recordInjection(final Class<?> targetClass, final long nanos, final boolean failed)
+   {
+      getStatistic(injections, targetClass == null ? "null" : targetClass.getName()).record(nanos, failed);
+   }
+
+   private static Statistic getStatistic(final ConcurrentMap<String, Statistic> statistics, final String name)
+   {
+      Statistic statistic = statistics.get(name);
+      if(statistic == null)
+      {
+         statistic = new Statistic(name);
+         final Statistic existing = statistics.putIfAbsent(name, statistic);
+         if(existing != null)
+            statistic = existing;
+      }
+      return statistic;
+   }
+
+   /**
+    * Get the lookup statistics for an ENC name.
+    *
+    * @param jndiName The name
+    * @return The statistics, or null if the name was never looked up
+    */
+   public Statistic getLookupStatistic(final String jndiName)
+   {
+      return lookups.get(jndiName);
+   }
+
+   /**
+    * Get the binding statistics for an ENC name.
+    *
+    * @param jndiName The name
+    * @return The statistics, or null if the name was never bound
+    */
+   public Statistic getBindStatistic(final String jndiName)
+   {
+      return bindings.get(jndiName);
+   }
+
+   /**
+    * Get the injection statistics for a target class.
+    *
+    * @param targetClass The target class
+    * @return The statistics, or null if the class was never injected into
+    */
+   public Statistic getInjectionStatistic(final Class<?> targetClass)
+   {
+      return injections.get(targetClass.getName());
+   }
+
+   public long getLookupCount()
+   {
+      return sumCounts(lookups.values());
+   }
+
+   public long getLookupFailureCount()
+   {
+      return sumFailures(lookups.values());
+   }
+
+   public long getBindCount()
+   {
+      return sumCounts(bindings.values());
+   }
+
+   public long getBindFailureCount()
+   {
+      return sumFailures(bindings.values());
+   }
+
+   public long getInjectionCount()
+   {
+      return sumCounts(injections.values());
+   }
+
+   public long getInjectionFailureCount()
+   {
+      return sumFailures(injections.values());
+   }
+
+   public String[] listSlowestLookups(final int n)
+   {
+      return top(lookups.values(), SLOWEST, n);
+   }
+
+   public String[] listHottestLookups(final int n)
+   {
+      return top(lookups.values(), HOTTEST, n);
+   }
+
+   public String[] listSlowestBindings(final int n)
+   {
+      return top(bindings.values(), SLOWEST, n);
+   }
+
+   public String[] listSlowestInjectionTargets(final int n)
+   {
+      return top(injections.values(), SLOWEST, n);
+   }
+
+   public String[] listHottestInjectionTargets(final int n)
+   {
+      return top(injections.values(), HOTTEST, n);
+   }
+
+   private static String[] top(final Collection<Statistic> statistics, final Comparator<Statistic> order, final int n)
+   {
+      final List<Statistic> sorted = new ArrayList<Statistic>(statistics);
+      Collections.sort(sorted, order);
+      final int size = Math.max(0, Math.min(n, sorted.size()));
+      final String[] top = new String[size];
+      for(int i = 0; i < size; i++)
+         top[i] = sorted.get(i).toString();
+      return top;
+   }
+
+   private static long sumCounts(final Collection<Statistic> statistics)
+   {
+      long count = 0;
+      for(Statistic statistic : statistics)
+         count += statistic.getCount();
+      return count;
+   }
+
+   private static long sumFailures(final Collection<Statistic> statistics)
+   {
+      long count = 0;
+      for(Statistic statistic : statistics)
+         count += statistic.getFailureCount();
+      return count;
+   }
+
+   private static int compareLongs(final long first, final long second)
+   {
+      return first < second ? -1 : (first == second ? 0 : 1);
+   }
+}
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.metrics;
+
+/**
+ * Management interface for the injection instrumentation.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public interface InjectionMetricsMBean
+{
+   /**
+    * Whether instrumentation is currently recording.
+    *
+    * @return true if recording
+    */
+   boolean isEnabled();
+
+   /**
+    * Turn instrumentation on or off.
+    *
+    * @param enabled Whether to record
+    */
+   void setEnabled(boolean enabled);
+
+   /**
+    * Discard all recorded statistics.
+    */
+   void reset();
+
+   long getLookupCount();
+
+   long getLookupFailureCount();
+
+   long getBindCount();
+
+   long getBindFailureCount();
+
+   long getInjectionCount();
+
+   long getInjectionFailureCount();
+
+   /**
+    * Get the ENC names with the highest mean lookup time.
+    *
+    * @param n The maximum number of names to report
+    * @return A description of each name's statistics, slowest first
+    */
+   String[] listSlowestLookups(int n);
+
+   /**
+    * Get the most frequently looked up ENC names.
+    *
+    * @param n The maximum number of names to report
+    * @return A description of each name's statistics, hottest first
+    */
+   String[] listHottestLookups(int n);
+
+   /**
+    * Get the ENC names with the highest mean bind time.
+    *
+    * @param n The maximum number of names to report
+    * @return A description of each name's statistics, slowest first
+    */
+   String[] listSlowestBindings(int n);
+
+   /**
+    * Get the target classes with the highest mean injection time.
+    *
+    * @param n The maximum number of classes to report
+    * @return A description of each class's statistics, slowest first
+    */
+   String[] listSlowestInjectionTargets(int n);
+
+   /**
+    * Get the most frequently injected target classes.
+    *
+    * @param n The maximum number of classes to report
+    * @return A description of each class's statistics, hottest first
+    */
+   String[] listHottestInjectionTargets(int n);
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and a latency histogram for a single instrumented name.  Latencies are bucketed
+ * by powers of two microseconds, so bucket <code>i</code> holds samples below <code>2^i</code> micros.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class Statistic
+{
+   /** Number of histogram buckets, the last bucket holding every sample above ~17 minutes */
+   public static final int BUCKETS = 31;
+
+   private final String name;
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong failures = new AtomicLong();
+   private final AtomicLong totalNanos = new AtomicLong();
+   private final AtomicLong maxNanos = new AtomicLong();
+   private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+   /**
+    * Create a new statistic
+    *
+    * @param name The instrumented name
+    */
+   public Statistic(final String name)
+   {
+      this.name = name;
+   }
+
+   /**
+    * Record a single sample.
+    *
+    * @param nanos  The elapsed time in nanoseconds
+    * @param failed Whether the operation failed
+    */
+   public void record(final long nanos, final boolean failed)
+   {
+      count.incrementAndGet();
+      if(failed)
+         failures.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      long max = maxNanos.get();
+      while(nanos > max && !maxNanos.compareAndSet(max, nanos))
+         max = maxNanos.get();
+      histogram.incrementAndGet(bucket(nanos));
+   }
+
+   private static int bucket(final long nanos)
+   {
+      final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+      return bucket < BUCKETS ? bucket : BUCKETS - 1;
+   }
+
+   public String getName()
+   {
+      return name;
+   }
+
+   public long getCount()
+   {
+      return count.get();
+   }
+
+   public long getFailureCount()
+   {
+      return failures.get();
+   }
+
+   public long getTotalNanos()
+   {
+      return totalNanos.get();
+   }
+
+   public long getMaxNanos()
+   {
+      return maxNanos.get();
+   }
+
+   public long getMeanNanos()
+   {
+      final long count = getCount();
+      return count == 0 ? 0 : getTotalNanos() / count;
+   }
+
+   /**
+    * Get a copy of the latency histogram.
+    *
+    * @return The sample count for each power of two microsecond bucket
+    */
+   public long[] getHistogram()
+   {
+      final long[] copy = new long[BUCKETS];
+      for(int i = 0; i < BUCKETS; i++)
+         copy[i] = histogram.get(i);
+      return copy;
+   }
+
+   /**
+    * Get an upper bound of the latency below which the given fraction of samples fall.
+    *
+    * @param fraction The fraction of samples, between 0 and 1
+    * @return The upper bound in microseconds, taken from the histogram bucket boundaries
+    */
+   public long getPercentileMicros(final double fraction)
+   {
+      final long[] histogram = getHistogram();
+      long total = 0;
+      for(long bucketCount : histogram)
+         total += bucketCount;
+      if(total == 0)
+         return 0;
+      final long threshold = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for(int i = 0; i < BUCKETS; i++)
+      {
+         seen += histogram[i];
+         if(seen >= threshold)
+            return 1L << i;
+      }
+      return 1L << (BUCKETS - 1);
+   }
+
+   @Override
+   public String toString()
+   {
+      return name + " count=" + getCount() + ", failures=" + getFailureCount() + ", meanMicros=" + TimeUnit.NANOSECONDS.toMicros(getMeanNanos())
+         + ", p99Micros<" + getPercentileMicros(0.99) + ", maxMicros=" + TimeUnit.NANOSECONDS.toMicros(getMaxNanos());
+   }
+}
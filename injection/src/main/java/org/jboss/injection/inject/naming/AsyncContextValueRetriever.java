@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import org.jboss.injection.inject.spi.AsyncValueRetriever;
+
+import javax.naming.Context;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Value retriever used to get values from JNDI which performs the lookups on an executor, so lookups injected
+ * through an {@link org.jboss.injection.inject.AsyncInjector} overlap.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class AsyncContextValueRetriever<M> extends ContextValueRetriever<M> implements AsyncValueRetriever<M>
+{
+   private final Executor executor;
+
+   /**
+    * Creates a new instance with a context.
+    *
+    * @param context  The context to retrieve the value from
+    * @param jndiName The location to retrieve the value from
+    * @param executor The executor the lookups are performed on
+    */
+   public AsyncContextValueRetriever(final Context context, final String jndiName, final Executor executor)
+   {
+      super(context, jndiName);
+      if(executor == null) throw new IllegalArgumentException("Executor can not be null");
+      this.executor = executor;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public CompletionStage<M> getValueAsync()
+   {
+      return CompletableFuture.supplyAsync(new Supplier<M>()
+      {
+         public M get()
+         {
+            return getValue();
+         }
+      }, executor);
+   }
+}
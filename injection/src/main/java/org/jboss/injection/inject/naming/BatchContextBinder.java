@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.logging.Logger;
+
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameAlreadyBoundException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NameParser;
+import javax.naming.NamingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Prepares a list of context {@link Injector}s so their bindings share the work of creating
+ * subcontexts.
+ * <p>
+ * The jndi names of all {@link ContextInjectionPoint}s are parsed and the subcontext tree they need is
+ * created once, in path order, each subcontext being resolved a single time.  Each injector is replaced by one
+ * binding its value directly into its already resolved parent context.  Injectors that do not use a
+ * ContextInjectionPoint are left unchanged, and all prepared injectors keep their original order, so when several
+ * bind the same name the last one still wins.  If the target context is known to be freshly created, subcontexts
+ * are created without looking them up first and values are bound with <code>bind</code> instead of
+ * <code>rebind</code>.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class BatchContextBinder
+{
+   private static final Logger log = Logger.getLogger(BatchContextBinder.class);
+
+   private final Context context;
+   private final boolean freshContext;
+
+   /**
+    * Create a new binder for a context which may already contain bindings.
+    *
+    * @param context The context to bind into
+    */
+   public BatchContextBinder(final Context context)
+   {
+      this(context, false);
+   }
+
+   /**
+    * Create a new binder.
+    *
+    * @param context The context to bind into
+    * @param freshContext true if the context was freshly created and contains no bindings
+    */
+   public BatchContextBinder(final Context context, final boolean freshContext)
+   {
+      if(context == null) throw new IllegalArgumentException("Context can not be null");
+      this.context = context;
+      this.freshContext = freshContext;
+   }
+
+   /**
+    * Create the subcontexts required by the injectors and return injectors which bind into them.
+    *
+    * @param injectors The injectors to prepare
+    * @return The prepared injectors, in the order of the passed injectors
+    * @throws NamingException if the subcontexts can not be created
+    */
+   public List<Injector<Context>> prepare(final List<Injector<Context>> injectors) throws NamingException
+   {
+      final NameParser nameParser = context.getNameParser("");
+      final List<Name> names = new ArrayList<Name>(injectors.size());
+      final Set<Name> parentNames = new TreeSet<Name>();
+      for(Injector<Context> injector : injectors)
+      {
+         final InjectionPoint<Context, ?> injectionPoint = injector.getInjectionPoint();
+         if(injectionPoint instanceof ContextInjectionPoint)
+         {
+            final Name name = nameParser.parse(((ContextInjectionPoint<?>) injectionPoint).getJndiName());
+            names.add(name);
+            parentNames.add(name.getPrefix(name.size() - 1));
+         }
+         else
+         {
+            names.add(null);
+         }
+      }
+
+      // Create the subcontexts in path order so each one is resolved right after its parent
+      final Map<Name, Context> subcontexts = new HashMap<Name, Context>();
+      for(Name parentName : parentNames)
+      {
+         getSubcontext(parentName, subcontexts);
+      }
+
+      final List<Injector<Context>> prepared = new ArrayList<Injector<Context>>(injectors.size());
+      for(int i = 0; i < injectors.size(); i++)
+      {
+         final Injector<Context> injector = injectors.get(i);
+         final Name name = names.get(i);
+         if(name == null)
+         {
+            prepared.add(injector);
+            continue;
+         }
+         final Context parent = subcontexts.get(name.getPrefix(name.size() - 1));
+         final String jndiName = ((ContextInjectionPoint<?>) injector.getInjectionPoint()).getJndiName();
+         prepared.add(createInjector(parent != null ? parent : context, name.get(name.size() - 1), jndiName, injector.getValueRetriever()));
+      }
+      log.debugf("Prepared %d bindings in %d subcontexts of [%s]", names.size(), subcontexts.size(), context);
+      return prepared;
+   }
+
+   private Context getSubcontext(final Name name, final Map<Name, Context> subcontexts) throws NamingException
+   {
+      if(name.isEmpty())
+         return context;
+      Context subcontext = subcontexts.get(name);
+      if(subcontext != null)
+         return subcontext;
+
+      final Context parent = getSubcontext(name.getPrefix(name.size() - 1), subcontexts);
+      final String atom = name.get(name.size() - 1);
+      if(freshContext)
+      {
+         try
+         {
+            subcontext = parent.createSubcontext(atom);
+         }
+         catch(NameAlreadyBoundException e)
+         {
+            subcontext = (Context) parent.lookup(atom);
+         }
+      }
+      else
+      {
+         try
+         {
+            subcontext = (Context) parent.lookup(atom);
+         }
+         catch(NameNotFoundException e)
+         {
+            subcontext = parent.createSubcontext(atom);
+         }
+      }
+      subcontexts.put((Name) name.clone(), subcontext);
+      return subcontext;
+   }
+
+   @SuppressWarnings("unchecked")
+   private Injector<Context> createInjector(final Context parent, final String atom, final String jndiName, final ValueRetriever<?> valueRetriever)
+   {
+      return new Injector<Context>(new SubcontextInjectionPoint(parent, atom, jndiName, freshContext), (ValueRetriever<Object>) valueRetriever);
+   }
+
+   /**
+    * InjectionPoint binding into an already resolved parent context.  The target passed to
+    * {@link #set(Context, Object)} is ignored.
+    */
+   private static class SubcontextInjectionPoint extends AbstractContextInjectionPoint<Object>
+   {
+      private final Context parent;
+      private final String atom;
+      private final boolean bind;
+
+      private SubcontextInjectionPoint(final Context parent, final String atom, final String jndiName, final boolean bind)
+      {
+         super(jndiName);
+         this.parent = parent;
+         this.atom = atom;
+         this.bind = bind;
+      }
+
+      @Override
+      protected void bindValue(final Context target, final Object value)
+      {
+         try
+         {
+            if(bind)
+            {
+               try
+               {
+                  parent.bind(atom, value);
+               }
+               catch(NameAlreadyBoundException e)
+               {
+                  parent.rebind(atom, value);
+               }
+            }
+            else
+            {
+               parent.rebind(atom, value);
+            }
+         }
+         catch(NamingException e)
+         {
+            throw new RuntimeException("Failed to bind value [" + value + "] into context [" + target + "] with jndi name [" + getJndiName() + "]", e);
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         return "SubcontextInjectionPoint{" + "jndiName='" + getJndiName() + '\'' + ", bind=" + bind + '}';
+      }
+   }
+}
@@ -0,0 +1,252 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import org.jboss.logging.Logger;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingExceptionEvent;
+import javax.naming.event.ObjectChangeListener;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value retriever used to get values from JNDI which keeps the looked up value.
+ * <p>
+ * If the context is an {@link EventContext} the retriever registers itself as a
+ * {@link javax.naming.event.NamingListener} for the jndi name and drops the cached value whenever
+ * the binding changes.  For contexts that do not support events the cached value is only dropped
+ * by calling {@link #invalidate()}.  If the context drops the listener it is registered again on the
+ * next lookup, and once the retriever is closed values are no longer cached.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class CachingContextValueRetriever<M> extends ContextValueRetriever<M> implements ObjectChangeListener, NamespaceChangeListener
+{
+   private static final Logger log = Logger.getLogger(CachingContextValueRetriever.class);
+
+   private static final Object NOT_CACHED = new Object();
+
+   private final String jndiName;
+
+   private volatile Object value = NOT_CACHED;
+   // Incremented on every invalidation so a lookup racing with an invalidation is not cached
+   private final AtomicLong generation = new AtomicLong();
+
+   private volatile EventContext eventContext;
+   private volatile boolean registered;
+   private volatile boolean closed;
+
+   private final AtomicLong hitCount = new AtomicLong();
+   private final AtomicLong missCount = new AtomicLong();
+
+   /**
+    * Creates a new instance with no Context.  Will default to an InitialContext.
+    *
+    * @param jndiName To retrieve the value at
+    */
+   public CachingContextValueRetriever(String jndiName)
+   {
+      this(null, jndiName);
+   }
+
+   /**
+    * Creates a new instance with a context.
+    *
+    * @param context  The context to retrieve the value from
+    * @param jndiName The location to retrieve the value from
+    */
+   public CachingContextValueRetriever(final Context context, String jndiName)
+   {
+      super(context, jndiName);
+      this.jndiName = jndiName;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings("unchecked")
+   public M getValue()
+   {
+      if(closed)
+      {
+         // Nothing invalidates the value any longer
+         missCount.incrementAndGet();
+         return lookup(jndiName);
+      }
+      final Object cached = value;
+      if(cached != NOT_CACHED)
+      {
+         hitCount.incrementAndGet();
+         return (M) cached;
+      }
+      missCount.incrementAndGet();
+      registerListener();
+      final long expectedGeneration = generation.get();
+      final M dependency = lookup(jndiName);
+      synchronized(this)
+      {
+         // Not cached if the listener was lost or the retriever closed during the lookup
+         if(registered && generation.get() == expectedGeneration)
+            value = dependency;
+      }
+      return dependency;
+   }
+
+   /**
+    * Drop the cached value.  The next call to {@link #getValue()} will look the value up again.
+    */
+   public void invalidate()
+   {
+      synchronized(this)
+      {
+         generation.incrementAndGet();
+         value = NOT_CACHED;
+      }
+   }
+
+   /**
+    * Stop listening for naming events and drop the cached value.  Values retrieved after the retriever is closed
+    * are looked up every time.
+    */
+   public void close()
+   {
+      final EventContext eventContext;
+      synchronized(this)
+      {
+         closed = true;
+         registered = false;
+         eventContext = this.eventContext;
+         this.eventContext = null;
+         invalidate();
+      }
+      if(eventContext != null)
+      {
+         try
+         {
+            eventContext.removeNamingListener(this);
+         }
+         catch(NamingException e)
+         {
+            log.debugf("Failed to remove naming listener for [%s]: %s", jndiName, e);
+         }
+      }
+   }
+
+   /**
+    * Whether the cached value is invalidated by naming events.
+    *
+    * @return true if a naming listener is registered
+    */
+   public boolean isListening()
+   {
+      return eventContext != null;
+   }
+
+   /**
+    * Get the number of times the cached value was returned.
+    *
+    * @return The hit count
+    */
+   public long getHitCount()
+   {
+      return hitCount.get();
+   }
+
+   /**
+    * Get the number of times the value was looked up in the context.
+    *
+    * @return The miss count
+    */
+   public long getMissCount()
+   {
+      return missCount.get();
+   }
+
+   public void objectChanged(final NamingEvent evt)
+   {
+      invalidate();
+   }
+
+   public void objectAdded(final NamingEvent evt)
+   {
+      invalidate();
+   }
+
+   public void objectRemoved(final NamingEvent evt)
+   {
+      invalidate();
+   }
+
+   public void objectRenamed(final NamingEvent evt)
+   {
+      invalidate();
+   }
+
+   public void namingExceptionThrown(final NamingExceptionEvent evt)
+   {
+      // The listener is deregistered by the context, register again on the next lookup
+      log.debugf("Naming listener for [%s] failed, it is registered again on the next lookup: %s", jndiName, evt.getException());
+      synchronized(this)
+      {
+         eventContext = null;
+         registered = false;
+         invalidate();
+      }
+   }
+
+   private void registerListener()
+   {
+      if(registered)
+         return;
+      synchronized(this)
+      {
+         if(registered || closed)
+            return;
+         registered = true;
+         try
+         {
+            final Context context = getContext();
+            if(context instanceof EventContext)
+            {
+               final EventContext eventContext = (EventContext) context;
+               eventContext.addNamingListener(jndiName, EventContext.OBJECT_SCOPE, this);
+               this.eventContext = eventContext;
+            }
+         }
+         catch(NamingException e)
+         {
+            log.debugf("Context does not support naming events for [%s], cached value will only be dropped on invalidate: %s", jndiName, e);
+         }
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "CachingContextValueRetriever{" + "jndiName='" + jndiName + '\'' + ", listening=" + isListening() + ", hitCount=" + hitCount + ", missCount=" + missCount + '}';
+   }
+}
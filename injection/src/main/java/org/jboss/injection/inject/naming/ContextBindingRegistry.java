@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reference counts for the names bound by {@link SwitchBoardOperator}s, so a name bound by several operators
+ * is only unbound when the last of them stops.
+ * <p>
+ * Names are tracked per context instance, as the contexts of different components can have the same name in the
+ * namespace, such as every java:comp ENC.  Only names created by operators are tracked: a name which was already
+ * bound in the context before the first operator acquired it is never released, so it is not unbound.  Contexts
+ * are no longer referenced once all their names have been released.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class ContextBindingRegistry
+{
+   private static final ContextBindingRegistry DEFAULT = new ContextBindingRegistry();
+
+   private final Map<Context, Map<String, Integer>> referenceCounts = new IdentityHashMap<Context, Map<String, Integer>>();
+
+   /**
+    * Get the registry shared by default by all operators.
+    *
+    * @return The default registry
+    */
+   public static ContextBindingRegistry getDefault()
+   {
+      return DEFAULT;
+   }
+
+   /**
+    * Add a reference to each name which is already referenced or is not bound in the context yet.  Names bound
+    * in the context by something other than an operator are not acquired.
+    *
+    * @param context   The context the names are bound in
+    * @param jndiNames The names, without duplicates
+    * @return The names acquired, which must be released when they are no longer needed
+    */
+   public List<String> acquire(final Context context, final Collection<String> jndiNames)
+   {
+      final List<String> acquired = new ArrayList<String>(jndiNames.size());
+      final List<String> untracked = new ArrayList<String>();
+      synchronized(referenceCounts)
+      {
+         final Map<String, Integer> counts = referenceCounts.get(context);
+         for(String jndiName : jndiNames)
+         {
+            final Integer count = counts == null ? null : counts.get(jndiName);
+            if(count == null)
+            {
+               untracked.add(jndiName);
+               continue;
+            }
+            counts.put(jndiName, count + 1);
+            acquired.add(jndiName);
+         }
+      }
+      if(untracked.isEmpty())
+         return acquired;
+
+      // Check the context without holding the lock, so operators starting in parallel are not serialized
+      final Set<String> unbound = new HashSet<String>();
+      for(String jndiName : untracked)
+      {
+         if(!isBound(context, jndiName))
+            unbound.add(jndiName);
+      }
+
+      synchronized(referenceCounts)
+      {
+         Map<String, Integer> counts = referenceCounts.get(context);
+         for(String jndiName : untracked)
+         {
+            // Another operator may have acquired the name, and bound it, since it was checked
+            final Integer count = counts == null ? null : counts.get(jndiName);
+            if(count == null && !unbound.contains(jndiName))
+               continue;
+            if(counts == null)
+            {
+               counts = new HashMap<String, Integer>();
+               referenceCounts.put(context, counts);
+            }
+            counts.put(jndiName, count == null ? 1 : count + 1);
+            acquired.add(jndiName);
+         }
+      }
+      return acquired;
+   }
+
+   /**
+    * Remove a reference to each name.
+    *
+    * @param context   The context the names are bound in
+    * @param jndiNames The names returned by {@link #acquire(Context, Collection)}
+    * @return The names which are no longer referenced and should be unbound
+    */
+   public List<String> release(final Context context, final Collection<String> jndiNames)
+   {
+      final List<String> released = new ArrayList<String>();
+      synchronized(referenceCounts)
+      {
+         final Map<String, Integer> counts = referenceCounts.get(context);
+         if(counts == null)
+            return released;
+         for(String jndiName : jndiNames)
+         {
+            final Integer count = counts.get(jndiName);
+            if(count == null)
+               continue;
+            if(count <= 1)
+            {
+               counts.remove(jndiName);
+               released.add(jndiName);
+            }
+            else
+            {
+               counts.put(jndiName, count - 1);
+            }
+         }
+         if(counts.isEmpty())
+            referenceCounts.remove(context);
+      }
+      return released;
+   }
+
+   /**
+    * Get the number of references to a name.
+    *
+    * @param context  The context the name is bound in
+    * @param jndiName The name
+    * @return The reference count
+    */
+   public int getReferenceCount(final Context context, final String jndiName)
+   {
+      synchronized(referenceCounts)
+      {
+         final Map<String, Integer> counts = referenceCounts.get(context);
+         final Integer count = counts == null ? null : counts.get(jndiName);
+         return count == null ? 0 : count;
+      }
+   }
+
+   /**
+    * Check whether a name is bound, without following links or running object factories for the bound value.
+    */
+   private static boolean isBound(final Context context, final String jndiName)
+   {
+      try
+      {
+         context.lookupLink(jndiName);
+         return true;
+      }
+      catch(NameNotFoundException e)
+      {
+         return false;
+      }
+      catch(NamingException e)
+      {
+         // Bound, but can not be resolved
+         return true;
+      }
+   }
+}
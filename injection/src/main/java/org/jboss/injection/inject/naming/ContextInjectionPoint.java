@@ -21,11 +21,11 @@
  */
 package org.jboss.injection.inject.naming;
 
-import org.jboss.injection.inject.spi.InjectionPoint;
 import org.jboss.logging.Logger;
 import org.jboss.util.naming.Util;
 
 import javax.naming.Context;
+import javax.naming.NameAlreadyBoundException;
 import javax.naming.NamingException;
 
 /**
@@ -34,10 +34,9 @@ import javax.naming.NamingException;
  * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
  * @param <V> The type of the object being injected
  */
-public class ContextInjectionPoint<V> implements InjectionPoint<Context, V>
+public class ContextInjectionPoint<V> extends AbstractContextInjectionPoint<V>
 {
    private static final Logger log = Logger.getLogger(ContextInjectionPoint.class);
-   private final String jndiName;
 
    /**
     * Construct a new ContextInjectionPoint with a target jndi name.
@@ -46,29 +45,46 @@ public class ContextInjectionPoint<V> implements InjectionPoint<Context, V>
     */
    public ContextInjectionPoint(final String jndiName)
    {
-      if(jndiName == null) throw new IllegalArgumentException("JNDI name can not be null");
-      this.jndiName = jndiName;
+      super(jndiName);
    }
 
-   /**
-    * {@inheritDoc}
-    */
-   public void set(final Context context, final V value)
+   @Override
+   protected void bindValue(final Context context, final V value)
    {
       try
       {
-         log.debugf("Binding [%s] at [%s] in context [%s]", value.toString().replace('\n', ' '), jndiName, context);
-         Util.rebind(context, jndiName, value);
+         if(log.isDebugEnabled())
+            log.debugf("Binding [%s] at [%s] in context [%s]", value.toString().replace('\n', ' '), getJndiName(), context);
+         rebind(context, value);
       }
       catch(NamingException e)
       {
-         throw new RuntimeException("Failed to bind value [" + value + "] into context [" + context + "] with jndi name [" + jndiName + "]", e);
+         throw new RuntimeException("Failed to bind value [" + value + "] into context [" + context + "] with jndi name [" + getJndiName() + "]", e);
+      }
+   }
+
+   private void rebind(final Context context, final V value) throws NamingException
+   {
+      // A concurrent binding may create a shared subcontext first, at most once per path component
+      int attempts = getJndiName().split("/").length;
+      while(true)
+      {
+         try
+         {
+            Util.rebind(context, getJndiName(), value);
+            return;
+         }
+         catch(NameAlreadyBoundException e)
+         {
+            if(--attempts <= 0)
+               throw e;
+         }
       }
    }
 
    @Override
    public String toString()
    {
-      return "ContextInjectionPoint{" + "jndiName='" + jndiName + '\'' + '}';
+      return "ContextInjectionPoint{" + "jndiName='" + getJndiName() + '\'' + '}';
    }
 }
@@ -21,6 +21,7 @@
  */
 package org.jboss.injection.inject.naming;
 
+import org.jboss.injection.inject.metrics.InjectionMetrics;
 import org.jboss.injection.inject.spi.ValueRetriever;
 
 import javax.naming.Context;
@@ -74,6 +75,25 @@ public class ContextValueRetriever<M> implements ValueRetriever<M>
     * @return The value at the jndi location
     */
    protected M lookup(final String jndiName)
+   {
+      final InjectionMetrics metrics = InjectionMetrics.getInstance();
+      if(!metrics.isEnabled())
+         return doLookup(jndiName);
+      final long start = System.nanoTime();
+      boolean failed = true;
+      try
+      {
+         final M dependency = doLookup(jndiName);
+         failed = false;
+         return dependency;
+      }
+      finally
+      {
+         metrics.recordLookup(jndiName, System.nanoTime() - start, failed);
+      }
+   }
+
+   private M doLookup(final String jndiName)
    {
       M dependency;
       try
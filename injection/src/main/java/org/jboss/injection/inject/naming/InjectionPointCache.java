@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import org.jboss.injection.inject.spi.InjectionPoint;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of resolved {@link InjectionPoint}s keyed by ClassLoader, injection target class name and
+ * injection target name.
+ * <p>
+ * The ClassLoader is held weakly, and so are the cached injection points since they reference the
+ * target class and therefore its ClassLoader.  A cache entry lives as long as some injector still
+ * uses the injection point, and an undeployed ClassLoader is never pinned by this cache.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionPointCache
+{
+   private final Map<ClassLoader, ConcurrentMap<String, WeakReference<InjectionPoint<Object, Object>>>> cache = new WeakHashMap<ClassLoader, ConcurrentMap<String, WeakReference<InjectionPoint<Object, Object>>>>();
+
+   private final AtomicLong hitCount = new AtomicLong();
+   private final AtomicLong missCount = new AtomicLong();
+
+   /**
+    * Get the cached injection point.
+    *
+    * @param cl The classloader used to load the injection target class
+    * @param injectionTargetClass The injection target class name
+    * @param injectionTargetName The injection target name
+    * @return The injection point or null if it is not cached
+    */
+   public InjectionPoint<Object, Object> get(ClassLoader cl, String injectionTargetClass, String injectionTargetName)
+   {
+      InjectionPoint<Object, Object> injectionPoint = null;
+      ConcurrentMap<String, WeakReference<InjectionPoint<Object, Object>>> injectionPoints = getInjectionPoints(cl, false);
+      if (injectionPoints != null)
+      {
+         WeakReference<InjectionPoint<Object, Object>> reference = injectionPoints.get(createKey(injectionTargetClass, injectionTargetName));
+         if (reference != null)
+         {
+            injectionPoint = reference.get();
+         }
+      }
+      if (injectionPoint == null)
+      {
+         missCount.incrementAndGet();
+      }
+      else
+      {
+         hitCount.incrementAndGet();
+      }
+      return injectionPoint;
+   }
+
+   /**
+    * Cache an injection point.
+    *
+    * @param cl The classloader used to load the injection target class
+    * @param injectionTargetClass The injection target class name
+    * @param injectionTargetName The injection target name
+    * @param injectionPoint The resolved injection point
+    */
+   public void put(ClassLoader cl, String injectionTargetClass, String injectionTargetName, InjectionPoint<Object, Object> injectionPoint)
+   {
+      getInjectionPoints(cl, true).put(createKey(injectionTargetClass, injectionTargetName), new WeakReference<InjectionPoint<Object, Object>>(injectionPoint));
+   }
+
+   /**
+    * Remove all the injection points cached for a classloader.
+    *
+    * @param cl The classloader
+    */
+   public void remove(ClassLoader cl)
+   {
+      synchronized (cache)
+      {
+         cache.remove(cl);
+      }
+   }
+
+   /**
+    * Remove all cached injection points and reset the statistics.
+    */
+   public void clear()
+   {
+      synchronized (cache)
+      {
+         cache.clear();
+      }
+      hitCount.set(0);
+      missCount.set(0);
+   }
+
+   /**
+    * Get the number of lookups that found a cached injection point.
+    *
+    * @return The hit count
+    */
+   public long getHitCount()
+   {
+      return hitCount.get();
+   }
+
+   /**
+    * Get the number of lookups that did not find a cached injection point.
+    *
+    * @return The miss count
+    */
+   public long getMissCount()
+   {
+      return missCount.get();
+   }
+
+   private ConcurrentMap<String, WeakReference<InjectionPoint<Object, Object>>> getInjectionPoints(ClassLoader cl, boolean create)
+   {
+      synchronized (cache)
+      {
+         ConcurrentMap<String, WeakReference<InjectionPoint<Object, Object>>> injectionPoints = cache.get(cl);
+         if (injectionPoints == null && create)
+         {
+            injectionPoints = new ConcurrentHashMap<String, WeakReference<InjectionPoint<Object, Object>>>();
+            cache.put(cl, injectionPoints);
+         }
+         return injectionPoints;
+      }
+   }
+
+   private static String createKey(String injectionTargetClass, String injectionTargetName)
+   {
+      return injectionTargetClass + '#' + injectionTargetName;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "InjectionPointCache{" + "hitCount=" + hitCount + ", missCount=" + missCount + '}';
+   }
+}
@@ -21,19 +21,36 @@
 */
 package org.jboss.injection.inject.naming;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import javassist.Modifier;
 
 import javax.naming.Context;
 
-import org.jboss.injection.inject.pojo.FieldInjectionPoint;
-import org.jboss.injection.inject.pojo.MethodInjectionPoint;
+import org.jboss.injection.inject.generated.AbstractGeneratedInjectionPoint;
+import org.jboss.injection.inject.generated.GeneratedInjectionPoints;
+import org.jboss.injection.inject.index.IndexedInjectionPoint;
+import org.jboss.injection.inject.index.IndexedMember;
+import org.jboss.injection.inject.index.InjectionTargetIndex;
+import org.jboss.injection.inject.pojo.AbstractAccessibleObjectBeanProperty;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.FusedInjector;
+import org.jboss.injection.inject.pojo.LazyValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.UnboxingValueRetriever;
+import org.jboss.injection.inject.spi.AsyncValueRetriever;
 import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.spi.PrimitiveInjectionPoint;
 import org.jboss.injection.inject.Injector;
 import org.jboss.injection.inject.spi.ValueRetriever;
 import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
@@ -61,6 +78,28 @@ public class InjectionProcessor
 {
    
    private List<EnvironmentMetaDataVisitor<ResourceInjectionMetaData>> visitors;
+
+   private boolean fuseInjectors;
+
+   private InjectionPointCache injectionPointCache = new InjectionPointCache();
+
+   private boolean cacheLookups;
+
+   // caching retrievers created for each ENC, they listen for naming events until the ENC is closed
+   private final Map<Context, List<CachingContextValueRetriever<Object>>> cachingValueRetrievers = new IdentityHashMap<Context, List<CachingContextValueRetriever<Object>>>();
+
+   private Set<String> lazyTypes = Collections.emptySet();
+
+   private boolean indexedTargets;
+
+   private final Map<ClassLoader, InjectionTargetIndex> indexes = new WeakHashMap<ClassLoader, InjectionTargetIndex>();
+
+   private boolean generatedInjectionPoints = false;
+
+   private boolean virtualThreads = VirtualThreads.isEnabledByDefault();
+
+   // names of the target classes known to have no generated injection points, per classloader
+   private final Map<ClassLoader, Set<String>> missingGeneratedInjectionPoints = new WeakHashMap<ClassLoader, Set<String>>();
    
    public InjectionProcessor()
    {
@@ -85,6 +124,10 @@ public class InjectionProcessor
    public List<Injector<Object>> process(Context enc, ClassLoader cl, Environment environment)
          throws Exception
    {
+      if (this.fuseInjectors)
+      {
+         return this.processFused(enc, cl, environment);
+      }
       List<Injector<Object>> injectors = new ArrayList<Injector<Object>>();
       for (EnvironmentMetaDataVisitor<ResourceInjectionMetaData> visitor : this.visitors)
       {
@@ -94,6 +137,248 @@ public class InjectionProcessor
       return injectors;
    }
 
+   /**
+    * Process a <code>environment</code> for injection targets and creates a single
+    * {@link FusedInjector} for each run of consecutive injection targets declared by the same class.
+    * The injections are performed in the same order as by the unfused injectors.
+    *
+    * @param enc The ENC of the component to which the <code>environment</code> belongs
+    * @param cl The classloader of the component being processed
+    * @param environment Environment being processed for injection targets
+    * @return The injectors for the environment, in injection order
+    * @throws Exception
+    */
+   private List<Injector<Object>> processFused(Context enc, ClassLoader cl, Environment environment) throws Exception
+   {
+      List<Injector<Object>> injectors = new ArrayList<Injector<Object>>();
+      Class<?> currentClass = null;
+      List<FusedInjector.Injection<Object, ?>> currentInjections = null;
+      for (EnvironmentMetaDataVisitor<ResourceInjectionMetaData> visitor : this.visitors)
+      {
+         Iterable<ResourceInjectionMetaData> injections = visitor.getMetaData(environment);
+         if (injections == null)
+         {
+            continue;
+         }
+         for (ResourceInjectionMetaData injection : injections)
+         {
+            Set<ResourceInjectionTargetMetaData> injectionTargets = injection.getInjectionTargets();
+            if (injectionTargets == null || injectionTargets.isEmpty())
+            {
+               continue;
+            }
+            ValueRetriever<Object> encValRetriever = createValueRetriever(enc, injection.getName());
+            for (ResourceInjectionTargetMetaData injectionTarget : injectionTargets)
+            {
+               InjectionPoint<Object, Object> injectionPoint = getInjectionPoint(cl, injectionTarget);
+               if (injectionPoint instanceof IndexedInjectionPoint)
+               {
+                  // fusing composes the member handles, so indexed targets are resolved now
+                  injectionPoint = ((IndexedInjectionPoint<Object, Object>) injectionPoint).resolve();
+               }
+               Class<?> targetClass = getDeclaringClass(injectionPoint);
+               if (targetClass != currentClass)
+               {
+                  if (currentInjections != null)
+                  {
+                     injectors.add(new FusedInjector<Object>(currentClass, currentInjections));
+                  }
+                  currentClass = targetClass;
+                  currentInjections = new ArrayList<FusedInjector.Injection<Object, ?>>();
+               }
+               currentInjections.add(new FusedInjector.Injection<Object, Object>(injectionPoint, getValueRetriever(injectionPoint, enc, injection.getName(), encValRetriever)));
+            }
+         }
+      }
+      if (currentInjections != null)
+      {
+         injectors.add(new FusedInjector<Object>(currentClass, currentInjections));
+      }
+      return injectors;
+   }
+
+   /**
+    * Get the cache of resolved injection points.
+    *
+    * @return The injection point cache or null if caching is disabled
+    */
+   public InjectionPointCache getInjectionPointCache()
+   {
+      return injectionPointCache;
+   }
+
+   /**
+    * Set the cache of resolved injection points.  A cache can be shared between processors
+    * so injection targets of common classes are only resolved once.
+    *
+    * @param injectionPointCache The injection point cache or null to disable caching
+    */
+   public void setInjectionPointCache(InjectionPointCache injectionPointCache)
+   {
+      this.injectionPointCache = injectionPointCache;
+   }
+
+   /**
+    * Whether the values looked up from the ENC are cached.
+    *
+    * @return true if lookups are cached
+    */
+   public boolean isCacheLookups()
+   {
+      return cacheLookups;
+   }
+
+   /**
+    * Set whether the values looked up from the ENC should be cached by a {@link CachingContextValueRetriever}
+    * instead of being looked up for every injection.  The retrievers must be closed with {@link #close(Context)}
+    * when the component is undeployed.  Disabled by default.
+    *
+    * @param cacheLookups true to cache lookups
+    */
+   public void setCacheLookups(boolean cacheLookups)
+   {
+      this.cacheLookups = cacheLookups;
+   }
+
+   /**
+    * Close the {@link CachingContextValueRetriever}s created for the injectors of an ENC, removing their
+    * naming listeners.  The component owning the ENC must call this when it is undeployed if lookups are cached.
+    *
+    * @param enc The ENC {@link Context} passed to {@link #process(Context, ClassLoader, Environment)}
+    */
+   public void close(Context enc)
+   {
+      List<CachingContextValueRetriever<Object>> valueRetrievers;
+      synchronized (this.cachingValueRetrievers)
+      {
+         valueRetrievers = this.cachingValueRetrievers.remove(enc);
+      }
+      if (valueRetrievers == null)
+      {
+         return;
+      }
+      for (CachingContextValueRetriever<Object> valueRetriever : valueRetrievers)
+      {
+         valueRetriever.close();
+      }
+   }
+
+   /**
+    * Get the names of the interface types which are injected lazily.
+    *
+    * @return The lazy type names
+    */
+   public Set<String> getLazyTypes()
+   {
+      return Collections.unmodifiableSet(lazyTypes);
+   }
+
+   /**
+    * Set the names of the interface types which are injected lazily, such as <code>javax.persistence.EntityManager</code>.
+    * Injection targets declared with one of these types receive a proxy and the ENC value is only looked up
+    * when the proxy is first used.
+    *
+    * @param lazyTypes The lazy type names
+    */
+   public void setLazyTypes(Set<String> lazyTypes)
+   {
+      this.lazyTypes = lazyTypes == null ? Collections.<String>emptySet() : new HashSet<String>(lazyTypes);
+   }
+
+   /**
+    * Whether injection targets are planned from an {@link InjectionTargetIndex}.
+    *
+    * @return true if the injection target index is used
+    */
+   public boolean isIndexedTargets()
+   {
+      return indexedTargets;
+   }
+
+   /**
+    * Set whether injection targets should be planned from the {@link InjectionTargetIndex} found in the component's
+    * classloader.  Targets found in the index get an {@link IndexedInjectionPoint} and their class is not loaded
+    * until the first injection, targets missing from the index fall back to loading and scanning the class.
+    * Disabled by default.
+    *
+    * @param indexedTargets true to use the injection target index
+    */
+   public void setIndexedTargets(boolean indexedTargets)
+   {
+      this.indexedTargets = indexedTargets;
+   }
+
+   /**
+    * Whether injection points generated ahead of time are used.
+    *
+    * @return true if generated injection points are used
+    */
+   public boolean isGeneratedInjectionPoints()
+   {
+      return generatedInjectionPoints;
+   }
+
+   /**
+    * Set whether the {@link GeneratedInjectionPoints} produced by the jboss-injection-maven-plugin are used when
+    * they are present in the component's classloader.  Generated injection points set values with plain field
+    * assignments and setter calls, so the target class is not scanned and no reflection is used.  Targets without
+    * a generated injection point fall back to the other strategies.  Disabled by default, as the generated class
+    * is probed with a class load for every target class; enable it for modules built with the plugin.
+    *
+    * @param generatedInjectionPoints true to use generated injection points
+    */
+   public void setGeneratedInjectionPoints(boolean generatedInjectionPoints)
+   {
+      this.generatedInjectionPoints = generatedInjectionPoints;
+   }
+
+   /**
+    * Whether ENC lookups are performed on virtual threads.
+    *
+    * @return true if the virtual thread execution mode is enabled
+    */
+   public boolean isVirtualThreads()
+   {
+      return virtualThreads;
+   }
+
+   /**
+    * Set whether the injectors should look up their ENC values on virtual threads, one per lookup.  The injectors
+    * then use an {@link AsyncContextValueRetriever}, so running them through an {@link org.jboss.injection.inject.AsyncInjector}
+    * overlaps all the lookups of a target.  Falls back to synchronous lookups on JVMs without virtual threads, and
+    * does not apply when lookups are cached.  Defaults to the value of the {@value VirtualThreads#ENABLED_PROPERTY}
+    * system property.
+    *
+    * @param virtualThreads true to look up values on virtual threads
+    */
+   public void setVirtualThreads(boolean virtualThreads)
+   {
+      this.virtualThreads = virtualThreads;
+   }
+
+   /**
+    * Whether consecutive injections into the same target class are fused into a single {@link FusedInjector}.
+    *
+    * @return true if injectors are fused
+    */
+   public boolean isFuseInjectors()
+   {
+      return fuseInjectors;
+   }
+
+   /**
+    * Set whether consecutive injections into the same target class should be fused into a single {@link FusedInjector}
+    * instead of returning one {@link Injector} per injection target.  The injection order is not changed.
+    * A fused injector still retrieves non constant values through an interface call, see {@link FusedInjector}.
+    * Disabled by default.
+    *
+    * @param fuseInjectors true to fuse injectors
+    */
+   public void setFuseInjectors(boolean fuseInjectors)
+   {
+      this.fuseInjectors = fuseInjectors;
+   }
+
 
    /**
     * Creates a list of {@link Injector}s for the passed injections.
@@ -134,7 +419,7 @@ public class InjectionProcessor
          // get the enc name
          String encName = injection.getName();
          // create a ENC retriever for the enc name and the ENC context
-         ValueRetriever<Object> encValRetriever = new ContextValueRetriever<Object>(enc, encName);
+         ValueRetriever<Object> encValRetriever = createValueRetriever(enc, encName);
          // get the injection target
          Set<ResourceInjectionTargetMetaData> injectionTargets = injection.getInjectionTargets();
          if (injectionTargets == null || injectionTargets.isEmpty())
@@ -143,13 +428,10 @@ public class InjectionProcessor
          }
          for (ResourceInjectionTargetMetaData injectionTarget : injectionTargets)
          {
-            Class<?> targetClass = cl.loadClass(injectionTarget.getInjectionTargetClass());
-            // field/method name
-            String targetName = injectionTarget.getInjectionTargetName();
             // find the correct injection point (field or method)
-            InjectionPoint<Object, Object> injectionPoint = getInjectionPoint(targetClass, targetName);
+            InjectionPoint<Object, Object> injectionPoint = getInjectionPoint(cl, injectionTarget);
             // create an injector
-            Injector<Object> injector = new Injector<Object>(injectionPoint, encValRetriever);
+            Injector<Object> injector = new Injector<Object>(injectionPoint, getValueRetriever(injectionPoint, enc, encName, encValRetriever));
             
             // add this injector to the injectors to be returned
             injectors.add(injector);
@@ -158,6 +440,234 @@ public class InjectionProcessor
       return injectors;
    }
 
+   /**
+    * Create the {@link ValueRetriever} used to fetch the value bound at <code>encName</code>.
+    *
+    * @param enc The ENC {@link Context} of the component being processed
+    * @param encName The ENC jndi name
+    * @return The value retriever
+    */
+   private ValueRetriever<Object> createValueRetriever(Context enc, String encName)
+   {
+      if (this.cacheLookups)
+      {
+         CachingContextValueRetriever<Object> valueRetriever = new CachingContextValueRetriever<Object>(enc, encName);
+         synchronized (this.cachingValueRetrievers)
+         {
+            List<CachingContextValueRetriever<Object>> valueRetrievers = this.cachingValueRetrievers.get(enc);
+            if (valueRetrievers == null)
+            {
+               valueRetrievers = new ArrayList<CachingContextValueRetriever<Object>>();
+               this.cachingValueRetrievers.put(enc, valueRetrievers);
+            }
+            valueRetrievers.add(valueRetriever);
+         }
+         return valueRetriever;
+      }
+      if (this.virtualThreads && VirtualThreads.isAvailable())
+      {
+         return new AsyncContextValueRetriever<Object>(enc, encName, VirtualThreads.getExecutor());
+      }
+      return new ContextValueRetriever<Object>(enc, encName);
+   }
+
+   /**
+    * Get the {@link ValueRetriever} used for a specific injection point.  Injection points with a
+    * supported primitive type get the ENC value retriever wrapped in an {@link UnboxingValueRetriever}, so the boxed
+    * value looked up in the ENC is unboxed once and set through the primitive setter of the injection point.
+    * If the injection point's type is one of the configured lazy types the retriever is wrapped in a
+    * {@link LazyValueRetriever}.
+    *
+    * @param injectionPoint The injection point
+    * @param enc The ENC {@link Context} of the component being processed
+    * @param encName The ENC jndi name
+    * @param encValRetriever The ENC value retriever
+    * @return The value retriever for the injection point
+    */
+   @SuppressWarnings("unchecked")
+   private ValueRetriever<Object> getValueRetriever(InjectionPoint<Object, Object> injectionPoint, Context enc, String encName,
+         ValueRetriever<Object> encValRetriever)
+   {
+      if (injectionPoint instanceof PrimitiveInjectionPoint
+            && ((PrimitiveInjectionPoint<Object, Object>) injectionPoint).getPrimitiveType() != null
+            && !(encValRetriever instanceof AsyncValueRetriever))
+      {
+         // async values are set boxed by the AsyncInjector, the injection point unboxes them
+         return new UnboxingValueRetriever<Object>(encValRetriever);
+      }
+      if (this.lazyTypes.isEmpty())
+      {
+         return encValRetriever;
+      }
+      if (injectionPoint instanceof IndexedInjectionPoint
+            && !this.lazyTypes.contains(((IndexedInjectionPoint<Object, Object>) injectionPoint).getValueTypeName()))
+      {
+         // avoid loading the value type of indexed targets that can not be lazy
+         return encValRetriever;
+      }
+      Class<?> valueType = getValueType(injectionPoint);
+      if (!valueType.isInterface() || !this.lazyTypes.contains(valueType.getName()))
+      {
+         return encValRetriever;
+      }
+      return new LazyValueRetriever<Object>((Class<Object>) valueType, encValRetriever);
+   }
+
+   /**
+    * Get the {@link InjectionPoint} for the passed <code>injectionTarget</code>, using the
+    * {@link InjectionPointCache} to skip loading and scanning the target class if it was already resolved.
+    * Generated injection points are used if present, and if indexed targets are enabled the
+    * {@link InjectionTargetIndex} is consulted before loading the class.
+    *
+    * @param cl The classloader of the component being processed
+    * @param injectionTarget The injection target
+    * @return The injection point
+    * @throws ClassNotFoundException if the injection target class can not be loaded
+    * @throws IOException if the injection target index can not be read
+    */
+   private InjectionPoint<Object, Object> getInjectionPoint(ClassLoader cl, ResourceInjectionTargetMetaData injectionTarget)
+         throws ClassNotFoundException, IOException
+   {
+      String className = injectionTarget.getInjectionTargetClass();
+      // field/method name
+      String targetName = injectionTarget.getInjectionTargetName();
+      InjectionPointCache cache = this.injectionPointCache;
+      InjectionPoint<Object, Object> injectionPoint = cache != null ? cache.get(cl, className, targetName) : null;
+      if (injectionPoint == null && this.generatedInjectionPoints)
+      {
+         injectionPoint = getGeneratedInjectionPoint(cl, className, targetName);
+         if (injectionPoint != null && cache != null)
+         {
+            cache.put(cl, className, targetName, injectionPoint);
+         }
+      }
+      if (injectionPoint == null && this.indexedTargets)
+      {
+         IndexedMember member = getIndex(cl).lookup(className, targetName);
+         if (member != null)
+         {
+            injectionPoint = new IndexedInjectionPoint<Object, Object>(cl, member);
+            if (cache != null)
+            {
+               cache.put(cl, className, targetName, injectionPoint);
+            }
+         }
+      }
+      if (injectionPoint == null)
+      {
+         Class<?> targetClass = cl.loadClass(className);
+         injectionPoint = getInjectionPoint(targetClass, targetName);
+         if (cache != null)
+         {
+            cache.put(cl, className, targetName, injectionPoint);
+         }
+      }
+      return injectionPoint;
+   }
+
+   /**
+    * Get the generated injection point for an injection target.
+    *
+    * @param cl The classloader of the component being processed
+    * @param className The injection target class name
+    * @param targetName The injection target name
+    * @return The generated injection point or null if there is none
+    */
+   private InjectionPoint<Object, Object> getGeneratedInjectionPoint(ClassLoader cl, String className, String targetName)
+   {
+      synchronized (this.missingGeneratedInjectionPoints)
+      {
+         Set<String> missing = this.missingGeneratedInjectionPoints.get(cl);
+         if (missing != null && missing.contains(className))
+         {
+            return null;
+         }
+      }
+      GeneratedInjectionPoints generated;
+      try
+      {
+         generated = Class.forName(className + GeneratedInjectionPoints.CLASS_SUFFIX, true, cl).asSubclass(GeneratedInjectionPoints.class).newInstance();
+      }
+      catch (ClassNotFoundException e)
+      {
+         synchronized (this.missingGeneratedInjectionPoints)
+         {
+            Set<String> missing = this.missingGeneratedInjectionPoints.get(cl);
+            if (missing == null)
+            {
+               missing = new HashSet<String>();
+               this.missingGeneratedInjectionPoints.put(cl, missing);
+            }
+            missing.add(className);
+         }
+         return null;
+      }
+      catch (InstantiationException e)
+      {
+         throw new RuntimeException("Failed to create generated injection points for " + className, e);
+      }
+      catch (IllegalAccessException e)
+      {
+         throw new RuntimeException("Failed to create generated injection points for " + className, e);
+      }
+      return generated.getInjectionPoint(targetName);
+   }
+
+   /**
+    * Get the class declaring the member of an injection point.
+    *
+    * @param injectionPoint The injection point
+    * @return The declaring class
+    */
+   private static Class<?> getDeclaringClass(InjectionPoint<Object, Object> injectionPoint)
+   {
+      if (injectionPoint instanceof AbstractGeneratedInjectionPoint)
+      {
+         return ((AbstractGeneratedInjectionPoint<Object, Object>) injectionPoint).getDeclaringClass();
+      }
+      return ((AbstractAccessibleObjectBeanProperty<?, ?, ?>) injectionPoint).getDeclaringClass();
+   }
+
+   /**
+    * Get the value type of an injection point.
+    *
+    * @param injectionPoint The injection point
+    * @return The field type or setter parameter type
+    */
+   private static Class<?> getValueType(InjectionPoint<Object, Object> injectionPoint)
+   {
+      if (injectionPoint instanceof AbstractGeneratedInjectionPoint)
+      {
+         return ((AbstractGeneratedInjectionPoint<Object, Object>) injectionPoint).getValueType();
+      }
+      if (injectionPoint instanceof IndexedInjectionPoint)
+      {
+         return ((IndexedInjectionPoint<Object, Object>) injectionPoint).getValueType();
+      }
+      return ((AbstractAccessibleObjectBeanProperty<?, ?, ?>) injectionPoint).getValueType();
+   }
+
+   /**
+    * Get the {@link InjectionTargetIndex} of a classloader, loading it on first use.
+    *
+    * @param cl The classloader of the component being processed
+    * @return The index, which is empty if the classloader has none
+    * @throws IOException if the index can not be read
+    */
+   private InjectionTargetIndex getIndex(ClassLoader cl) throws IOException
+   {
+      synchronized (this.indexes)
+      {
+         InjectionTargetIndex index = this.indexes.get(cl);
+         if (index == null)
+         {
+            index = InjectionTargetIndex.load(cl);
+            this.indexes.put(cl, index);
+         }
+         return index;
+      }
+   }
+
    /**
     * Find the correct {@link InjectionPoint} for the passed <code>injectionTargetClass</code>
     * and the <code>injectionTargetName</code>
@@ -186,7 +696,7 @@ public class InjectionProcessor
          }
          if (m.getName().equals(methodName))
          {
-            return new MethodInjectionPoint<Object, Object>(m);
+            return new MethodHandleInjectionPoint<Object, Object>(m);
          }
       }
       // the target is not a method, so let's try a field
@@ -194,7 +704,7 @@ public class InjectionProcessor
       try
       {
          Field field = injectionTargetClass.getDeclaredField(injectionTargetName);
-         return new FieldInjectionPoint<Object, Object>(field);
+         return FieldHandleInjectionPoint.<Object, Object>create(field);
       }
       catch (SecurityException e)
       {
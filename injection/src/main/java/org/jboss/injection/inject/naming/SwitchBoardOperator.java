@@ -1,23 +1,84 @@
 package org.jboss.injection.inject.naming;
 
 import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.spi.InjectionPoint;
 import org.jboss.logging.Logger;
 
 import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+import javax.naming.NameParser;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Populates a Context based on a set of Injectors
+ * <p>
+ * When batch binding is enabled the subcontexts needed by the bindings are created once up front by a
+ * {@link BatchContextBinder}.
+ * </p>
+ * <p>
+ * Operators with more injectors than the parallel threshold bind their entries concurrently
+ * on a bounded executor.  If any injector fails, the failure of the first failing injector in list
+ * order is thrown, which is the same exception a sequential start would have thrown.  Injectors binding
+ * the same jndi name are run in list order by the same task, so the last one still wins.
+ * </p>
+ * <p>
+ * In the virtual thread execution mode every start is parallel, whatever the threshold, and binds each entry on
+ * its own virtual thread instead of partitioning the injectors across a platform thread pool, which suits naming
+ * implementations that block.  On JVMs without virtual threads the mode falls back to the threshold and the
+ * bounded executor.
+ * </p>
+ * <p>
+ * Stopping the operator unbinds the names bound by its {@link ContextInjectionPoint}s, deepest names first, and
+ * destroys the subcontexts left empty.  Names bound by several operators are reference counted by a
+ * {@link ContextBindingRegistry} and only unbound when the last of those operators stops.  Names which were
+ * already bound in the context before the operator started are left bound.
+ * </p>
  *
  * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
  */
 public class SwitchBoardOperator
 {
    private static final Logger log = Logger.getLogger(SwitchBoardOperator.class);
-   
+
+   /**
+    * The default number of injectors above which the operator starts in parallel
+    */
+   public static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+
+   private static final int PARTITIONS_PER_THREAD = 4;
+
+   private static volatile ExecutorService defaultExecutor;
+
    private final Context context;
    private final List<Injector<Context>> injectors;
 
+   private ExecutorService executor;
+   private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+   private boolean batchBinding;
+   private boolean freshContext;
+   private boolean virtualThreads = VirtualThreads.isEnabledByDefault();
+   private ContextBindingRegistry bindingRegistry = ContextBindingRegistry.getDefault();
+
+   // The names acquired in the binding registry by start, or null if not started
+   private List<String> boundNames;
+
    /**
     * Create with a context and set of injectors
     *
@@ -39,12 +100,458 @@ public class SwitchBoardOperator
    public void start()
    {
       log.debugf("Executing %s", this);
+      boundNames = bindingRegistry.acquire(context, getBoundNames());
+      try
+      {
+         bind();
+      }
+      catch(RuntimeException e)
+      {
+         stop();
+         throw e;
+      }
+      catch(Error e)
+      {
+         stop();
+         throw e;
+      }
+   }
+
+   /**
+    * Called when this bean is undeployed.  Unbinds every name no other operator still references and
+    * destroys the subcontexts left empty.
+    */
+   public void stop()
+   {
+      final List<String> names = boundNames;
+      if(names == null)
+         return;
+      boundNames = null;
+      final List<String> released = bindingRegistry.release(context, names);
+      log.debugf("Unbinding %d of %d names for %s", released.size(), names.size(), this);
+      if(released.isEmpty())
+         return;
+      try
+      {
+         unbind(released);
+      }
+      catch(NamingException e)
+      {
+         log.warn("Failed to unbind names from context [" + context + "] for " + this, e);
+      }
+   }
+
+   private List<String> getBoundNames()
+   {
+      final Set<String> names = new LinkedHashSet<String>();
+      for(Injector<Context> injector : injectors)
+      {
+         final InjectionPoint<Context, ?> injectionPoint = injector.getInjectionPoint();
+         if(injectionPoint instanceof ContextInjectionPoint)
+            names.add(((ContextInjectionPoint<?>) injectionPoint).getJndiName());
+      }
+      return new ArrayList<String>(names);
+   }
+
+   /**
+    * Unbind names in reverse path order, resolving each parent subcontext once, then destroy the
+    * subcontexts which are left empty, deepest first.
+    *
+    * @param jndiNames The names to unbind
+    * @throws NamingException if the names can not be parsed
+    */
+   private void unbind(final List<String> jndiNames) throws NamingException
+   {
+      final NameParser nameParser = context.getNameParser("");
+      final List<Name> names = new ArrayList<Name>(jndiNames.size());
+      for(String jndiName : jndiNames)
+         names.add(nameParser.parse(jndiName));
+      Collections.sort(names, Collections.reverseOrder());
+
+      final Map<Name, Context> subcontexts = new HashMap<Name, Context>();
+      final Set<Name> parents = new TreeSet<Name>(Collections.reverseOrder());
+      for(Name name : names)
+      {
+         final Name parentName = name.getPrefix(name.size() - 1);
+         try
+         {
+            getSubcontext(parentName, subcontexts).unbind(name.get(name.size() - 1));
+         }
+         catch(NameNotFoundException e)
+         {
+            // Already removed along with its subcontext
+            continue;
+         }
+         catch(NamingException e)
+         {
+            log.warn("Failed to unbind [" + name + "] from context [" + context + "]", e);
+            continue;
+         }
+         for(Name parent = parentName; !parent.isEmpty(); parent = parent.getPrefix(parent.size() - 1))
+            parents.add(parent);
+      }
+
+      for(Name parent : parents)
+      {
+         try
+         {
+            final Context grandParent = getSubcontext(parent.getPrefix(parent.size() - 1), subcontexts);
+            final String atom = parent.get(parent.size() - 1);
+            if(isEmpty(grandParent, atom))
+               grandParent.destroySubcontext(atom);
+         }
+         catch(NamingException e)
+         {
+            log.debugf("Not removing subcontext [%s] from context [%s]: %s", parent, context, e);
+         }
+      }
+   }
+
+   private Context getSubcontext(final Name name, final Map<Name, Context> subcontexts) throws NamingException
+   {
+      if(name.isEmpty())
+         return context;
+      Context subcontext = subcontexts.get(name);
+      if(subcontext == null)
+      {
+         subcontext = (Context) getSubcontext(name.getPrefix(name.size() - 1), subcontexts).lookup(name.get(name.size() - 1));
+         subcontexts.put(name, subcontext);
+      }
+      return subcontext;
+   }
+
+   private static boolean isEmpty(final Context parent, final String atom) throws NamingException
+   {
+      final NamingEnumeration<?> children = parent.list(atom);
+      try
+      {
+         return !children.hasMore();
+      }
+      finally
+      {
+         children.close();
+      }
+   }
+
+   private void bind()
+   {
+      List<Injector<Context>> injectors = this.injectors;
+      if(batchBinding)
+      {
+         try
+         {
+            injectors = new BatchContextBinder(context, freshContext).prepare(injectors);
+         }
+         catch(NamingException e)
+         {
+            throw new RuntimeException("Failed to create subcontexts in context [" + context + "] for " + this, e);
+         }
+      }
+      if(injectors.size() > 1 && (isVirtualThreadMode() || injectors.size() > parallelThreshold))
+      {
+         startParallel(injectors);
+         return;
+      }
       for(Injector<Context> injection : injectors)
       {
          injection.inject(context);
       }
    }
 
+   private boolean isVirtualThreadMode()
+   {
+      return virtualThreads && executor == null && VirtualThreads.isAvailable();
+   }
+
+   /**
+    * Run the injectors concurrently.  The injectors are split into contiguous partitions which
+    * are each run in order.  An injector binding a jndi name already bound by an earlier injector is
+    * run after it by the partition of the first injector binding that name.
+    *
+    * @param injectors The injectors to run
+    */
+   protected void startParallel(final List<Injector<Context>> injectors)
+   {
+      final ExecutorService executor;
+      final int partitionSize;
+      if(isVirtualThreadMode())
+      {
+         // One virtual thread per binding
+         executor = VirtualThreads.getExecutor();
+         partitionSize = 1;
+      }
+      else
+      {
+         executor = getExecutor();
+         final int threads = Runtime.getRuntime().availableProcessors();
+         partitionSize = Math.max(1, (injectors.size() + threads * PARTITIONS_PER_THREAD - 1) / (threads * PARTITIONS_PER_THREAD));
+      }
+      log.debugf("Binding %d entries in parallel with partitions of %d", injectors.size(), partitionSize);
+
+      final List<List<Integer>> partitions = new ArrayList<List<Integer>>();
+      final Map<String, List<Integer>> partitionsByName = new HashMap<String, List<Integer>>();
+      List<Integer> partition = null;
+      for(int i = 0; i < injectors.size(); i++)
+      {
+         final InjectionPoint<Context, ?> injectionPoint = injectors.get(i).getInjectionPoint();
+         final String jndiName = injectionPoint instanceof AbstractContextInjectionPoint
+            ? ((AbstractContextInjectionPoint<?>) injectionPoint).getJndiName() : null;
+         final List<Integer> duplicatePartition = jndiName != null ? partitionsByName.get(jndiName) : null;
+         if(duplicatePartition != null)
+         {
+            duplicatePartition.add(i);
+            continue;
+         }
+         if(partition == null || partition.size() >= partitionSize)
+         {
+            partition = new ArrayList<Integer>(partitionSize);
+            partitions.add(partition);
+         }
+         partition.add(i);
+         if(jndiName != null)
+            partitionsByName.put(jndiName, partition);
+      }
+
+      final List<Future<Failure>> futures = new ArrayList<Future<Failure>>(partitions.size());
+      for(List<Integer> indexes : partitions)
+         futures.add(executor.submit(new InjectionTask(injectors, indexes)));
+
+      Failure firstFailure = null;
+      for(Future<Failure> future : futures)
+      {
+         final Failure failure;
+         try
+         {
+            failure = future.get();
+         }
+         catch(InterruptedException e)
+         {
+            for(Future<Failure> remaining : futures)
+            {
+               remaining.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting " + this, e);
+         }
+         catch(ExecutionException e)
+         {
+            // Tasks catch everything thrown by the injectors
+            throw new RuntimeException("Failed to start " + this, e.getCause());
+         }
+         if(failure != null && (firstFailure == null || failure.index < firstFailure.index))
+            firstFailure = failure;
+      }
+      if(firstFailure == null)
+         return;
+      if(firstFailure.cause instanceof RuntimeException)
+         throw (RuntimeException) firstFailure.cause;
+      if(firstFailure.cause instanceof Error)
+         throw (Error) firstFailure.cause;
+      throw new RuntimeException(firstFailure.cause);
+   }
+
+   /**
+    * Get the executor used to bind in parallel.  Defaults to a shared pool bounded by the number of processors.
+    *
+    * @return The executor
+    */
+   public ExecutorService getExecutor()
+   {
+      if(executor != null)
+         return executor;
+      return getDefaultExecutor();
+   }
+
+   /**
+    * Set the executor used to bind in parallel.
+    *
+    * @param executor The executor
+    */
+   public void setExecutor(final ExecutorService executor)
+   {
+      this.executor = executor;
+   }
+
+   /**
+    * Get the number of injectors above which the operator starts in parallel
+    *
+    * @return The parallel threshold
+    */
+   public int getParallelThreshold()
+   {
+      return parallelThreshold;
+   }
+
+   /**
+    * Set the number of injectors above which the operator starts in parallel.  Use 0 to always start in parallel
+    * and {@link Integer#MAX_VALUE} to never start in parallel.  Ignored in the virtual thread execution mode, which
+    * always starts in parallel.
+    *
+    * @param parallelThreshold The parallel threshold
+    */
+   public void setParallelThreshold(final int parallelThreshold)
+   {
+      if(parallelThreshold < 0) throw new IllegalArgumentException("Parallel threshold can not be negative");
+      this.parallelThreshold = parallelThreshold;
+   }
+
+   /**
+    * Whether the subcontexts are created once for all bindings by a {@link BatchContextBinder}
+    *
+    * @return true if batch binding is enabled
+    */
+   public boolean isBatchBinding()
+   {
+      return batchBinding;
+   }
+
+   /**
+    * Set whether the subcontexts are created once for all bindings by a {@link BatchContextBinder}.
+    * Disabled by default.
+    *
+    * @param batchBinding true to enable batch binding
+    */
+   public void setBatchBinding(final boolean batchBinding)
+   {
+      this.batchBinding = batchBinding;
+   }
+
+   /**
+    * Whether the context is known to be freshly created
+    *
+    * @return true if the context is fresh
+    */
+   public boolean isFreshContext()
+   {
+      return freshContext;
+   }
+
+   /**
+    * Set whether the context is known to be freshly created and empty.  When batch binding a fresh context,
+    * subcontexts are created without being looked up first and values are bound instead of rebound.
+    *
+    * @param freshContext true if the context is fresh
+    */
+   public void setFreshContext(final boolean freshContext)
+   {
+      this.freshContext = freshContext;
+   }
+
+   /**
+    * Whether the virtual thread execution mode is enabled
+    *
+    * @return true if parallel starts bind on virtual threads
+    */
+   public boolean isVirtualThreads()
+   {
+      return virtualThreads;
+   }
+
+   /**
+    * Set whether every start should be parallel and bind each entry on its own virtual thread, whatever the
+    * parallel threshold.  Only applies when no executor has been set and the JVM supports virtual threads, see
+    * {@link VirtualThreads}.  Defaults to the value of the
+    * {@value VirtualThreads#ENABLED_PROPERTY} system property.
+    *
+    * @param virtualThreads true to bind on virtual threads
+    */
+   public void setVirtualThreads(final boolean virtualThreads)
+   {
+      this.virtualThreads = virtualThreads;
+   }
+
+   /**
+    * Get the registry used to reference count the names bound by this operator
+    *
+    * @return The binding registry
+    */
+   public ContextBindingRegistry getBindingRegistry()
+   {
+      return bindingRegistry;
+   }
+
+   /**
+    * Set the registry used to reference count the names bound by this operator.  Defaults to the shared
+    * {@link ContextBindingRegistry#getDefault()} registry.
+    *
+    * @param bindingRegistry The binding registry
+    */
+   public void setBindingRegistry(final ContextBindingRegistry bindingRegistry)
+   {
+      if(bindingRegistry == null) throw new IllegalArgumentException("Binding registry can not be null");
+      this.bindingRegistry = bindingRegistry;
+   }
+
+   private static ExecutorService getDefaultExecutor()
+   {
+      ExecutorService executor = defaultExecutor;
+      if(executor == null)
+      {
+         synchronized(SwitchBoardOperator.class)
+         {
+            executor = defaultExecutor;
+            if(executor == null)
+            {
+               executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new OperatorThreadFactory());
+               defaultExecutor = executor;
+            }
+         }
+      }
+      return executor;
+   }
+
+   private class InjectionTask implements Callable<Failure>
+   {
+      private final List<Injector<Context>> injectors;
+      private final List<Integer> indexes;
+
+      private InjectionTask(final List<Injector<Context>> injectors, final List<Integer> indexes)
+      {
+         this.injectors = injectors;
+         this.indexes = indexes;
+      }
+
+      public Failure call()
+      {
+         for(int i : indexes)
+         {
+            try
+            {
+               injectors.get(i).inject(context);
+            }
+            catch(Throwable t)
+            {
+               return new Failure(i, t);
+            }
+         }
+         return null;
+      }
+   }
+
+   private static class Failure
+   {
+      private final int index;
+      private final Throwable cause;
+
+      private Failure(final int index, final Throwable cause)
+      {
+         this.index = index;
+         this.cause = cause;
+      }
+   }
+
+   private static class OperatorThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger count = new AtomicInteger();
+
+      public Thread newThread(final Runnable r)
+      {
+         final Thread thread = new Thread(r, "SwitchBoardOperator-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
    @Override
    public String toString()
    {
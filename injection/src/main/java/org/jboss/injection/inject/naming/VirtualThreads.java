@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.naming;
+
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to a virtual thread per task executor on JVMs which support virtual threads (JDK 21 and later).  Blocking
+ * naming operations submitted to it each run on their own virtual thread, so thousands of them can overlap without
+ * sizing a platform thread pool.  On older JVMs the executor is not available and callers keep their current
+ * behaviour.
+ * <p>
+ * The virtual thread execution mode of the {@link SwitchBoardOperator} and the {@link InjectionProcessor} defaults
+ * to the value of the {@value #ENABLED_PROPERTY} system property.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public final class VirtualThreads
+{
+   private static final Logger log = Logger.getLogger(VirtualThreads.class);
+
+   /** System property used to enable the virtual thread execution mode by default */
+   public static final String ENABLED_PROPERTY = "org.jboss.injection.virtualThreads.enabled";
+
+   private static final ExecutorService EXECUTOR = createExecutor();
+
+   private VirtualThreads()
+   {
+   }
+
+   private static ExecutorService createExecutor()
+   {
+      try
+      {
+         // Looked up reflectively so the module still builds for and runs on older JVMs
+         final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) factory.invoke(null);
+      }
+      catch(NoSuchMethodException e)
+      {
+         return null;
+      }
+      catch(InvocationTargetException e)
+      {
+         // Preview releases throw if preview features are not enabled
+         log.debugf("Virtual threads are not available: %s", e.getCause());
+         return null;
+      }
+      catch(IllegalAccessException e)
+      {
+         log.debugf("Virtual threads are not available: %s", e);
+         return null;
+      }
+   }
+
+   /**
+    * Whether the virtual thread execution mode is enabled by default.
+    *
+    * @return true if the {@value #ENABLED_PROPERTY} system property is true
+    */
+   public static boolean isEnabledByDefault()
+   {
+      return Boolean.getBoolean(ENABLED_PROPERTY);
+   }
+
+   /**
+    * Whether this JVM supports virtual threads.
+    *
+    * @return true if virtual threads are available
+    */
+   public static boolean isAvailable()
+   {
+      return EXECUTOR != null;
+   }
+
+   /**
+    * Get the shared executor which runs every task on a new virtual thread.  The executor is shared and must not be
+    * shut down.
+    *
+    * @return The executor, or null if virtual threads are not available
+    */
+   public static ExecutorService getExecutor()
+   {
+      return EXECUTOR;
+   }
+}
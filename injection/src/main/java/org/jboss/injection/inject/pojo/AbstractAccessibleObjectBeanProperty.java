@@ -24,6 +24,9 @@ package org.jboss.injection.inject.pojo;
 import org.jboss.injection.inject.spi.InjectionPoint;
 
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 
 /**
  * Makes sure that the accessible object is accessible.
@@ -45,4 +48,56 @@ public abstract class AbstractAccessibleObjectBeanProperty<A extends AccessibleO
    {
       return accessibleObject;
    }
+
+   /**
+    * Get the class declaring the accessible object.
+    *
+    * @return The declaring class
+    */
+   public Class<?> getDeclaringClass()
+   {
+      return ((Member) accessibleObject).getDeclaringClass();
+   }
+
+   /**
+    * Get the type of value accepted by the accessible object.  This is the field type or the
+    * setter parameter type.
+    *
+    * @return The value type
+    */
+   public Class<?> getValueType()
+   {
+      if(accessibleObject instanceof Field)
+         return ((Field) accessibleObject).getType();
+      if(accessibleObject instanceof Method)
+         return ((Method) accessibleObject).getParameterTypes()[0];
+      throw new IllegalStateException("Unsupported accessible object " + accessibleObject);
+   }
+
+   /**
+    * Create the exception thrown when a value can not be set at an injection point.
+    * Helps out with the error message by letting the developer know if the
+    * value and target type ClassLoaders are not equal.  Shared by all injection points,
+    * so they report invalid values the same way.
+    *
+    * @param msg The base failure message
+    * @param targetType The type declared by the injection point
+    * @param value The value that failed to be set
+    * @return The exception to throw
+    */
+   public static IllegalArgumentException createIllegalArgumentException(String msg, Class<?> targetType, Object value)
+   {
+      if(value != null)
+      {
+         ClassLoader targetLoader = targetType.getClassLoader();
+         ClassLoader valueLoader = value.getClass().getClassLoader();
+         // Equal if both are null (some JDKs use this to represent Bootstrap CL), or they're equal - EJBTHREE-1694
+         boolean equalLoaders = targetLoader == null ? valueLoader == null : targetLoader.equals(valueLoader);
+         if(!equalLoaders)
+         {
+            msg = msg + "; Reason: ClassLoaders of value and target are not equal";
+         }
+      }
+      return new IllegalArgumentException(msg);
+   }
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import org.jboss.injection.inject.spi.PrimitiveInjectionPoint;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+
+/**
+ * Base for injection points which resolve a {@link MethodHandle} for the accessible object once
+ * when they are constructed.  The handle is adapted to a <code>(Object, Object)void</code> shape so
+ * each injection is a single exact invocation without any argument arrays.  Members with an
+ * <code>int</code>, <code>long</code>, <code>boolean</code> or <code>double</code> type also get an exactly typed
+ * handle used by the {@link PrimitiveInjectionPoint} setters, so primitive values are never boxed.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public abstract class AbstractMethodHandleInjectionPoint<A extends AccessibleObject, T, V> extends AbstractAccessibleObjectBeanProperty<A, T, V>
+   implements PrimitiveInjectionPoint<T, V>
+{
+   private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+   protected static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+   private final MethodHandle handle;
+
+   // Exactly typed (Object, primitive)void handle for supported primitive value types, or null
+   private final MethodHandle primitiveHandle;
+   private final Class<?> primitiveType;
+
+   protected AbstractMethodHandleInjectionPoint(A accessibleObject)
+   {
+      super(accessibleObject);
+      try
+      {
+         MethodHandle handle = createHandle(accessibleObject);
+         if(Modifier.isStatic(((Member) accessibleObject).getModifiers()))
+         {
+            // Static members ignore the target
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+         }
+         this.handle = handle.asType(SETTER_TYPE);
+
+         final Class<?> valueType = getValueType();
+         if(valueType == int.class || valueType == long.class || valueType == boolean.class || valueType == double.class)
+         {
+            this.primitiveType = valueType;
+            this.primitiveHandle = handle.asType(MethodType.methodType(void.class, Object.class, valueType));
+         }
+         else
+         {
+            this.primitiveType = null;
+            this.primitiveHandle = null;
+         }
+      }
+      catch(IllegalAccessException e)
+      {
+         throw new RuntimeException("Failed to create method handle for " + accessibleObject, e);
+      }
+   }
+
+   /**
+    * Create the handle used to set the value.  The handle must accept the target and the value.
+    *
+    * @param accessibleObject The accessible object
+    * @return The unadapted handle
+    * @throws IllegalAccessException if the handle can not be created
+    */
+   protected abstract MethodHandle createHandle(A accessibleObject) throws IllegalAccessException;
+
+   /**
+    * Get the failure message used when the value can not be set.
+    *
+    * @param value The value being injected
+    * @return The message
+    */
+   protected abstract String getFailureMessage(Object value);
+
+   /**
+    * Get the handle used to set the value.  The handle is of type <code>(Object, Object)void</code>.
+    *
+    * @return The handle
+    */
+   public MethodHandle getHandle()
+   {
+      return handle;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void set(final T target, final V value)
+   {
+      try
+      {
+         handle.invokeExact((Object) target, (Object) value);
+      }
+      catch(ClassCastException e)
+      {
+         throw translate(target, value, e);
+      }
+      catch(NullPointerException e)
+      {
+         throw translate(target, value, e);
+      }
+      catch(RuntimeException e)
+      {
+         throw e;
+      }
+      catch(Error e)
+      {
+         throw e;
+      }
+      catch(Throwable t)
+      {
+         throw new RuntimeException(t);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public Class<?> getPrimitiveType()
+   {
+      return primitiveType;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setInt(final T target, final int value)
+   {
+      checkPrimitiveType(int.class);
+      try
+      {
+         primitiveHandle.invokeExact((Object) target, value);
+      }
+      catch(Throwable t)
+      {
+         throw translatePrimitive(target, value, t);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setLong(final T target, final long value)
+   {
+      checkPrimitiveType(long.class);
+      try
+      {
+         primitiveHandle.invokeExact((Object) target, value);
+      }
+      catch(Throwable t)
+      {
+         throw translatePrimitive(target, value, t);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setBoolean(final T target, final boolean value)
+   {
+      checkPrimitiveType(boolean.class);
+      try
+      {
+         primitiveHandle.invokeExact((Object) target, value);
+      }
+      catch(Throwable t)
+      {
+         throw translatePrimitive(target, value, t);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void setDouble(final T target, final double value)
+   {
+      checkPrimitiveType(double.class);
+      try
+      {
+         primitiveHandle.invokeExact((Object) target, value);
+      }
+      catch(Throwable t)
+      {
+         throw translatePrimitive(target, value, t);
+      }
+   }
+
+   private void checkPrimitiveType(final Class<?> type)
+   {
+      if(primitiveType != type)
+         throw new IllegalArgumentException(getFailureMessage(type.getName() + " value") + " of type " + getValueType().getName());
+   }
+
+   private RuntimeException translatePrimitive(final Object target, final Object value, final Throwable t)
+   {
+      if(t instanceof Error)
+         throw (Error) t;
+      if(t instanceof ClassCastException || t instanceof NullPointerException)
+         return translate(target, value, (RuntimeException) t);
+      if(t instanceof RuntimeException)
+         return (RuntimeException) t;
+      return new RuntimeException(t);
+   }
+
+   /**
+    * Translate a failure of the setter handle into the exception reported for this injection point.
+    *
+    * @param target The target object receiving the injection
+    * @param value The value being injected
+    * @param e The exception thrown by the handle
+    * @return The exception to throw
+    */
+   RuntimeException translate(final Object target, final Object value, final RuntimeException e)
+   {
+      final Class<?> declaringClass = ((Member) getAccessibleObject()).getDeclaringClass();
+      if(target != null && !declaringClass.isInstance(target) && !Modifier.isStatic(((Member) getAccessibleObject()).getModifiers()))
+      {
+         return createIllegalArgumentException(getFailureMessage(value) + " of target " + target, declaringClass, target);
+      }
+      if(!isAssignable(value))
+      {
+         return createIllegalArgumentException(getFailureMessage(value), getValueType(), value);
+      }
+      // The failure came from the target itself
+      return e;
+   }
+
+   private boolean isAssignable(final Object value)
+   {
+      final Class<?> valueType = getValueType();
+      if(!valueType.isPrimitive())
+      {
+         return value == null || valueType.isInstance(value);
+      }
+      return value != null && MethodType.methodType(valueType).wrap().returnType().isInstance(value);
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Provides a InjectionPoint representing a field.  The field setter handle is resolved
+ * once at construction instead of using {@link Field#set(Object, Object)} for each injection.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class FieldHandleInjectionPoint<T, V> extends AbstractMethodHandleInjectionPoint<Field, T, V>
+{
+   /**
+    * Constructs a new instance with the provided field.
+    *
+    * @param field The field used for injection
+    */
+   public FieldHandleInjectionPoint(final Field field)
+   {
+      super(field);
+   }
+
+   /**
+    * Create the injection point for a field.  A setter handle can not be created for a final field
+    * on every JDK, even when it has been made accessible, so final fields get a reflective
+    * {@link FieldInjectionPoint} instead.
+    *
+    * @param field The field used for injection
+    * @return The injection point
+    */
+   public static <T, V> AbstractAccessibleObjectBeanProperty<Field, T, V> create(final Field field)
+   {
+      if(Modifier.isFinal(field.getModifiers()))
+         return new FieldInjectionPoint<T, V>(field);
+      return new FieldHandleInjectionPoint<T, V>(field);
+   }
+
+   @Override
+   protected MethodHandle createHandle(final Field field) throws IllegalAccessException
+   {
+      return LOOKUP.unreflectSetter(field);
+   }
+
+   @Override
+   protected String getFailureMessage(final Object value)
+   {
+      return "failed to set value " + value + " on field " + getAccessibleObject();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "FieldHandleInjectionPoint{" + "field=" + getAccessibleObject() + '}';
+   }
+}
@@ -57,20 +57,7 @@ public class FieldInjectionPoint<T, V> extends AbstractAccessibleObjectBeanPrope
       }
       catch(IllegalArgumentException e)
       {
-         String msg = "failed to set value " + value + " on field " + field;
-
-         // Help out with the error message; let the developer know if the
-         // value and target field CLs are not equal
-         ClassLoader fieldLoader = field.getType().getClassLoader();
-         ClassLoader valueLoader = value.getClass().getClassLoader();
-         // Equal if both are null (some JDKs use this to represent Bootstrap CL), or they're equal - EJBTHREE-1694
-         boolean equalLoaders = (fieldLoader == null && valueLoader == null) ? true : fieldLoader.equals(valueLoader);
-         if(!equalLoaders)
-         {
-            msg = msg + "; Reason: ClassLoaders of value and target are not equal";
-
-         }
-         throw new IllegalArgumentException(msg);
+         throw createIllegalArgumentException("failed to set value " + value + " on field " + field, field.getType(), value);
       }
    }
 }
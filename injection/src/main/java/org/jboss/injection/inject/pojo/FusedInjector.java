@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Injector which performs all the injections for a single target class with one call.
+ * <p>
+ * The value retrievers and injection points are composed into a single {@link MethodHandle} of type
+ * <code>(Object)void</code> when the injector is created.  Handle based injection points contribute
+ * their setter handles directly and {@link GenericValueRetriever} values are folded in as constants,
+ * so injecting an instance does not walk a list of {@link Injector}s and their delegates.  A value of the
+ * wrong type is reported by the injection point it was retrieved for, without running any retrieval or
+ * setter a second time.  The classes the JDK spins for the composed handle are only reachable from this
+ * injector and are collected along with the deployment.
+ * </p>
+ * <p>
+ * This is not generated straight-line code.  The composed handle is held in an instance field, so the JIT
+ * can not inline through its invocation and all fused injectors share the one call site in
+ * <code>injectInto</code>.  Values from any other {@link ValueRetriever}, such as ENC
+ * lookups, are still retrieved through an interface call, and injection points which are not handle based
+ * are still called through {@link InjectionPoint#set(Object, Object)}.  Use the injection points generated
+ * by the jboss-injection-maven-plugin for plain field assignments and setter calls without any dispatch.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ */
+public class FusedInjector<T> extends Injector<T>
+{
+   private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+   private static final MethodType STEP_TYPE = MethodType.methodType(void.class, Object.class);
+
+   private static final MethodHandle SET;
+   private static final MethodHandle GET_VALUE;
+   private static final MethodHandle FAILED;
+
+   static
+   {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      try
+      {
+         SET = lookup.findVirtual(InjectionPoint.class, "set", SETTER_TYPE);
+         GET_VALUE = lookup.findVirtual(ValueRetriever.class, "getValue", MethodType.methodType(Object.class));
+         FAILED = lookup.findStatic(FusedInjector.class, "failed",
+            MethodType.methodType(void.class, InjectionPoint.class, ClassCastException.class, Object.class, Object.class));
+      }
+      catch(Exception e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   /**
+    * Create a new FusedInjector for a target class.
+    *
+    * @param targetClass The class declaring all the injection points
+    * @param injections The injections to perform, in order
+    */
+   public FusedInjector(final Class<?> targetClass, final List<Injection<T, ?>> injections)
+   {
+      super(new FusedDelegate<T>(targetClass, injections));
+   }
+
+   /**
+    * Translate a {@link ClassCastException} thrown by the composed setter of a single injection point.  Only the
+    * failed injection point is used to build the diagnostic, none of the injections are run again.
+    *
+    * @param injectionPoint The injection point which failed
+    * @param e The exception thrown by the setter
+    * @param value The value being injected
+    * @param target The target object receiving the injection
+    */
+   private static void failed(final InjectionPoint<?, ?> injectionPoint, final ClassCastException e, final Object value, final Object target)
+   {
+      if(injectionPoint instanceof AbstractMethodHandleInjectionPoint)
+         throw ((AbstractMethodHandleInjectionPoint<?, ?, ?>) injectionPoint).translate(target, value, e);
+      // Other injection points translate their own failures in set
+      throw e;
+   }
+
+   /**
+    * A single injection point and the value retriever used to obtain its value.
+    *
+    * @param <T> The target object type
+    * @param <V> The injected value type
+    */
+   public static class Injection<T, V>
+   {
+      private final InjectionPoint<T, V> injectionPoint;
+      private final ValueRetriever<V> valueRetriever;
+
+      public Injection(final InjectionPoint<T, V> injectionPoint, final ValueRetriever<V> valueRetriever)
+      {
+         if(injectionPoint == null) throw new IllegalArgumentException("Injection point can not be null");
+         if(valueRetriever == null) throw new IllegalArgumentException("Value retriever can not be null");
+         this.injectionPoint = injectionPoint;
+         this.valueRetriever = valueRetriever;
+      }
+
+      /**
+       * Create an injection which injects the value currently retrieved.
+       *
+       * @return The resolved injection
+       */
+      private Injection<T, V> resolve()
+      {
+         return new Injection<T, V>(injectionPoint, new GenericValueRetriever<V>(valueRetriever.getValue()));
+      }
+
+      /**
+       * Create the <code>(Object)void</code> handle which retrieves the value and sets it on the target.
+       *
+       * @return The handle
+       */
+      private MethodHandle createHandle()
+      {
+         final MethodHandle setter;
+         if(injectionPoint instanceof AbstractMethodHandleInjectionPoint)
+            setter = ((AbstractMethodHandleInjectionPoint<?, T, V>) injectionPoint).getHandle();
+         else
+            setter = SET.bindTo(injectionPoint);
+
+         final MethodHandle getter;
+         if(valueRetriever instanceof GenericValueRetriever)
+            getter = MethodHandles.constant(Object.class, valueRetriever.getValue());
+         else
+            getter = GET_VALUE.bindTo(valueRetriever);
+
+         // (value, target) -> setter(target, value), then compute the value from the target argument list
+         final MethodHandle valueFirstSetter = MethodHandles.permuteArguments(setter, SETTER_TYPE, 1, 0);
+         final MethodHandle checkedSetter = MethodHandles.catchException(valueFirstSetter, ClassCastException.class, FAILED.bindTo(injectionPoint));
+         return MethodHandles.foldArguments(checkedSetter, MethodHandles.dropArguments(getter, 0, Object.class));
+      }
+
+      @Override
+      public String toString()
+      {
+         return "injectionPoint=" + injectionPoint + ", valueRetriever=" + valueRetriever;
+      }
+   }
+
+   private static class FusedDelegate<T> implements Delegate<T>
+   {
+      private final Class<?> targetClass;
+      private final List<Injection<T, ?>> injections;
+      private final MethodHandle handle;
+
+      private FusedDelegate(final Class<?> targetClass, final List<Injection<T, ?>> injections)
+      {
+         if(targetClass == null) throw new IllegalArgumentException("Target class can not be null");
+         if(injections == null) throw new IllegalArgumentException("Injections can not be null");
+         this.targetClass = targetClass;
+         this.injections = new ArrayList<Injection<T, ?>>(injections);
+
+         MethodHandle handle = MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class).asType(STEP_TYPE);
+         for(Injection<T, ?> injection : this.injections)
+         {
+            // Run everything composed so far, then this injection
+            handle = MethodHandles.foldArguments(injection.createHandle(), handle);
+         }
+         this.handle = handle;
+      }
+
+      public void injectInto(final T target)
+      {
+         try
+         {
+            handle.invokeExact((Object) target);
+         }
+         catch(RuntimeException e)
+         {
+            throw e;
+         }
+         catch(Error e)
+         {
+            throw e;
+         }
+         catch(Throwable t)
+         {
+            throw new RuntimeException(t);
+         }
+      }
+
+      public Delegate<T> resolve()
+      {
+         final List<Injection<T, ?>> resolved = new ArrayList<Injection<T, ?>>(injections.size());
+         for(Injection<T, ?> injection : injections)
+         {
+            resolved.add(injection.resolve());
+         }
+         // The resolved values are folded in as constants
+         return new FusedDelegate<T>(targetClass, resolved);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "targetClass=" + targetClass.getName() + ", injections=" + injections;
+      }
+   }
+}
@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import org.jboss.injection.inject.spi.ValueRetriever;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * ValueRetriever which defers the retrieval of an expensive value until it is first used.
+ * <p>
+ * Each call to {@link #getValue()} returns a lightweight proxy implementing the value's interface type.
+ * The wrapped retriever is called the first time a method is invoked on that proxy, and the
+ * retrieved value is then used for all further invocations on the same proxy.  The <code>equals</code>,
+ * <code>hashCode</code> and <code>toString</code> methods are handled by the proxy itself, so using the proxy as a map
+ * key or logging it does not trigger the retrieval.  Proxies compare by identity.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <V> The type of value returned, must be an interface
+ */
+public class LazyValueRetriever<V> implements ValueRetriever<V>
+{
+   private final Class<V> valueType;
+   private final ValueRetriever<V> valueRetriever;
+   private final ClassLoader classLoader;
+   private final Class<?>[] interfaces;
+
+   /**
+    * Create a new LazyValueRetriever.
+    *
+    * @param valueType The interface type of the value
+    * @param valueRetriever The retriever used to obtain the actual value on first use
+    */
+   public LazyValueRetriever(final Class<V> valueType, final ValueRetriever<V> valueRetriever)
+   {
+      if(valueType == null) throw new IllegalArgumentException("Value type can not be null");
+      if(!valueType.isInterface()) throw new IllegalArgumentException("Value type " + valueType.getName() + " must be an interface");
+      if(valueRetriever == null) throw new IllegalArgumentException("Value retriever can not be null");
+      this.valueType = valueType;
+      this.valueRetriever = valueRetriever;
+      this.classLoader = valueType.getClassLoader();
+      this.interfaces = new Class<?>[] {valueType};
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public V getValue()
+   {
+      return valueType.cast(Proxy.newProxyInstance(classLoader, interfaces, new LazyInvocationHandler<V>(valueType, valueRetriever)));
+   }
+
+   private static class LazyInvocationHandler<V> implements InvocationHandler
+   {
+      private final Class<V> valueType;
+      private final ValueRetriever<V> valueRetriever;
+      private volatile V value;
+
+      private LazyInvocationHandler(final Class<V> valueType, final ValueRetriever<V> valueRetriever)
+      {
+         this.valueType = valueType;
+         this.valueRetriever = valueRetriever;
+      }
+
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+      {
+         if(method.getDeclaringClass() == Object.class)
+         {
+            // Proxies dispatch only these three Object methods, none of them retrieve the value
+            final String name = method.getName();
+            if("equals".equals(name))
+               return proxy == args[0];
+            if("hashCode".equals(name))
+               return System.identityHashCode(proxy);
+            final V value = this.value;
+            return "Lazy " + valueType.getName() + "@" + Integer.toHexString(System.identityHashCode(proxy))
+               + (value == null ? " (not retrieved)" : " (" + value + ")");
+         }
+         try
+         {
+            return method.invoke(getTarget(), args);
+         }
+         catch(InvocationTargetException e)
+         {
+            throw e.getCause();
+         }
+      }
+
+      private V getTarget()
+      {
+         V value = this.value;
+         if(value == null)
+         {
+            synchronized(this)
+            {
+               value = this.value;
+               if(value == null)
+               {
+                  value = valueRetriever.getValue();
+                  if(value == null)
+                     throw new IllegalStateException("Lazily retrieved value from " + valueRetriever + " is null");
+                  this.value = value;
+               }
+            }
+         }
+         return value;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "LazyValueRetriever{" + "valueType=" + valueType.getName() + ", valueRetriever=" + valueRetriever + '}';
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * Provides a InjectionPoint representing a method.  The method handle is resolved
+ * once at construction instead of using {@link Method#invoke(Object, Object...)} for each injection.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class MethodHandleInjectionPoint<T, V> extends AbstractMethodHandleInjectionPoint<Method, T, V>
+{
+   /**
+    * Constructs a new instance with the provided method.
+    *
+    * @param method The method used for injection
+    */
+   public MethodHandleInjectionPoint(final Method method)
+   {
+      super(checkSetter(method));
+   }
+
+   private static Method checkSetter(final Method method)
+   {
+      assert method.getReturnType() == Void.TYPE;
+      assert method.getParameterTypes().length == 1;
+      assert method.getName().startsWith("set");
+      return method;
+   }
+
+   @Override
+   protected MethodHandle createHandle(final Method method) throws IllegalAccessException
+   {
+      return LOOKUP.unreflect(method);
+   }
+
+   @Override
+   protected String getFailureMessage(final Object value)
+   {
+      return "failed to set value " + value + " with setter " + getAccessibleObject();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MethodHandleInjectionPoint{" + "method=" + getAccessibleObject() + '}';
+   }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.pojo;
+
+import org.jboss.injection.inject.spi.PrimitiveValueRetriever;
+import org.jboss.injection.inject.spi.ValueRetriever;
+
+/**
+ * PrimitiveValueRetriever which unboxes the values returned by another value retriever.
+ * <p>
+ * The wrapped retriever is called for every retrieval, so it decides whether the value is looked up
+ * each time or cached.  Only widening conversions are supported, as with
+ * {@link java.lang.reflect.Field#set(Object, Object)}.
+ * </p>
+ * <p>
+ * The wrapped retriever still returns boxed values, for example from an ENC lookup, so this does not
+ * avoid boxing.  It only replaces the reflective unboxing of <code>Field.set</code> with an explicit
+ * unboxing followed by a primitive setter such as <code>setInt</code>.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <V> The boxed type of value returned
+ */
+public class UnboxingValueRetriever<V> implements PrimitiveValueRetriever<V>
+{
+   private final ValueRetriever<V> valueRetriever;
+
+   /**
+    * Create a new UnboxingValueRetriever.
+    *
+    * @param valueRetriever The retriever returning the boxed values
+    */
+   public UnboxingValueRetriever(final ValueRetriever<V> valueRetriever)
+   {
+      if(valueRetriever == null) throw new IllegalArgumentException("Value retriever can not be null");
+      this.valueRetriever = valueRetriever;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public V getValue()
+   {
+      return valueRetriever.getValue();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public int getIntValue()
+   {
+      final Object value = getValue();
+      if(value instanceof Integer || value instanceof Short || value instanceof Byte)
+         return ((Number) value).intValue();
+      if(value instanceof Character)
+         return (Character) value;
+      throw notConvertible(value, int.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public long getLongValue()
+   {
+      final Object value = getValue();
+      if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+         return ((Number) value).longValue();
+      if(value instanceof Character)
+         return (Character) value;
+      throw notConvertible(value, long.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean getBooleanValue()
+   {
+      final Object value = getValue();
+      if(value instanceof Boolean)
+         return (Boolean) value;
+      throw notConvertible(value, boolean.class);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public double getDoubleValue()
+   {
+      final Object value = getValue();
+      if(value instanceof Double || value instanceof Float || value instanceof Long || value instanceof Integer
+         || value instanceof Short || value instanceof Byte)
+         return ((Number) value).doubleValue();
+      if(value instanceof Character)
+         return (Character) value;
+      throw notConvertible(value, double.class);
+   }
+
+   private IllegalArgumentException notConvertible(final Object value, final Class<?> type)
+   {
+      return new IllegalArgumentException("Value [" + value + "] from " + valueRetriever + " can not be converted to " + type.getName());
+   }
+
+   @Override
+   public String toString()
+   {
+      return "UnboxingValueRetriever{" + "valueRetriever=" + valueRetriever + '}';
+   }
+}
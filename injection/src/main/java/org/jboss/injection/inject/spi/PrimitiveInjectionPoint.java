@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.spi;
+
+/**
+ * An InjectionPoint with a primitive type which is able to set primitive values without boxing.
+ * Only the setter matching {@link #getPrimitiveType()} needs to be supported.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <T> The target object type
+ * @param <V> The boxed injected value type
+ */
+public interface PrimitiveInjectionPoint<T, V> extends InjectionPoint<T, V>
+{
+   /**
+    * Get the primitive type of this injection point.
+    *
+    * @return The primitive type, or null if the injection point does not have a supported primitive type
+    */
+   Class<?> getPrimitiveType();
+
+   /**
+    * Set an int value on the target at this injection point.
+    *
+    * @param target The target object receiving the injection
+    * @param value  The value being injected at this injection point
+    */
+   void setInt(T target, int value);
+
+   /**
+    * Set a long value on the target at this injection point.
+    *
+    * @param target The target object receiving the injection
+    * @param value  The value being injected at this injection point
+    */
+   void setLong(T target, long value);
+
+   /**
+    * Set a boolean value on the target at this injection point.
+    *
+    * @param target The target object receiving the injection
+    * @param value  The value being injected at this injection point
+    */
+   void setBoolean(T target, boolean value);
+
+   /**
+    * Set a double value on the target at this injection point.
+    *
+    * @param target The target object receiving the injection
+    * @param value  The value being injected at this injection point
+    */
+   void setDouble(T target, double value);
+}
@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.spi;
+
+/**
+ * A ValueRetriever which is able to return its value as a primitive, avoiding boxing.
+ * Only the accessor matching the primitive type of the value needs to be supported.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <V> The boxed type of value returned
+ */
+public interface PrimitiveValueRetriever<V> extends ValueRetriever<V>
+{
+   /**
+    * Retrieve the value as an int
+    *
+    * @return The value
+    */
+   int getIntValue();
+
+   /**
+    * Retrieve the value as a long
+    *
+    * @return The value
+    */
+   long getLongValue();
+
+   /**
+    * Retrieve the value as a boolean
+    *
+    * @return The value
+    */
+   boolean getBooleanValue();
+
+   /**
+    * Retrieve the value as a double
+    *
+    * @return The value
+    */
+   double getDoubleValue();
+}
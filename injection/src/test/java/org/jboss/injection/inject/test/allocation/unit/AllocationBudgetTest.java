@@ -0,0 +1,228 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.allocation.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.ContextValueRetriever;
+import org.jboss.injection.inject.naming.InjectionProcessor;
+import org.jboss.injection.inject.naming.LinkRefValueRetriever;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.FieldInjectionPoint;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.MethodInjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fails when the per call allocation of the injection hot paths goes above a budget.  Each path is
+ * warmed up before the bytes allocated by the current thread are measured over a loop.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class AllocationBudgetTest
+{
+   private static final int WARMUP = 50000;
+   private static final int ITERATIONS = 200000;
+
+   /** Budget for paths which should not allocate at all, allowing for measurement noise */
+   private static final long NO_ALLOCATION = 8;
+   /** Budget for a reflective setter call, which allocates the argument array */
+   private static final long REFLECTIVE_SETTER = 32;
+   /** Budget for creating a LinkRef with its address vector */
+   private static final long LINK_REF = 256;
+
+   private com.sun.management.ThreadMXBean threadMXBean;
+   private final ValueRetriever<String> valueRetriever = new GenericValueRetriever<String>("Test Value");
+   private final SimpleObject target = new SimpleObject();
+
+   @Before
+   public void setUp()
+   {
+      final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+      threadMXBean = (com.sun.management.ThreadMXBean) bean;
+      Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+      threadMXBean.setThreadAllocatedMemoryEnabled(true);
+   }
+
+   @Test
+   public void testFieldInjection() throws Exception
+   {
+      final Injector<SimpleObject> injector = new Injector<SimpleObject>(new FieldInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")), valueRetriever);
+      assertBudget("FieldInjectionPoint", NO_ALLOCATION, new Runnable()
+      {
+         public void run()
+         {
+            injector.inject(target);
+         }
+      });
+   }
+
+   @Test
+   public void testMethodInjection() throws Exception
+   {
+      final Injector<SimpleObject> injector = new Injector<SimpleObject>(new MethodInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredMethod("setSimpleProperty", String.class)), valueRetriever);
+      assertBudget("MethodInjectionPoint", REFLECTIVE_SETTER, new Runnable()
+      {
+         public void run()
+         {
+            injector.inject(target);
+         }
+      });
+   }
+
+   @Test
+   public void testHandleInjection() throws Exception
+   {
+      final Injector<SimpleObject> fieldInjector = new Injector<SimpleObject>(new FieldHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")), valueRetriever);
+      final Injector<SimpleObject> methodInjector = new Injector<SimpleObject>(new MethodHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredMethod("setSimpleProperty", String.class)), valueRetriever);
+      assertBudget("FieldHandleInjectionPoint", NO_ALLOCATION, new Runnable()
+      {
+         public void run()
+         {
+            fieldInjector.inject(target);
+         }
+      });
+      assertBudget("MethodHandleInjectionPoint", NO_ALLOCATION, new Runnable()
+      {
+         public void run()
+         {
+            methodInjector.inject(target);
+         }
+      });
+   }
+
+   @Test
+   public void testContextValueRetriever() throws Exception
+   {
+      final ContextValueRetriever<String> retriever = new ContextValueRetriever<String>(new ConstantContext("Test Value"), "env/test");
+      assertBudget("ContextValueRetriever", NO_ALLOCATION, new Runnable()
+      {
+         public void run()
+         {
+            retriever.getValue();
+         }
+      });
+   }
+
+   @Test
+   public void testLinkRefValueRetriever() throws Exception
+   {
+      final LinkRefValueRetriever retriever = new LinkRefValueRetriever("java:global/test");
+      assertBudget("LinkRefValueRetriever", LINK_REF, new Runnable()
+      {
+         public void run()
+         {
+            retriever.getValue();
+         }
+      });
+   }
+
+   @Test
+   public void testInjectionProcessorInjectors() throws Exception
+   {
+      final ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+      injectionTarget.setInjectionTargetClass(SimpleObject.class.getName());
+      injectionTarget.setInjectionTargetName("simpleProperty");
+      final Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      injectionTargets.add(injectionTarget);
+      final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+      environmentEntry.setEnvEntryName("env/test");
+      environmentEntry.setInjectionTargets(injectionTargets);
+
+      final EnvironmentMetaDataVisitor<ResourceInjectionMetaData> visitor = new EnvironmentMetaDataVisitor<ResourceInjectionMetaData>()
+      {
+         public Iterable<ResourceInjectionMetaData> getMetaData(final Environment environment)
+         {
+            return Collections.<ResourceInjectionMetaData>singletonList(environmentEntry);
+         }
+
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+      };
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(visitor));
+      final List<Injector<Object>> injectors = processor.process(new ConstantContext("Test Value"), getClass().getClassLoader(), null);
+      Assert.assertEquals(1, injectors.size());
+      assertBudget("InjectionProcessor injectors", NO_ALLOCATION * injectors.size(), new Runnable()
+      {
+         public void run()
+         {
+            for(int i = 0; i < injectors.size(); i++)
+               injectors.get(i).inject(target);
+         }
+      });
+      Assert.assertEquals("Test Value", target.getSimpleProperty());
+   }
+
+   private void assertBudget(final String name, final long budget, final Runnable operation)
+   {
+      for(int i = 0; i < WARMUP; i++)
+         operation.run();
+      final long threadId = Thread.currentThread().getId();
+      final long start = threadMXBean.getThreadAllocatedBytes(threadId);
+      for(int i = 0; i < ITERATIONS; i++)
+         operation.run();
+      final long perCall = (threadMXBean.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+      Assert.assertTrue(name + " allocated " + perCall + " bytes per call, budget is " + budget, perCall <= budget);
+   }
+
+   /**
+    * Context which returns the same value for every lookup without allocating.
+    */
+   private static class ConstantContext extends InitialContext
+   {
+      private final Object value;
+
+      private ConstantContext(final Object value) throws NamingException
+      {
+         super(true);
+         this.value = value;
+      }
+
+      @Override
+      public Object lookup(final String name)
+      {
+         return value;
+      }
+   }
+}
@@ -0,0 +1,247 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.index.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.index.IndexedInjectionPoint;
+import org.jboss.injection.inject.index.IndexedMember;
+import org.jboss.injection.inject.index.InjectionTargetIndex;
+import org.jboss.injection.inject.index.InjectionTargetIndexWriter;
+import org.jboss.injection.inject.naming.InjectionProcessor;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.test.pojo.support.PrimitiveObject;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test to verify injection targets can be planned from an injection target index.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionTargetIndexTest
+{
+   private File directory;
+
+   @Before
+   public void createDirectory() throws Exception
+   {
+      directory = File.createTempFile("injection-index", "");
+      Assert.assertTrue(directory.delete());
+      Assert.assertTrue(directory.mkdirs());
+   }
+
+   @After
+   public void deleteDirectory()
+   {
+      delete(directory);
+   }
+
+   @Test
+   public void testWriteAndMap() throws Exception
+   {
+      final InjectionTargetIndexWriter writer = new InjectionTargetIndexWriter();
+      writer.add(SimpleObject.class);
+      writer.add(PrimitiveObject.class);
+
+      final File indexFile = new File(directory, "injection-targets.idx");
+      writer.write(indexFile);
+      final InjectionTargetIndex index = InjectionTargetIndex.map(indexFile);
+      Assert.assertEquals(writer.size(), index.size());
+
+      final IndexedMember field = index.lookup(SimpleObject.class.getName(), "simpleProperty");
+      Assert.assertEquals(new IndexedMember(SimpleObject.class.getName(), "simpleProperty", SimpleObject.class.getName(),
+         IndexedMember.Kind.FIELD, "simpleProperty", String.class.getName()), field);
+
+      final IndexedMember method = index.lookup(PrimitiveObject.class.getName(), "IntProperty");
+      Assert.assertEquals(IndexedMember.Kind.METHOD, method.getKind());
+      Assert.assertEquals("setIntProperty", method.getMemberName());
+      Assert.assertEquals("int", method.getTypeName());
+
+      Assert.assertNull(index.lookup(SimpleObject.class.getName(), "missingProperty"));
+      Assert.assertNull(index.lookup("org.example.Missing", "simpleProperty"));
+   }
+
+   @Test
+   public void testLookupOrder() throws Exception
+   {
+      final InjectionTargetIndexWriter writer = new InjectionTargetIndexWriter();
+      final String[] names = {"b", "a", "\u00e9", "ab", "Z", "aa"};
+      for(String name : names)
+      {
+         writer.add(new IndexedMember("org.example.Target", name, "org.example.Target", IndexedMember.Kind.FIELD, name, "java.lang.String"));
+         writer.add(new IndexedMember("org.example.Target" + name, name, "org.example.Target", IndexedMember.Kind.FIELD, name, "java.lang.String"));
+      }
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writer.write(out);
+      final InjectionTargetIndex index = InjectionTargetIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+      for(String name : names)
+      {
+         Assert.assertEquals(name, index.lookup("org.example.Target", name).getMemberName());
+         Assert.assertEquals(name, index.lookup("org.example.Target" + name, name).getMemberName());
+      }
+   }
+
+   @Test(expected = IOException.class)
+   public void testInvalidIndex() throws Exception
+   {
+      InjectionTargetIndex.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}));
+   }
+
+   @Test
+   public void testDeferredResolution() throws Exception
+   {
+      final IndexedInjectionPoint<Object, Object> injectionPoint = new IndexedInjectionPoint<Object, Object>(getClass().getClassLoader(),
+         new IndexedMember("org.example.Missing", "value", "org.example.Missing", IndexedMember.Kind.FIELD, "value", "int"));
+      Assert.assertEquals(int.class, injectionPoint.getPrimitiveType());
+      try
+      {
+         injectionPoint.set(new Object(), 1);
+         Assert.fail("Should have failed to load the declaring class");
+      }
+      catch(RuntimeException expected)
+      {
+         Assert.assertTrue(expected.getCause() instanceof ClassNotFoundException);
+      }
+   }
+
+   @Test
+   public void testIndexedInjection() throws Exception
+   {
+      final IndexedInjectionPoint<Object, Object> injectionPoint = new IndexedInjectionPoint<Object, Object>(getClass().getClassLoader(),
+         new IndexedMember(PrimitiveObject.class.getName(), "IntProperty", PrimitiveObject.class.getName(), IndexedMember.Kind.METHOD, "setIntProperty", "int"));
+      final PrimitiveObject target = new PrimitiveObject();
+      new Injector<Object>(injectionPoint, new GenericValueRetriever<Object>(Integer.valueOf(42))).inject(target);
+      Assert.assertEquals(42, target.getIntProperty());
+      Assert.assertTrue(injectionPoint.resolve() instanceof MethodHandleInjectionPoint);
+   }
+
+   @Test
+   public void testInjectionProcessorUsesIndex() throws Exception
+   {
+      // The index maps a target name the class does not declare, so it can only be found through the index
+      final InjectionTargetIndexWriter writer = new InjectionTargetIndexWriter();
+      writer.add(new IndexedMember(SimpleObject.class.getName(), "indexedProperty", SimpleObject.class.getName(),
+         IndexedMember.Kind.METHOD, "setSimpleProperty", String.class.getName()));
+      writer.write(new File(directory, InjectionTargetIndex.RESOURCE_NAME));
+      final ClassLoader classLoader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, getClass().getClassLoader());
+
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor("indexedProperty")));
+      processor.setIndexedTargets(true);
+      final List<Injector<Object>> injectors = processor.process(new ConstantContext("Test Value"), classLoader, null);
+      Assert.assertEquals(1, injectors.size());
+
+      final SimpleObject target = new SimpleObject();
+      injectors.get(0).inject(target);
+      Assert.assertEquals("Test Value", target.getSimpleProperty());
+   }
+
+   @Test
+   public void testInjectionProcessorFallsBackWithoutIndex() throws Exception
+   {
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor("simpleProperty")));
+      processor.setIndexedTargets(true);
+      final List<Injector<Object>> injectors = processor.process(new ConstantContext("Test Value"), getClass().getClassLoader(), null);
+
+      final SimpleObject target = new SimpleObject();
+      injectors.get(0).inject(target);
+      Assert.assertEquals("Test Value", target.getSimpleProperty());
+   }
+
+   private EnvironmentMetaDataVisitor<ResourceInjectionMetaData> createVisitor(final String targetName)
+   {
+      final ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+      injectionTarget.setInjectionTargetClass(SimpleObject.class.getName());
+      injectionTarget.setInjectionTargetName(targetName);
+      final Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      injectionTargets.add(injectionTarget);
+      final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+      environmentEntry.setEnvEntryName("env/test");
+      environmentEntry.setInjectionTargets(injectionTargets);
+
+      return new EnvironmentMetaDataVisitor<ResourceInjectionMetaData>()
+      {
+         public Iterable<ResourceInjectionMetaData> getMetaData(final Environment environment)
+         {
+            return Collections.<ResourceInjectionMetaData>singletonList(environmentEntry);
+         }
+
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+      };
+   }
+
+   private static void delete(final File file)
+   {
+      final File[] children = file.listFiles();
+      if(children != null)
+      {
+         for(File child : children)
+            delete(child);
+      }
+      file.delete();
+   }
+
+   /**
+    * Context which returns the same value for every lookup.
+    */
+   private static class ConstantContext extends InitialContext
+   {
+      private final Object value;
+
+      private ConstantContext(final Object value) throws NamingException
+      {
+         super(true);
+         this.value = value;
+      }
+
+      @Override
+      public Object lookup(final String name)
+      {
+         return value;
+      }
+   }
+}
@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.metrics.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.metrics.InjectionMetrics;
+import org.jboss.injection.inject.metrics.Statistic;
+import org.jboss.injection.inject.pojo.FieldInjectionPoint;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test to verify the optional injection instrumentation.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionMetricsTest
+{
+   private final InjectionMetrics metrics = InjectionMetrics.getInstance();
+   private Injector<SimpleObject> injector;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      metrics.reset();
+      injector = new Injector<SimpleObject>(new FieldInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")),
+         new GenericValueRetriever<String>("Test Value"));
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      metrics.setEnabled(false);
+      metrics.reset();
+   }
+
+   @Test
+   public void testDisabledByDefault() throws Exception
+   {
+      Assert.assertFalse(metrics.isEnabled());
+      Injector.injectAll(Collections.singletonList(injector), new SimpleObject());
+      Assert.assertEquals(0, metrics.getInjectionCount());
+      Assert.assertNull(metrics.getInjectionStatistic(SimpleObject.class));
+   }
+
+   @Test
+   public void testInjectionRecorded() throws Exception
+   {
+      metrics.setEnabled(true);
+      for(int i = 0; i < 5; i++)
+         Injector.injectAll(Collections.singletonList(injector), new SimpleObject());
+
+      final Statistic statistic = metrics.getInjectionStatistic(SimpleObject.class);
+      Assert.assertNotNull(statistic);
+      Assert.assertEquals(5, statistic.getCount());
+      Assert.assertEquals(0, statistic.getFailureCount());
+      Assert.assertEquals(5, metrics.getInjectionCount());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testInjectionRecordedPerTarget() throws Exception
+   {
+      metrics.setEnabled(true);
+      final SimpleObject target = new SimpleObject();
+      Injector.injectAll(Arrays.asList(injector, injector, injector), target);
+
+      // One injection of the target instance, not one per injector
+      Assert.assertEquals(1, metrics.getInjectionCount());
+      injector.inject(target);
+      Assert.assertEquals(1, metrics.getInjectionCount());
+   }
+
+   @Test
+   public void testFailureRecorded() throws Exception
+   {
+      final Injector<SimpleObject> failing = new Injector<SimpleObject>(new FieldInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")),
+         new ValueRetriever<String>()
+         {
+            public String getValue()
+            {
+               throw new IllegalStateException("No value");
+            }
+         });
+      metrics.setEnabled(true);
+      try
+      {
+         Injector.injectAll(Collections.singletonList(failing), new SimpleObject());
+         Assert.fail("Should have thrown IllegalStateException");
+      }
+      catch(IllegalStateException expected)
+      {
+      }
+      Assert.assertEquals(1, metrics.getInjectionFailureCount());
+   }
+
+   @Test
+   public void testTopN() throws Exception
+   {
+      metrics.setEnabled(true);
+      metrics.recordLookup("env/fast", TimeUnit.MICROSECONDS.toNanos(1), false);
+      metrics.recordLookup("env/fast", TimeUnit.MICROSECONDS.toNanos(1), false);
+      metrics.recordLookup("env/fast", TimeUnit.MICROSECONDS.toNanos(1), false);
+      metrics.recordLookup("env/slow", TimeUnit.MILLISECONDS.toNanos(5), false);
+      metrics.recordLookup("env/other", TimeUnit.MICROSECONDS.toNanos(50), true);
+
+      final String[] slowest = metrics.listSlowestLookups(2);
+      Assert.assertEquals(2, slowest.length);
+      Assert.assertTrue(slowest[0].startsWith("env/slow "));
+      Assert.assertTrue(slowest[1].startsWith("env/other "));
+
+      final String[] hottest = metrics.listHottestLookups(10);
+      Assert.assertEquals(3, hottest.length);
+      Assert.assertTrue(hottest[0].startsWith("env/fast "));
+
+      Assert.assertEquals(5, metrics.getLookupCount());
+      Assert.assertEquals(1, metrics.getLookupFailureCount());
+   }
+
+   @Test
+   public void testHistogram() throws Exception
+   {
+      final Statistic statistic = new Statistic("test");
+      for(int i = 0; i < 99; i++)
+         statistic.record(TimeUnit.MICROSECONDS.toNanos(3), false);
+      statistic.record(TimeUnit.MILLISECONDS.toNanos(10), false);
+
+      Assert.assertEquals(4, statistic.getPercentileMicros(0.5));
+      Assert.assertEquals(4, statistic.getPercentileMicros(0.99));
+      Assert.assertEquals(16384, statistic.getPercentileMicros(1.0));
+      Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), statistic.getMaxNanos());
+   }
+
+   @Test
+   public void testMBean() throws Exception
+   {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(InjectionMetrics.OBJECT_NAME);
+      metrics.register(server);
+      try
+      {
+         server.setAttribute(name, new Attribute("Enabled", Boolean.TRUE));
+         Assert.assertTrue(metrics.isEnabled());
+         Injector.injectAll(Collections.singletonList(injector), new SimpleObject());
+         Assert.assertEquals(1L, server.getAttribute(name, "InjectionCount"));
+         final String[] hottest = (String[]) server.invoke(name, "listHottestInjectionTargets", new Object[]{1}, new String[]{int.class.getName()});
+         Assert.assertEquals(1, hottest.length);
+         Assert.assertTrue(hottest[0].startsWith(SimpleObject.class.getName()));
+      }
+      finally
+      {
+         metrics.unregister(server);
+      }
+   }
+}
@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.BatchContextBinder;
+import org.jboss.injection.inject.naming.ContextInjectionPoint;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.Context;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test to verify the BatchContextBinder binds all entries into a shared subcontext tree.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class BatchContextBinderTest extends AbstractNamingTestCase
+{
+   @Test
+   public void testBatchBinding() throws Exception
+   {
+      context.rebind("java:batch/env/existing", "Existing Value");
+
+      List<Injector<Context>> injectors = createInjectors("java:batch/env/");
+      List<Injector<Context>> prepared = new BatchContextBinder(context).prepare(injectors);
+      Assert.assertEquals(injectors.size(), prepared.size());
+      for(Injector<Context> injector : prepared)
+      {
+         injector.inject(context);
+      }
+
+      assertBound("java:batch/env/");
+      assertContextValue("java:batch/env/existing", "Existing Value");
+   }
+
+   @Test
+   public void testFreshContextBatchBinding() throws Exception
+   {
+      Context fresh = context.createSubcontext("java:batchFresh");
+
+      List<Injector<Context>> prepared = new BatchContextBinder(fresh, true).prepare(createInjectors(""));
+      for(Injector<Context> injector : prepared)
+      {
+         injector.inject(fresh);
+      }
+
+      assertBound("java:batchFresh/");
+   }
+
+   @Test
+   public void testBindingOrder() throws Exception
+   {
+      List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      injectors.add(new Injector<Context>(new ContextInjectionPoint<String>("java:batchOrder/z/test"), new GenericValueRetriever<String>("First Value")));
+      injectors.add(new Injector<Context>(new ContextInjectionPoint<String>("java:batchOrder/a/test"), new GenericValueRetriever<String>("Other Value")));
+      injectors.add(new Injector<Context>(new ContextInjectionPoint<String>("java:batchOrder/z/test"), new GenericValueRetriever<String>("Last Value")));
+
+      List<Injector<Context>> prepared = new BatchContextBinder(context).prepare(injectors);
+      Assert.assertEquals(3, prepared.size());
+      // Prepared injectors keep the original order instead of path order
+      Assert.assertTrue(prepared.get(0).getInjectionPoint().toString(), prepared.get(0).getInjectionPoint().toString().contains("java:batchOrder/z/test"));
+      Assert.assertTrue(prepared.get(1).getInjectionPoint().toString(), prepared.get(1).getInjectionPoint().toString().contains("java:batchOrder/a/test"));
+      for(Injector<Context> injector : prepared)
+      {
+         injector.inject(context);
+      }
+      assertContextValue("java:batchOrder/z/test", "Last Value");
+   }
+
+   @Test
+   public void testOtherInjectorOrder() throws Exception
+   {
+      final List<String> injected = new ArrayList<String>();
+      List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      injectors.add(new Injector<Context>(new ContextInjectionPoint<String>("java:batchOther/first"), new GenericValueRetriever<String>("First Value")));
+      Injector<Context> otherInjector = new Injector<Context>(new InjectionPoint<Context, String>()
+      {
+         public void set(Context target, String value)
+         {
+            injected.add(value);
+         }
+      }, new GenericValueRetriever<String>("Other Value"));
+      injectors.add(otherInjector);
+      injectors.add(new Injector<Context>(new ContextInjectionPoint<String>("java:batchOther/second"), new GenericValueRetriever<String>("Second Value")));
+
+      List<Injector<Context>> prepared = new BatchContextBinder(context).prepare(injectors);
+      Assert.assertEquals(3, prepared.size());
+      // Injectors not binding into the context keep their position
+      Assert.assertSame(otherInjector, prepared.get(1));
+      for(Injector<Context> injector : prepared)
+      {
+         injector.inject(context);
+      }
+      Assert.assertEquals(1, injected.size());
+      assertContextValue("java:batchOther/first", "First Value");
+      assertContextValue("java:batchOther/second", "Second Value");
+   }
+
+   private List<Injector<Context>> createInjectors(String prefix)
+   {
+      List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 20; i++)
+      {
+         injectors.add(new Injector<Context>(
+            new ContextInjectionPoint<String>(prefix + "sub" + (i % 3) + "/nested/test" + i),
+            new GenericValueRetriever<String>("Test Value " + i)));
+      }
+      return injectors;
+   }
+
+   private void assertBound(String prefix) throws Exception
+   {
+      for(int i = 0; i < 20; i++)
+      {
+         assertContextValue(prefix + "sub" + (i % 3) + "/nested/test" + i, "Test Value " + i);
+      }
+   }
+}
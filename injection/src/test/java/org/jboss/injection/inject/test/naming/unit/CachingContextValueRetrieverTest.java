@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.naming.CachingContextValueRetriever;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test to verify the CachingContextValueRetriever only looks up values when needed.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class CachingContextValueRetrieverTest extends AbstractNamingTestCase
+{
+   @Test
+   public void testCachedLookup() throws Exception
+   {
+      context.rebind("java:testCached", "Test Value");
+      CachingContextValueRetriever<String> valueRetriever = new CachingContextValueRetriever<String>(context, "java:testCached");
+      try
+      {
+         Assert.assertEquals("Test Value", valueRetriever.getValue());
+         Assert.assertEquals("Test Value", valueRetriever.getValue());
+         Assert.assertEquals(1, valueRetriever.getMissCount());
+         Assert.assertEquals(1, valueRetriever.getHitCount());
+      }
+      finally
+      {
+         valueRetriever.close();
+      }
+   }
+
+   @Test
+   public void testInvalidate() throws Exception
+   {
+      context.rebind("java:testInvalidate", "Test Value One");
+      CachingContextValueRetriever<String> valueRetriever = new CachingContextValueRetriever<String>(context, "java:testInvalidate");
+      try
+      {
+         Assert.assertEquals("Test Value One", valueRetriever.getValue());
+
+         context.rebind("java:testInvalidate", "Test Value Two");
+         valueRetriever.invalidate();
+
+         Assert.assertEquals("Test Value Two", valueRetriever.getValue());
+         Assert.assertEquals(2, valueRetriever.getMissCount());
+      }
+      finally
+      {
+         valueRetriever.close();
+      }
+   }
+
+   @Test
+   public void testNotCachedAfterClose() throws Exception
+   {
+      context.rebind("java:testClosed", "Test Value One");
+      CachingContextValueRetriever<String> valueRetriever = new CachingContextValueRetriever<String>(context, "java:testClosed");
+      Assert.assertEquals("Test Value One", valueRetriever.getValue());
+      valueRetriever.close();
+
+      Assert.assertEquals("Test Value One", valueRetriever.getValue());
+      context.rebind("java:testClosed", "Test Value Two");
+      Assert.assertEquals("Test Value Two", valueRetriever.getValue());
+      Assert.assertFalse(valueRetriever.isListening());
+      Assert.assertEquals(0, valueRetriever.getHitCount());
+      Assert.assertEquals(3, valueRetriever.getMissCount());
+   }
+}
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.naming.ContextBindingRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.InitialContext;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test to verify the ContextBindingRegistry reference counts names per context instance and only tracks the
+ * names created by operators.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class ContextBindingRegistryTest
+{
+   @Test
+   public void testContextsWithSameName() throws Exception
+   {
+      final ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      final EncContext encOne = new EncContext();
+      final EncContext encTwo = new EncContext();
+      Assert.assertEquals(encOne.getNameInNamespace(), encTwo.getNameInNamespace());
+
+      Assert.assertEquals(Arrays.asList("env/test"), bindingRegistry.acquire(encOne, Collections.singletonList("env/test")));
+      Assert.assertEquals(Arrays.asList("env/test"), bindingRegistry.acquire(encTwo, Collections.singletonList("env/test")));
+      Assert.assertEquals(1, bindingRegistry.getReferenceCount(encOne, "env/test"));
+
+      Assert.assertEquals(Arrays.asList("env/test"), bindingRegistry.release(encOne, Collections.singletonList("env/test")));
+      Assert.assertEquals(1, bindingRegistry.getReferenceCount(encTwo, "env/test"));
+   }
+
+   @Test
+   public void testSharedNames() throws Exception
+   {
+      final ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      final EncContext enc = new EncContext();
+
+      bindingRegistry.acquire(enc, Collections.singletonList("env/shared"));
+      // Bound by the first operator, still acquired by the second
+      enc.values.put("env/shared", "Shared Value");
+      Assert.assertEquals(Arrays.asList("env/shared"), bindingRegistry.acquire(enc, Collections.singletonList("env/shared")));
+      Assert.assertEquals(2, bindingRegistry.getReferenceCount(enc, "env/shared"));
+
+      Assert.assertTrue(bindingRegistry.release(enc, Collections.singletonList("env/shared")).isEmpty());
+      Assert.assertEquals(Arrays.asList("env/shared"), bindingRegistry.release(enc, Collections.singletonList("env/shared")));
+      Assert.assertEquals(0, bindingRegistry.getReferenceCount(enc, "env/shared"));
+   }
+
+   @Test
+   public void testExistingNamesNotAcquired() throws Exception
+   {
+      final ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      final EncContext enc = new EncContext();
+      enc.values.put("env/existing", "Existing Value");
+
+      Assert.assertEquals(Arrays.asList("env/created"), bindingRegistry.acquire(enc, Arrays.asList("env/existing", "env/created")));
+      Assert.assertEquals(0, bindingRegistry.getReferenceCount(enc, "env/existing"));
+      Assert.assertEquals(Arrays.asList("env/created"), bindingRegistry.release(enc, Arrays.asList("env/existing", "env/created")));
+   }
+
+   @Test
+   public void testNameAcquiredDuringCheck() throws Exception
+   {
+      final ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      final AtomicBoolean checked = new AtomicBoolean();
+      final EncContext enc = new EncContext()
+      {
+         @Override
+         public Object lookupLink(final String name) throws NamingException
+         {
+            if(checked.compareAndSet(false, true))
+            {
+               // Another operator acquires and binds the name while it is checked, without waiting for the check
+               final EncContext context = this;
+               final Thread operator = new Thread()
+               {
+                  public void run()
+                  {
+                     bindingRegistry.acquire(context, Collections.singletonList(name));
+                     context.values.put(name, "Other Value");
+                  }
+               };
+               operator.start();
+               try
+               {
+                  operator.join(10000);
+               }
+               catch(InterruptedException e)
+               {
+                  throw new RuntimeException(e);
+               }
+               Assert.assertFalse("Acquiring a name is blocked by checking another", operator.isAlive());
+            }
+            return super.lookupLink(name);
+         }
+      };
+
+      Assert.assertEquals(Arrays.asList("env/race"), bindingRegistry.acquire(enc, Collections.singletonList("env/race")));
+      Assert.assertEquals(2, bindingRegistry.getReferenceCount(enc, "env/race"));
+   }
+
+   /**
+    * Context standing in for a component ENC, every instance has the same name in the namespace.  Bound values
+    * can not be looked up, as checking for existing names must not resolve them.
+    */
+   private static class EncContext extends InitialContext
+   {
+      final Map<String, Object> values = new HashMap<String, Object>();
+
+      private EncContext() throws NamingException
+      {
+         super(true);
+      }
+
+      @Override
+      public String getNameInNamespace()
+      {
+         return "java:comp";
+      }
+
+      @Override
+      public Object lookup(final String name) throws NamingException
+      {
+         throw new AssertionError("Looking up " + name + " resolves the bound value");
+      }
+
+      @Override
+      public Object lookupLink(final String name) throws NamingException
+      {
+         if(!values.containsKey(name))
+            throw new NameNotFoundException(name);
+         return values.get(name);
+      }
+   }
+}
@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.naming.InjectionPointCache;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test to verify the InjectionPointCache.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionPointCacheTest
+{
+   @Test
+   public void testCacheHitAndMiss() throws Exception
+   {
+      InjectionPointCache cache = new InjectionPointCache();
+      ClassLoader cl = SimpleObject.class.getClassLoader();
+      String className = SimpleObject.class.getName();
+
+      Assert.assertNull(cache.get(cl, className, "simpleProperty"));
+      Assert.assertEquals(0, cache.getHitCount());
+      Assert.assertEquals(1, cache.getMissCount());
+
+      InjectionPoint<Object, Object> injectionPoint = new FieldHandleInjectionPoint<Object, Object>(SimpleObject.class.getDeclaredField("simpleProperty"));
+      cache.put(cl, className, "simpleProperty", injectionPoint);
+
+      Assert.assertSame(injectionPoint, cache.get(cl, className, "simpleProperty"));
+      Assert.assertEquals(1, cache.getHitCount());
+      Assert.assertEquals(1, cache.getMissCount());
+
+      // Different classloaders do not share entries
+      Assert.assertNull(cache.get(new ClassLoader(cl) {}, className, "simpleProperty"));
+      Assert.assertEquals(2, cache.getMissCount());
+
+      cache.remove(cl);
+      Assert.assertNull(cache.get(cl, className, "simpleProperty"));
+   }
+}
@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.InjectionProcessor;
+import org.jboss.injection.inject.pojo.UnboxingValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.PrimitiveObject;
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.InitialContext;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamingListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test to verify the injectors created by the InjectionProcessor.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionProcessorTest
+{
+   @Test
+   public void testFusedInjectionOrder() throws Exception
+   {
+      final List<ResourceInjectionMetaData> injections = new ArrayList<ResourceInjectionMetaData>();
+      injections.add(createEnvironmentEntry("env/first", BaseTarget.class, "first"));
+      injections.add(createEnvironmentEntry("env/second", ChildTarget.class, "second"));
+      injections.add(createEnvironmentEntry("env/third", BaseTarget.class, "third"));
+
+      final MapContext enc = new MapContext();
+      enc.values.put("env/first", "First");
+      enc.values.put("env/second", "Second");
+      enc.values.put("env/third", "Third");
+
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor(injections)));
+      processor.setFuseInjectors(true);
+      final List<Injector<Object>> injectors = processor.process(enc, getClass().getClassLoader(), null);
+      // Only consecutive injections into the same class are fused
+      Assert.assertEquals(3, injectors.size());
+
+      final ChildTarget target = new ChildTarget();
+      for(Injector<Object> injector : injectors)
+      {
+         injector.inject(target);
+      }
+      Assert.assertEquals(Arrays.asList("env/first", "env/second", "env/third"), enc.lookups);
+      Assert.assertEquals("First", target.first);
+      Assert.assertEquals("Second", target.second);
+      Assert.assertEquals("Third", target.third);
+   }
+
+   @Test
+   public void testCloseCachingValueRetrievers() throws Exception
+   {
+      final List<ResourceInjectionMetaData> injections = new ArrayList<ResourceInjectionMetaData>();
+      injections.add(createEnvironmentEntry("env/first", BaseTarget.class, "first"));
+
+      final EventMapContext enc = new EventMapContext();
+      enc.values.put("env/first", "First");
+
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor(injections)));
+      processor.setCacheLookups(true);
+      final List<Injector<Object>> injectors = processor.process(enc, getClass().getClassLoader(), null);
+      final BaseTarget target = new BaseTarget();
+      injectors.get(0).inject(target);
+      Assert.assertEquals("First", target.first);
+      Assert.assertEquals(1, enc.listeners.size());
+
+      processor.close(enc);
+      Assert.assertTrue("Naming listener was not removed " + enc.listeners, enc.listeners.isEmpty());
+   }
+
+   @Test
+   public void testPrimitiveLookedUpOnEveryInjection() throws Exception
+   {
+      final List<ResourceInjectionMetaData> injections = new ArrayList<ResourceInjectionMetaData>();
+      injections.add(createEnvironmentEntry("env/int", PrimitiveObject.class, "intProperty"));
+
+      final MapContext enc = new MapContext();
+      enc.values.put("env/int", Integer.valueOf(1));
+
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor(injections)));
+      final Injector<Object> injector = processor.process(enc, getClass().getClassLoader(), null).get(0);
+      Assert.assertTrue(injector.getValueRetriever() instanceof UnboxingValueRetriever);
+
+      final PrimitiveObject target = new PrimitiveObject();
+      injector.inject(target);
+      Assert.assertEquals(1, target.getIntProperty());
+
+      enc.values.put("env/int", Integer.valueOf(2));
+      injector.inject(target);
+      Assert.assertEquals(2, target.getIntProperty());
+      Assert.assertEquals(2, enc.lookups.size());
+   }
+
+   private static EnvironmentEntryMetaData createEnvironmentEntry(final String name, final Class<?> targetClass, final String targetName)
+   {
+      final ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+      injectionTarget.setInjectionTargetClass(targetClass.getName());
+      injectionTarget.setInjectionTargetName(targetName);
+      final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+      environmentEntry.setEnvEntryName(name);
+      environmentEntry.setInjectionTargets(Collections.singleton(injectionTarget));
+      return environmentEntry;
+   }
+
+   private static EnvironmentMetaDataVisitor<ResourceInjectionMetaData> createVisitor(final List<ResourceInjectionMetaData> injections)
+   {
+      return new EnvironmentMetaDataVisitor<ResourceInjectionMetaData>()
+      {
+         public Iterable<ResourceInjectionMetaData> getMetaData(final Environment environment)
+         {
+            return injections;
+         }
+
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+      };
+   }
+
+   public static class BaseTarget
+   {
+      String first;
+      String third;
+   }
+
+   public static class ChildTarget extends BaseTarget
+   {
+      String second;
+   }
+
+   /**
+    * Context which looks values up in a map and records the looked up names.
+    */
+   private static class MapContext extends InitialContext
+   {
+      final Map<String, Object> values = new HashMap<String, Object>();
+      final List<String> lookups = new ArrayList<String>();
+
+      MapContext() throws NamingException
+      {
+         super(true);
+      }
+
+      @Override
+      public Object lookup(final String name) throws NamingException
+      {
+         lookups.add(name);
+         if(!values.containsKey(name))
+            throw new NameNotFoundException(name);
+         return values.get(name);
+      }
+   }
+
+   /**
+    * Map context which keeps track of the registered naming listeners.
+    */
+   private static class EventMapContext extends MapContext implements EventContext
+   {
+      private final List<NamingListener> listeners = new ArrayList<NamingListener>();
+
+      private EventMapContext() throws NamingException
+      {
+      }
+
+      public void addNamingListener(final Name target, final int scope, final NamingListener l)
+      {
+         listeners.add(l);
+      }
+
+      public void addNamingListener(final String target, final int scope, final NamingListener l)
+      {
+         listeners.add(l);
+      }
+
+      public void removeNamingListener(final NamingListener l)
+      {
+         listeners.remove(l);
+      }
+
+      public boolean targetMustExist()
+      {
+         return false;
+      }
+   }
+}
@@ -21,14 +21,19 @@
  */
 package org.jboss.injection.inject.test.naming.unit;
 
+import org.jboss.injection.inject.naming.ContextBindingRegistry;
 import org.jboss.injection.inject.naming.ContextInjectionPoint;
 import org.jboss.injection.inject.naming.SwitchBoardOperator;
 import org.jboss.injection.inject.Injector;
 import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.junit.Assert;
 import org.junit.Test;
 
 import javax.naming.Context;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * SwitchBoardOperatorTest
@@ -62,4 +67,125 @@ public class SwitchBoardOperatorTest extends AbstractNamingTestCase
       assertContextValue("java:testTwo", "Test Value Two");
       assertContextValue("java:testThree", "Test Value Three");
    }
+
+   @Test
+   public void testParallelSwitchBoardOperator() throws Exception
+   {
+      List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 200; i++)
+      {
+         injectors.add(new Injector<Context>(
+            new ContextInjectionPoint<String>("java:parallel/shared/" + (i % 10) + "/test" + i),
+            new GenericValueRetriever<String>("Test Value " + i)));
+      }
+      SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(context, injectors);
+      switchBoardOperator.setParallelThreshold(0);
+
+      switchBoardOperator.start();
+
+      for(int i = 0; i < 200; i++)
+      {
+         assertContextValue("java:parallel/shared/" + (i % 10) + "/test" + i, "Test Value " + i);
+      }
+   }
+
+   @Test
+   public void testParallelSwitchBoardOperatorFailure() throws Exception
+   {
+      List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 100; i++)
+      {
+         final String message = "Failure " + i;
+         final boolean fail = i == 42 || i == 87;
+         injectors.add(new Injector<Context>(new InjectionPoint<Context, String>()
+         {
+            public void set(final Context target, final String value)
+            {
+               if(fail)
+                  throw new IllegalStateException(message);
+            }
+         }, new GenericValueRetriever<String>("Test Value")));
+      }
+      SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(context, injectors);
+      switchBoardOperator.setParallelThreshold(0);
+      try
+      {
+         switchBoardOperator.start();
+         Assert.fail("Should have failed to start");
+      }
+      catch(IllegalStateException expected)
+      {
+         Assert.assertEquals("Failure 42", expected.getMessage());
+      }
+   }
+
+   @Test
+   public void testStopUnbinds() throws Exception
+   {
+      SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(context, Arrays.asList(
+         createInjector("java:stop/a/testOne"), createInjector("java:stop/a/testTwo"), createInjector("java:stop/b/testThree")));
+      switchBoardOperator.setBindingRegistry(new ContextBindingRegistry());
+
+      switchBoardOperator.start();
+      assertContextValue("java:stop/a/testOne", "java:stop/a/testOne");
+      assertContextValue("java:stop/b/testThree", "java:stop/b/testThree");
+
+      switchBoardOperator.stop();
+      assertNameNotFound("java:stop/a/testOne");
+      assertNameNotFound("java:stop/a/testTwo");
+      assertNameNotFound("java:stop/b/testThree");
+      assertNameNotFound("java:stop/a");
+      assertNameNotFound("java:stop");
+   }
+
+   @Test
+   public void testStopKeepsSharedNames() throws Exception
+   {
+      ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      SwitchBoardOperator operatorOne = new SwitchBoardOperator(context, Arrays.asList(
+         createInjector("java:shared/one/testOne"), createInjector("java:shared/module/testShared")));
+      operatorOne.setBindingRegistry(bindingRegistry);
+      SwitchBoardOperator operatorTwo = new SwitchBoardOperator(context, Arrays.asList(
+         createInjector("java:shared/two/testTwo"), createInjector("java:shared/module/testShared")));
+      operatorTwo.setBindingRegistry(bindingRegistry);
+
+      operatorOne.start();
+      operatorTwo.start();
+      Assert.assertEquals(2, bindingRegistry.getReferenceCount(context, "java:shared/module/testShared"));
+
+      operatorOne.stop();
+      assertNameNotFound("java:shared/one/testOne");
+      assertContextValue("java:shared/module/testShared", "java:shared/module/testShared");
+      assertContextValue("java:shared/two/testTwo", "java:shared/two/testTwo");
+
+      operatorTwo.stop();
+      assertNameNotFound("java:shared/module/testShared");
+      assertNameNotFound("java:shared");
+      Assert.assertEquals(0, bindingRegistry.getReferenceCount(context, "java:shared/module/testShared"));
+   }
+
+   @Test
+   public void testStopKeepsExistingNames() throws Exception
+   {
+      context.bind("java:existing", "Existing Value");
+      ContextBindingRegistry bindingRegistry = new ContextBindingRegistry();
+      SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(context, Arrays.asList(
+         createInjector("java:existing"), createInjector("java:created")));
+      switchBoardOperator.setBindingRegistry(bindingRegistry);
+
+      switchBoardOperator.start();
+      assertContextValue("java:existing", "java:existing");
+      assertContextValue("java:created", "java:created");
+      Assert.assertEquals(0, bindingRegistry.getReferenceCount(context, "java:existing"));
+
+      switchBoardOperator.stop();
+      assertContextValue("java:existing", "java:existing");
+      assertNameNotFound("java:created");
+      context.unbind("java:existing");
+   }
+
+   private static Injector<Context> createInjector(final String jndiName)
+   {
+      return new Injector<Context>(new ContextInjectionPoint<String>(jndiName), new GenericValueRetriever<String>(jndiName));
+   }
 }
@@ -0,0 +1,235 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.naming.unit;
+
+import org.jboss.injection.inject.AsyncInjector;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.naming.AbstractContextInjectionPoint;
+import org.jboss.injection.inject.naming.AsyncContextValueRetriever;
+import org.jboss.injection.inject.naming.InjectionProcessor;
+import org.jboss.injection.inject.naming.SwitchBoardOperator;
+import org.jboss.injection.inject.naming.VirtualThreads;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Test to verify the virtual thread execution mode, and its fallback on JVMs without virtual threads.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class VirtualThreadsTest
+{
+   @Test
+   public void testAvailability() throws Exception
+   {
+      Assert.assertEquals(isVirtualThreadJvm(), VirtualThreads.isAvailable());
+      Assert.assertEquals(VirtualThreads.isAvailable(), VirtualThreads.getExecutor() != null);
+   }
+
+   @Test
+   public void testSwitchBoardOperator() throws Exception
+   {
+      final ConcurrentMap<String, Thread> bindingThreads = new ConcurrentHashMap<String, Thread>();
+      final List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 100; i++)
+      {
+         final String name = "test" + i;
+         injectors.add(new Injector<Context>(new InjectionPoint<Context, String>()
+         {
+            public void set(final Context target, final String value)
+            {
+               bindingThreads.put(name, Thread.currentThread());
+            }
+         }, new GenericValueRetriever<String>(name)));
+      }
+      final SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(new ConstantContext(null), injectors);
+      switchBoardOperator.setBatchBinding(false);
+      switchBoardOperator.setParallelThreshold(0);
+      switchBoardOperator.setVirtualThreads(true);
+
+      switchBoardOperator.start();
+
+      Assert.assertEquals(100, bindingThreads.size());
+      final Set<Thread> threads = new HashSet<Thread>(bindingThreads.values());
+      for(Thread thread : threads)
+      {
+         if(VirtualThreads.isAvailable())
+            Assert.assertTrue(thread + " is not virtual", isVirtual(thread));
+         else
+            Assert.assertTrue(thread + " is not an operator thread", thread.getName().startsWith("SwitchBoardOperator-"));
+      }
+   }
+
+   @Test
+   public void testSwitchBoardOperatorIgnoresThreshold() throws Exception
+   {
+      final ConcurrentMap<String, Thread> bindingThreads = new ConcurrentHashMap<String, Thread>();
+      final List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 10; i++)
+      {
+         final String name = "test" + i;
+         injectors.add(new Injector<Context>(new InjectionPoint<Context, String>()
+         {
+            public void set(final Context target, final String value)
+            {
+               bindingThreads.put(name, Thread.currentThread());
+            }
+         }, new GenericValueRetriever<String>(name)));
+      }
+      final SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(new ConstantContext(null), injectors);
+      switchBoardOperator.setVirtualThreads(true);
+      Assert.assertTrue(injectors.size() < switchBoardOperator.getParallelThreshold());
+
+      switchBoardOperator.start();
+
+      Assert.assertEquals(10, bindingThreads.size());
+      for(Thread thread : bindingThreads.values())
+      {
+         if(VirtualThreads.isAvailable())
+            Assert.assertTrue(thread + " is not virtual", isVirtual(thread));
+         else
+            Assert.assertSame(Thread.currentThread(), thread);
+      }
+   }
+
+   @Test
+   public void testSwitchBoardOperatorDuplicateNames() throws Exception
+   {
+      final List<Integer> sharedBindings = Collections.synchronizedList(new ArrayList<Integer>());
+      final List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      for(int i = 0; i < 100; i++)
+      {
+         final int index = i;
+         final String jndiName = i % 10 == 0 ? "java:shared" : "java:test" + i;
+         injectors.add(new Injector<Context>(new AbstractContextInjectionPoint<String>(jndiName)
+         {
+            protected void bindValue(final Context target, final String value)
+            {
+               if(getJndiName().equals("java:shared"))
+                  sharedBindings.add(Integer.valueOf(index));
+            }
+         }, new GenericValueRetriever<String>(jndiName)));
+      }
+      final SwitchBoardOperator switchBoardOperator = new SwitchBoardOperator(new ConstantContext(null), injectors);
+      switchBoardOperator.setParallelThreshold(0);
+      switchBoardOperator.setVirtualThreads(true);
+
+      switchBoardOperator.start();
+
+      // Every binding of the shared name runs in list order, so the last one wins
+      Assert.assertEquals(Arrays.asList(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), sharedBindings);
+   }
+
+   @Test
+   public void testInjectionProcessor() throws Exception
+   {
+      final ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+      injectionTarget.setInjectionTargetClass(SimpleObject.class.getName());
+      injectionTarget.setInjectionTargetName("simpleProperty");
+      final Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      injectionTargets.add(injectionTarget);
+      final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+      environmentEntry.setEnvEntryName("env/test");
+      environmentEntry.setInjectionTargets(injectionTargets);
+      final EnvironmentMetaDataVisitor<ResourceInjectionMetaData> visitor = new EnvironmentMetaDataVisitor<ResourceInjectionMetaData>()
+      {
+         public Iterable<ResourceInjectionMetaData> getMetaData(final Environment environment)
+         {
+            return Collections.<ResourceInjectionMetaData>singletonList(environmentEntry);
+         }
+
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+      };
+
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(visitor));
+      processor.setVirtualThreads(true);
+      final List<Injector<Object>> injectors = processor.process(new ConstantContext("Test Value"), getClass().getClassLoader(), null);
+      Assert.assertEquals(VirtualThreads.isAvailable(), injectors.get(0).getValueRetriever() instanceof AsyncContextValueRetriever);
+
+      final SimpleObject target = new SimpleObject();
+      new AsyncInjector<Object>(injectors).inject(target);
+      Assert.assertEquals("Test Value", target.getSimpleProperty());
+   }
+
+   private static boolean isVirtualThreadJvm()
+   {
+      try
+      {
+         Thread.class.getMethod("isVirtual");
+         return true;
+      }
+      catch(NoSuchMethodException e)
+      {
+         return false;
+      }
+   }
+
+   private static boolean isVirtual(final Thread thread) throws Exception
+   {
+      final Method isVirtual = Thread.class.getMethod("isVirtual");
+      return (Boolean) isVirtual.invoke(thread);
+   }
+
+   /**
+    * Context which returns the same value for every lookup.
+    */
+   private static class ConstantContext extends InitialContext
+   {
+      private final Object value;
+
+      private ConstantContext(final Object value) throws NamingException
+      {
+         super(true);
+         this.value = value;
+      }
+
+      @Override
+      public Object lookup(final String name)
+      {
+         return value;
+      }
+   }
+}
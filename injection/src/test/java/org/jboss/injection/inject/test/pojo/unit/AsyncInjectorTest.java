@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.pojo.unit;
+
+import org.jboss.injection.inject.AsyncInjector;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.spi.AsyncValueRetriever;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.PrimitiveObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test to verify the AsyncInjector overlaps value retrievals.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class AsyncInjectorTest
+{
+   private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+   @After
+   public void shutdown()
+   {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testSynchronousRetrieversOverlap() throws Exception
+   {
+      // Each retriever only returns once both are running, so the injection only succeeds if they overlap
+      final CountDownLatch running = new CountDownLatch(2);
+      final List<Injector<PrimitiveObject>> injectors = new ArrayList<Injector<PrimitiveObject>>();
+      injectors.add(createInjector("intProperty", new OverlappingValueRetriever(running, Integer.valueOf(42))));
+      injectors.add(createInjector("longProperty", new OverlappingValueRetriever(running, Long.valueOf(42L))));
+
+      final PrimitiveObject target = new PrimitiveObject();
+      new AsyncInjector<PrimitiveObject>(injectors, executor).inject(target);
+
+      Assert.assertEquals(42, target.getIntProperty());
+      Assert.assertEquals(42L, target.getLongProperty());
+   }
+
+   @Test
+   public void testAsyncRetriever() throws Exception
+   {
+      final CompletableFuture<Object> value = new CompletableFuture<Object>();
+      final List<Injector<PrimitiveObject>> injectors = new ArrayList<Injector<PrimitiveObject>>();
+      final ThreadRecordingInjectionPoint injectionPoint = new ThreadRecordingInjectionPoint(PrimitiveObject.class.getDeclaredField("intProperty"));
+      injectors.add(new Injector<PrimitiveObject>(injectionPoint, new AsyncValueRetriever<Object>()
+      {
+         public CompletionStage<Object> getValueAsync()
+         {
+            return value;
+         }
+
+         public Object getValue()
+         {
+            return value.join();
+         }
+      }));
+
+      // Complete the value on another thread while the injection waits for it
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            value.complete(Integer.valueOf(7));
+         }
+      });
+      final PrimitiveObject target = new PrimitiveObject();
+      new AsyncInjector<PrimitiveObject>(injectors).inject(target);
+
+      Assert.assertEquals(7, target.getIntProperty());
+      Assert.assertSame(Thread.currentThread(), injectionPoint.thread);
+   }
+
+   @Test
+   public void testValuesSetOnCallingThread() throws Exception
+   {
+      final List<Injector<PrimitiveObject>> injectors = new ArrayList<Injector<PrimitiveObject>>();
+      final ThreadRecordingInjectionPoint injectionPoint = new ThreadRecordingInjectionPoint(PrimitiveObject.class.getDeclaredField("intProperty"));
+      final Thread[] retrievingThread = new Thread[1];
+      injectors.add(new Injector<PrimitiveObject>(injectionPoint, new ValueRetriever<Object>()
+      {
+         public Object getValue()
+         {
+            retrievingThread[0] = Thread.currentThread();
+            return Integer.valueOf(42);
+         }
+      }));
+
+      final PrimitiveObject target = new PrimitiveObject();
+      new AsyncInjector<PrimitiveObject>(injectors, executor).inject(target);
+
+      Assert.assertEquals(42, target.getIntProperty());
+      Assert.assertNotSame(Thread.currentThread(), retrievingThread[0]);
+      Assert.assertSame(Thread.currentThread(), injectionPoint.thread);
+   }
+
+   @Test
+   public void testFailureSetsNoValues() throws Exception
+   {
+      final List<Injector<PrimitiveObject>> injectors = new ArrayList<Injector<PrimitiveObject>>();
+      injectors.add(createInjector("intProperty", new ValueRetriever<Object>()
+      {
+         public Object getValue()
+         {
+            return Integer.valueOf(42);
+         }
+      }));
+      injectors.add(createInjector("longProperty", new ValueRetriever<Object>()
+      {
+         public Object getValue()
+         {
+            throw new IllegalStateException("Lookup failed");
+         }
+      }));
+
+      final PrimitiveObject target = new PrimitiveObject();
+      try
+      {
+         new AsyncInjector<PrimitiveObject>(injectors, executor).inject(target);
+         Assert.fail("Should have thrown the retrieval failure");
+      }
+      catch(IllegalStateException expected)
+      {
+         Assert.assertEquals("Lookup failed", expected.getMessage());
+      }
+      Assert.assertEquals(0, target.getIntProperty());
+   }
+
+   private static Injector<PrimitiveObject> createInjector(final String fieldName, final ValueRetriever<Object> valueRetriever) throws Exception
+   {
+      return new Injector<PrimitiveObject>(new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField(fieldName)), valueRetriever);
+   }
+
+   /**
+    * Injection point recording the thread which set the value.
+    */
+   private static class ThreadRecordingInjectionPoint extends FieldHandleInjectionPoint<PrimitiveObject, Object>
+   {
+      private volatile Thread thread;
+
+      private ThreadRecordingInjectionPoint(final Field field)
+      {
+         super(field);
+      }
+
+      @Override
+      public void set(final PrimitiveObject target, final Object value)
+      {
+         thread = Thread.currentThread();
+         super.set(target, value);
+      }
+   }
+
+   private static class OverlappingValueRetriever implements ValueRetriever<Object>
+   {
+      private final CountDownLatch running;
+      private final Object value;
+
+      private OverlappingValueRetriever(final CountDownLatch running, final Object value)
+      {
+         this.running = running;
+         this.value = value;
+      }
+
+      public Object getValue()
+      {
+         running.countDown();
+         try
+         {
+            if(!running.await(10, TimeUnit.SECONDS))
+               throw new IllegalStateException("Retrievals did not overlap");
+         }
+         catch(InterruptedException e)
+         {
+            throw new RuntimeException(e);
+         }
+         return value;
+      }
+   }
+}
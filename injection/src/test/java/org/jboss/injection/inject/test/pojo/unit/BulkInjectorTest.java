@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.pojo.unit;
+
+import org.jboss.injection.inject.BulkInjector;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test to verify the BulkInjector retrieves values once per batch.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class BulkInjectorTest
+{
+   private final AtomicInteger retrievals = new AtomicInteger();
+
+   private final ValueRetriever<String> valueRetriever = new ValueRetriever<String>()
+   {
+      public String getValue()
+      {
+         return "Test Value " + retrievals.incrementAndGet();
+      }
+   };
+
+   @Test
+   public void testBulkInjection() throws Exception
+   {
+      BulkInjector<SimpleObject> bulkInjector = new BulkInjector<SimpleObject>(createInjectors());
+      List<SimpleObject> targets = createTargets(100);
+
+      bulkInjector.inject(targets);
+
+      Assert.assertEquals(1, retrievals.get());
+      for(SimpleObject target : targets)
+      {
+         Assert.assertEquals("Test Value 1", target.getSimpleProperty());
+      }
+   }
+
+   @Test
+   public void testPartitionedBulkInjection() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         BulkInjector<SimpleObject> bulkInjector = new BulkInjector<SimpleObject>(createInjectors(), executor, 16);
+         List<SimpleObject> targets = createTargets(1000);
+
+         bulkInjector.inject(targets);
+
+         Assert.assertEquals(1, retrievals.get());
+         for(SimpleObject target : targets)
+         {
+            Assert.assertEquals("Test Value 1", target.getSimpleProperty());
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
+   private List<Injector<SimpleObject>> createInjectors() throws Exception
+   {
+      FieldHandleInjectionPoint<SimpleObject, String> injectionPoint = new FieldHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty"));
+      return Collections.singletonList(new Injector<SimpleObject>(injectionPoint, valueRetriever));
+   }
+
+   private List<SimpleObject> createTargets(int count)
+   {
+      List<SimpleObject> targets = new ArrayList<SimpleObject>(count);
+      for(int i = 0; i < count; i++)
+      {
+         targets.add(new SimpleObject());
+      }
+      return targets;
+   }
+}
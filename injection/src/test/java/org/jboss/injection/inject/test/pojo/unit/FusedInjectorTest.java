@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.pojo.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.FieldInjectionPoint;
+import org.jboss.injection.inject.pojo.FusedInjector;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test to verify the FusedInjector performs all injections for a class with one call.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class FusedInjectorTest
+{
+   @Test
+   public void testFusedInjection() throws Exception
+   {
+      List<FusedInjector.Injection<SimpleObject, ?>> injections = new ArrayList<FusedInjector.Injection<SimpleObject, ?>>();
+      injections.add(new FusedInjector.Injection<SimpleObject, String>(
+         new FieldHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")),
+         new GenericValueRetriever<String>("Test Value One")));
+      injections.add(new FusedInjector.Injection<SimpleObject, String>(
+         new MethodHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredMethod("setSimpleProperty", String.class)),
+         new GenericValueRetriever<String>("Test Value Two")));
+
+      Injector<SimpleObject> injector = new FusedInjector<SimpleObject>(SimpleObject.class, injections);
+      SimpleObject simpleObject = new SimpleObject();
+      injector.inject(simpleObject);
+
+      // Injections are performed in order
+      Assert.assertEquals("Test Value Two", simpleObject.getSimpleProperty());
+   }
+
+   @Test
+   public void testFusedInjectionWithReflectiveInjectionPoint() throws Exception
+   {
+      final int[] retrievals = new int[1];
+      ValueRetriever<String> valueRetriever = new ValueRetriever<String>()
+      {
+         public String getValue()
+         {
+            return "Test Value " + (++retrievals[0]);
+         }
+      };
+      List<FusedInjector.Injection<SimpleObject, ?>> injections = new ArrayList<FusedInjector.Injection<SimpleObject, ?>>();
+      injections.add(new FusedInjector.Injection<SimpleObject, String>(
+         new FieldInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty")), valueRetriever));
+
+      Injector<SimpleObject> injector = new FusedInjector<SimpleObject>(SimpleObject.class, injections);
+      SimpleObject simpleObject = new SimpleObject();
+      injector.inject(simpleObject);
+      Assert.assertEquals("Test Value 1", simpleObject.getSimpleProperty());
+
+      simpleObject = new SimpleObject();
+      injector.inject(simpleObject);
+      Assert.assertEquals("Test Value 2", simpleObject.getSimpleProperty());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testFusedInjectionInvalidValue() throws Exception
+   {
+      List<FusedInjector.Injection<SimpleObject, ?>> injections = new ArrayList<FusedInjector.Injection<SimpleObject, ?>>();
+      injections.add(new FusedInjector.Injection(
+         new FieldHandleInjectionPoint<SimpleObject, Object>(SimpleObject.class.getDeclaredField("simpleProperty")),
+         new GenericValueRetriever<Object>(Integer.valueOf(1))));
+
+      Injector<SimpleObject> injector = new FusedInjector<SimpleObject>(SimpleObject.class, injections);
+      try
+      {
+         injector.inject(new SimpleObject());
+         Assert.fail("Should not be able to inject a value of the wrong type");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testFusedInjectionInvalidValueNotReplayed() throws Exception
+   {
+      final int[] retrievals = new int[1];
+      ValueRetriever<String> valueRetriever = new ValueRetriever<String>()
+      {
+         public String getValue()
+         {
+            return "Test Value " + (++retrievals[0]);
+         }
+      };
+      List<FusedInjector.Injection<SimpleObject, ?>> injections = new ArrayList<FusedInjector.Injection<SimpleObject, ?>>();
+      injections.add(new FusedInjector.Injection<SimpleObject, String>(
+         new MethodHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredMethod("setSimpleProperty", String.class)), valueRetriever));
+      injections.add(new FusedInjector.Injection(
+         new FieldHandleInjectionPoint<SimpleObject, Object>(SimpleObject.class.getDeclaredField("simpleProperty")),
+         new GenericValueRetriever<Object>(Integer.valueOf(1))));
+
+      Injector<SimpleObject> injector = new FusedInjector<SimpleObject>(SimpleObject.class, injections);
+      SimpleObject simpleObject = new SimpleObject();
+      try
+      {
+         injector.inject(simpleObject);
+         Assert.fail("Should not be able to inject a value of the wrong type");
+      }
+      catch(IllegalArgumentException expected)
+      {
+         Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("simpleProperty"));
+      }
+      // The injections before the failed one are not run again to build the diagnostic
+      Assert.assertEquals(1, retrievals[0]);
+      Assert.assertEquals("Test Value 1", simpleObject.getSimpleProperty());
+   }
+}
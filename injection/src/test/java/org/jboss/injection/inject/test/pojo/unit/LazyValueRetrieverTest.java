@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.pojo.unit;
+
+import org.jboss.injection.inject.pojo.LazyValueRetriever;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.SimpleService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test to verify the LazyValueRetriever defers retrieval until first use.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class LazyValueRetrieverTest
+{
+   private int retrievals;
+
+   private final ValueRetriever<SimpleService> valueRetriever = new ValueRetriever<SimpleService>()
+   {
+      public SimpleService getValue()
+      {
+         retrievals++;
+         return new SimpleService()
+         {
+            public String getName()
+            {
+               return "Test Service";
+            }
+         };
+      }
+   };
+
+   @Test
+   public void testLazyRetrieval() throws Exception
+   {
+      LazyValueRetriever<SimpleService> lazyValueRetriever = new LazyValueRetriever<SimpleService>(SimpleService.class, valueRetriever);
+
+      SimpleService service = lazyValueRetriever.getValue();
+      Assert.assertNotNull(service);
+      Assert.assertEquals(0, retrievals);
+
+      Assert.assertEquals("Test Service", service.getName());
+      Assert.assertEquals("Test Service", service.getName());
+      Assert.assertEquals(1, retrievals);
+
+      // Every retrieved proxy resolves its own value
+      lazyValueRetriever.getValue().getName();
+      Assert.assertEquals(2, retrievals);
+   }
+
+   @Test
+   public void testObjectMethodsDoNotRetrieve() throws Exception
+   {
+      LazyValueRetriever<SimpleService> lazyValueRetriever = new LazyValueRetriever<SimpleService>(SimpleService.class, valueRetriever);
+
+      SimpleService service = lazyValueRetriever.getValue();
+      SimpleService other = lazyValueRetriever.getValue();
+      Assert.assertTrue(service.equals(service));
+      Assert.assertFalse(service.equals(other));
+      Assert.assertEquals(System.identityHashCode(service), service.hashCode());
+      Assert.assertTrue(service.toString(), service.toString().contains(SimpleService.class.getName()));
+      Assert.assertEquals(0, retrievals);
+
+      Assert.assertEquals("Test Service", service.getName());
+      Assert.assertEquals(1, retrievals);
+      Assert.assertTrue(service.equals(service));
+      Assert.assertEquals(1, retrievals);
+   }
+
+   @Test
+   public void testNonInterfaceType() throws Exception
+   {
+      try
+      {
+         new LazyValueRetriever<String>(String.class, new ValueRetriever<String>()
+         {
+            public String getValue()
+            {
+               return "Test Value";
+            }
+         });
+         Assert.fail("Should not be able to create a LazyValueRetriever for a class type");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+   }
+}
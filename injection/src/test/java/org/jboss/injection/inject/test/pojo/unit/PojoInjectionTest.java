@@ -24,8 +24,11 @@ package org.jboss.injection.inject.test.pojo.unit;
 import org.jboss.injection.inject.Injector;
 import org.jboss.injection.inject.pojo.GenericValueRetriever;
 import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.FinalFieldObject;
 import org.jboss.injection.inject.test.pojo.support.SimpleObject;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
 import org.jboss.injection.inject.pojo.FieldInjectionPoint;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
 import org.jboss.injection.inject.pojo.MethodInjectionPoint;
 import org.jboss.injection.inject.spi.InjectionPoint;
 import org.junit.Test;
@@ -66,6 +69,55 @@ public class PojoInjectionTest
       Assert.assertEquals("Test Value", simpleObject.getSimpleProperty());
    }
 
+   @Test
+   public void testFieldHandleInjection() throws Exception
+   {
+      InjectionPoint<SimpleObject, String> injectionPoint = new FieldHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredField("simpleProperty"));
+      Injector<SimpleObject> injector = new Injector<SimpleObject>(injectionPoint, valueRetriever);
+      injector.inject(simpleObject);
+
+      Assert.assertEquals("Test Value", simpleObject.getSimpleProperty());
+   }
+
+   @Test
+   public void testMethodHandleInjection() throws Exception
+   {
+      InjectionPoint<SimpleObject, String> injectionPoint = new MethodHandleInjectionPoint<SimpleObject, String>(SimpleObject.class.getDeclaredMethod("setSimpleProperty", String.class));
+      Injector<SimpleObject> injector = new Injector<SimpleObject>(injectionPoint, valueRetriever);
+      injector.inject(simpleObject);
+
+      Assert.assertEquals("Test Value", simpleObject.getSimpleProperty());
+   }
+
+   @Test
+   public void testFinalFieldInjection() throws Exception
+   {
+      Field finalField = FinalFieldObject.class.getDeclaredField("finalProperty");
+      InjectionPoint<FinalFieldObject, String> injectionPoint = FieldHandleInjectionPoint.create(finalField);
+      Assert.assertTrue("Final fields should use a reflective injection point", injectionPoint instanceof FieldInjectionPoint);
+
+      FinalFieldObject finalFieldObject = new FinalFieldObject();
+      Injector<FinalFieldObject> injector = new Injector<FinalFieldObject>(injectionPoint, valueRetriever);
+      injector.inject(finalFieldObject);
+
+      Assert.assertEquals("Test Value", finalFieldObject.getFinalProperty());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testFieldHandleInjectionInvalidValue() throws Exception
+   {
+      InjectionPoint injectionPoint = new FieldHandleInjectionPoint<SimpleObject, Object>(SimpleObject.class.getDeclaredField("simpleProperty"));
+      try
+      {
+         injectionPoint.set(simpleObject, Integer.valueOf(1));
+         Assert.fail("Should not be able to inject a value of the wrong type");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+   }
+
    @Test
    public void testMethodInjectionInvalidMethod() throws Exception
    {
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.inject.test.pojo.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.pojo.FieldHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.GenericValueRetriever;
+import org.jboss.injection.inject.pojo.MethodHandleInjectionPoint;
+import org.jboss.injection.inject.pojo.UnboxingValueRetriever;
+import org.jboss.injection.inject.spi.PrimitiveValueRetriever;
+import org.jboss.injection.inject.spi.ValueRetriever;
+import org.jboss.injection.inject.test.pojo.support.PrimitiveObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test to verify primitive values are injected without going through the boxed value.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class PrimitiveInjectionTest
+{
+   private final PrimitiveValueRetriever<Object> valueRetriever = new PrimitiveValueRetriever<Object>()
+   {
+      public int getIntValue()
+      {
+         return 42;
+      }
+
+      public long getLongValue()
+      {
+         return 42L;
+      }
+
+      public boolean getBooleanValue()
+      {
+         return true;
+      }
+
+      public double getDoubleValue()
+      {
+         return 42.5;
+      }
+
+      public Object getValue()
+      {
+         throw new AssertionError("Boxed value should not be retrieved");
+      }
+   };
+
+   private PrimitiveObject primitiveObject = new PrimitiveObject();
+
+   @Test
+   public void testPrimitiveFieldInjection() throws Exception
+   {
+      inject(new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("intProperty")));
+      inject(new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("longProperty")));
+      inject(new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("booleanProperty")));
+      inject(new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("doubleProperty")));
+
+      Assert.assertEquals(42, primitiveObject.getIntProperty());
+      Assert.assertEquals(42L, primitiveObject.getLongProperty());
+      Assert.assertTrue(primitiveObject.isBooleanProperty());
+      Assert.assertEquals(42.5, primitiveObject.getDoubleProperty(), 0);
+   }
+
+   @Test
+   public void testPrimitiveMethodInjection() throws Exception
+   {
+      inject(new MethodHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredMethod("setIntProperty", int.class)));
+
+      Assert.assertEquals(42, primitiveObject.getIntProperty());
+   }
+
+   @Test
+   public void testBoxedValueInjection() throws Exception
+   {
+      Injector<PrimitiveObject> injector = new Injector<PrimitiveObject>(
+         new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("intProperty")),
+         new GenericValueRetriever<Object>(Integer.valueOf(7)));
+      injector.inject(primitiveObject);
+
+      Assert.assertEquals(7, primitiveObject.getIntProperty());
+   }
+
+   @Test
+   public void testUnboxingValueRetriever() throws Exception
+   {
+      final int[] retrievals = new int[1];
+      UnboxingValueRetriever<Object> unboxingValueRetriever = new UnboxingValueRetriever<Object>(new ValueRetriever<Object>()
+      {
+         public Object getValue()
+         {
+            return Integer.valueOf(++retrievals[0]);
+         }
+      });
+      Injector<PrimitiveObject> injector = new Injector<PrimitiveObject>(
+         new FieldHandleInjectionPoint<PrimitiveObject, Object>(PrimitiveObject.class.getDeclaredField("longProperty")), unboxingValueRetriever);
+
+      // The value is retrieved for every injection and widened to long
+      injector.inject(primitiveObject);
+      Assert.assertEquals(1L, primitiveObject.getLongProperty());
+      injector.inject(primitiveObject);
+      Assert.assertEquals(2L, primitiveObject.getLongProperty());
+
+      try
+      {
+         unboxingValueRetriever.getBooleanValue();
+         Assert.fail("Should not be able to convert an Integer to a boolean");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+   }
+
+   private void inject(FieldHandleInjectionPoint<PrimitiveObject, Object> injectionPoint)
+   {
+      new Injector<PrimitiveObject>(injectionPoint, valueRetriever).inject(primitiveObject);
+   }
+
+   private void inject(MethodHandleInjectionPoint<PrimitiveObject, Object> injectionPoint)
+   {
+      new Injector<PrimitiveObject>(injectionPoint, valueRetriever).inject(primitiveObject);
+   }
+}
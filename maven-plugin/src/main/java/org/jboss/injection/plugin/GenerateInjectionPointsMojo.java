@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.injection.naming.switchboard.SwitchBoardComponentMetaData;
+import org.jboss.injection.naming.switchboard.SwitchBoardMetaData;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.xb.binding.Unmarshaller;
+import org.jboss.xb.binding.UnmarshallerFactory;
+import org.jboss.xb.binding.sunday.unmarshalling.DefaultSchemaResolver;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates and compiles reflection free injection points for the injection targets declared in the
+ * -switchboard.xml descriptors of a module.  The generated classes are written next to the target classes
+ * and are picked up by the {@link org.jboss.injection.inject.naming.InjectionProcessor} at deploy time.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @goal generate-injection-points
+ * @phase process-classes
+ * @requiresDependencyResolution compile
+ */
+public class GenerateInjectionPointsMojo extends AbstractMojo
+{
+   private static final String DESCRIPTOR_SUFFIX = "-switchboard.xml";
+
+   /**
+    * The directory holding the compiled target classes, where the generated classes are also written.
+    *
+    * @parameter expression="${project.build.outputDirectory}"
+    * @required
+    */
+   private File classesDirectory;
+
+   /**
+    * The directory the generated sources are written to.
+    *
+    * @parameter expression="${project.build.directory}/generated-sources/injection-points"
+    * @required
+    */
+   private File generatedSourcesDirectory;
+
+   /**
+    * The SwitchBoard descriptors to generate injection points for.  Defaults to the -switchboard.xml files
+    * in the META-INF directory of the compiled classes.
+    *
+    * @parameter
+    */
+   private File[] descriptors;
+
+   /**
+    * The compile class path of the project.
+    *
+    * @parameter expression="${project.compileClasspathElements}"
+    * @required
+    * @readonly
+    */
+   private List<String> classpathElements;
+
+   /**
+    * The source level used to compile the generated sources.
+    *
+    * @parameter expression="${maven.compiler.source}"
+    */
+   private String source;
+
+   /**
+    * The target level used to compile the generated sources.
+    *
+    * @parameter expression="${maven.compiler.target}"
+    */
+   private String target;
+
+   /**
+    * Whether to skip the generation.
+    *
+    * @parameter expression="${injection.generate.skip}" default-value="false"
+    */
+   private boolean skip;
+
+   public void execute() throws MojoExecutionException
+   {
+      if(skip)
+      {
+         getLog().info("Skipping injection point generation");
+         return;
+      }
+      final List<File> descriptorFiles = getDescriptors();
+      if(descriptorFiles.isEmpty())
+      {
+         getLog().info("No SwitchBoard descriptors found");
+         return;
+      }
+
+      final List<File> classpath = new ArrayList<File>();
+      classpath.add(classesDirectory);
+      for(String element : classpathElements)
+         classpath.add(new File(element));
+
+      try
+      {
+         final URLClassLoader classLoader = new URLClassLoader(toUrls(classpath), ClassLoader.getSystemClassLoader().getParent());
+         final List<File> sources;
+         try
+         {
+            final InjectionPointGenerator generator = new InjectionPointGenerator(classLoader);
+            for(File descriptor : descriptorFiles)
+            {
+               final SwitchBoardMetaData switchBoardMetaData = parse(descriptor);
+               add(generator, switchBoardMetaData);
+               if(switchBoardMetaData.getComponents() != null)
+               {
+                  for(SwitchBoardComponentMetaData component : switchBoardMetaData.getComponents())
+                     add(generator, component);
+               }
+            }
+
+            sources = generator.generate(generatedSourcesDirectory);
+            for(Map.Entry<String, String> skipped : generator.getSkippedTargets().entrySet())
+               getLog().warn("No injection point generated for " + skipped.getKey() + ": " + skipped.getValue());
+         }
+         finally
+         {
+            // Release the jar files of the project class path, the Maven JVM outlives this build
+            classLoader.close();
+         }
+         InjectionPointGenerator.compile(sources, classesDirectory, classpath, source, target);
+         getLog().info("Generated injection points for " + sources.size() + " classes");
+      }
+      catch(MojoExecutionException e)
+      {
+         throw e;
+      }
+      catch(Exception e)
+      {
+         throw new MojoExecutionException("Failed to generate injection points", e);
+      }
+   }
+
+   private List<File> getDescriptors()
+   {
+      final List<File> descriptorFiles = new ArrayList<File>();
+      if(descriptors != null)
+      {
+         for(File descriptor : descriptors)
+            descriptorFiles.add(descriptor);
+         return descriptorFiles;
+      }
+      final File[] files = new File(classesDirectory, "META-INF").listFiles();
+      if(files != null)
+      {
+         for(File file : files)
+         {
+            if(file.isFile() && file.getName().endsWith(DESCRIPTOR_SUFFIX))
+               descriptorFiles.add(file);
+         }
+      }
+      return descriptorFiles;
+   }
+
+   private static void add(final InjectionPointGenerator generator, final Environment environment)
+   {
+      generator.add(environment.getEnvironmentEntries());
+      generator.add(environment.getEjbReferences());
+      generator.add(environment.getEjbLocalReferences());
+      generator.add(environment.getServiceReferences());
+      generator.add(environment.getResourceReferences());
+      generator.add(environment.getResourceEnvironmentReferences());
+      generator.add(environment.getMessageDestinationReferences());
+      generator.add(environment.getPersistenceContextRefs());
+      generator.add(environment.getPersistenceUnitRefs());
+   }
+
+   private static SwitchBoardMetaData parse(final File descriptor) throws Exception
+   {
+      final Unmarshaller unmarshaller = UnmarshallerFactory.newInstance().newUnmarshaller();
+      unmarshaller.setSchemaValidation(false);
+      unmarshaller.setValidation(false);
+      final InputStream in = new BufferedInputStream(new FileInputStream(descriptor));
+      try
+      {
+         final DefaultSchemaResolver resolver = new DefaultSchemaResolver();
+         resolver.addClassBinding("urn:jboss:switchboard:1.0", SwitchBoardMetaData.class);
+         return (SwitchBoardMetaData) unmarshaller.unmarshal(in, resolver);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private static URL[] toUrls(final List<File> files) throws Exception
+   {
+      final URL[] urls = new URL[files.size()];
+      for(int i = 0; i < urls.length; i++)
+         urls[i] = files.get(i).toURI().toURL();
+      return urls;
+   }
+}
@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.injection.inject.index.InjectionTargetIndex;
+import org.jboss.injection.inject.index.InjectionTargetIndexWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an {@link InjectionTargetIndex} of the injectable members of the compiled classes of a module.  The index is
+ * written to {@link InjectionTargetIndex#RESOURCE_NAME} in the classes directory, so it is shipped in the archive and
+ * lets the {@link org.jboss.injection.inject.naming.InjectionProcessor} plan injections without loading the target
+ * classes at deploy time.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @goal index-injection-targets
+ * @phase process-classes
+ * @requiresDependencyResolution compile
+ */
+public class IndexInjectionTargetsMojo extends AbstractMojo
+{
+   /**
+    * The directory holding the compiled classes to index.
+    *
+    * @parameter expression="${project.build.outputDirectory}"
+    * @required
+    */
+   private File classesDirectory;
+
+   /**
+    * The index file to write.  Defaults to the index resource in the classes directory.
+    *
+    * @parameter
+    */
+   private File indexFile;
+
+   /**
+    * The compile class path of the project.
+    *
+    * @parameter expression="${project.compileClasspathElements}"
+    * @required
+    * @readonly
+    */
+   private List<String> classpathElements;
+
+   /**
+    * Whether to skip the indexing.
+    *
+    * @parameter expression="${injection.index.skip}" default-value="false"
+    */
+   private boolean skip;
+
+   public void execute() throws MojoExecutionException
+   {
+      if(skip)
+      {
+         getLog().info("Skipping injection target indexing");
+         return;
+      }
+      if(!classesDirectory.isDirectory())
+      {
+         getLog().info("No classes to index in " + classesDirectory);
+         return;
+      }
+      final File file = indexFile != null ? indexFile : new File(classesDirectory, InjectionTargetIndex.RESOURCE_NAME);
+
+      final List<File> classpath = new ArrayList<File>();
+      classpath.add(classesDirectory);
+      if(classpathElements != null)
+      {
+         for(String element : classpathElements)
+            classpath.add(new File(element));
+      }
+
+      final InjectionTargetIndexWriter writer = new InjectionTargetIndexWriter();
+      try
+      {
+         final URLClassLoader classLoader = new URLClassLoader(toUrls(classpath), ClassLoader.getSystemClassLoader().getParent());
+         try
+         {
+            for(Map.Entry<String, String> skipped : writer.addClasses(classesDirectory, classLoader).entrySet())
+               getLog().warn("Class not indexed " + skipped.getKey() + ": " + skipped.getValue());
+         }
+         finally
+         {
+            classLoader.close();
+         }
+         writer.write(file);
+      }
+      catch(IOException e)
+      {
+         throw new MojoExecutionException("Failed to write injection target index " + file, e);
+      }
+      getLog().info("Indexed " + writer.size() + " injection target members in " + file);
+   }
+
+   private static URL[] toUrls(final List<File> files) throws IOException
+   {
+      final URL[] urls = new URL[files.size()];
+      for(int i = 0; i < urls.length; i++)
+         urls[i] = files.get(i).toURI().toURL();
+      return urls;
+   }
+}
@@ -0,0 +1,426 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin;
+
+import org.jboss.injection.inject.generated.AbstractGeneratedInjectionPoint;
+import org.jboss.injection.inject.generated.GeneratedInjectionPoints;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the source of {@link GeneratedInjectionPoints} classes for a set of injection targets.
+ * <p/>
+ * Injection targets are resolved to fields and setters with the same rules as the
+ * {@link org.jboss.injection.inject.naming.InjectionProcessor}.  The generated class is placed in the package of the
+ * target class and sets values with a plain field assignment or setter call, so only targets whose class, member
+ * and value type are accessible from that package can be generated.  Other targets are reported by
+ * {@link #getSkippedTargets()} and are resolved reflectively at deploy time as before.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionPointGenerator
+{
+   private final ClassLoader classLoader;
+
+   private final Map<String, Set<String>> targets = new LinkedHashMap<String, Set<String>>();
+
+   private final Map<String, String> skippedTargets = new LinkedHashMap<String, String>();
+
+   /**
+    * Create a new generator.
+    *
+    * @param classLoader The class loader used to load the injection target classes
+    */
+   public InjectionPointGenerator(final ClassLoader classLoader)
+   {
+      if(classLoader == null) throw new IllegalArgumentException("Class loader can not be null");
+      this.classLoader = classLoader;
+   }
+
+   /**
+    * Add the injection targets of a set of references.
+    *
+    * @param injections The references, may be null
+    */
+   public void add(final Iterable<? extends ResourceInjectionMetaData> injections)
+   {
+      if(injections == null)
+         return;
+      for(ResourceInjectionMetaData injection : injections)
+      {
+         final Set<ResourceInjectionTargetMetaData> injectionTargets = injection.getInjectionTargets();
+         if(injectionTargets == null)
+            continue;
+         for(ResourceInjectionTargetMetaData injectionTarget : injectionTargets)
+            add(injectionTarget.getInjectionTargetClass(), injectionTarget.getInjectionTargetName());
+      }
+   }
+
+   /**
+    * Add an injection target.
+    *
+    * @param className  The injection target class name
+    * @param targetName The injection target name
+    */
+   public void add(final String className, final String targetName)
+   {
+      Set<String> classTargets = targets.get(className);
+      if(classTargets == null)
+      {
+         classTargets = new LinkedHashSet<String>();
+         targets.put(className, classTargets);
+      }
+      classTargets.add(targetName);
+   }
+
+   /**
+    * Get the injection targets which could not be generated, with the reason.
+    *
+    * @return The skipped targets, keyed by class name and target name
+    */
+   public Map<String, String> getSkippedTargets()
+   {
+      return skippedTargets;
+   }
+
+   /**
+    * Generate the sources for all the injection targets added.
+    *
+    * @param sourceDirectory The directory to write the sources to
+    * @return The generated source files
+    * @throws IOException If a source file can not be written
+    */
+   public List<File> generate(final File sourceDirectory) throws IOException
+   {
+      final List<File> sources = new ArrayList<File>();
+      for(Map.Entry<String, Set<String>> entry : targets.entrySet())
+      {
+         final String className = entry.getKey();
+         final Class<?> targetClass;
+         try
+         {
+            targetClass = Class.forName(className, false, classLoader);
+         }
+         catch(ClassNotFoundException e)
+         {
+            skip(className, entry.getValue(), "class not found");
+            continue;
+         }
+         catch(LinkageError e)
+         {
+            skip(className, entry.getValue(), "class can not be loaded: " + e);
+            continue;
+         }
+         if(!isAccessible(targetClass, getPackageName(targetClass)))
+         {
+            skip(className, entry.getValue(), "class is not accessible from its package");
+            continue;
+         }
+
+         final Map<String, Member> members = new LinkedHashMap<String, Member>();
+         for(String targetName : entry.getValue())
+         {
+            final Member member = findMember(targetClass, targetName);
+            if(member != null)
+               members.put(targetName, member);
+         }
+         if(!members.isEmpty())
+            sources.add(write(sourceDirectory, targetClass, members));
+      }
+      return sources;
+   }
+
+   /**
+    * Compile generated sources.
+    *
+    * @param sources         The source files
+    * @param outputDirectory The directory to write the classes to, usually the directory holding the target classes
+    * @param classpath       The class path needed to compile the sources
+    * @param source          The source level, or null for the compiler default
+    * @param target          The target level, or null for the compiler default
+    * @throws IOException If the sources do not compile
+    */
+   public static void compile(final List<File> sources, final File outputDirectory, final List<File> classpath, final String source,
+      final String target) throws IOException
+   {
+      if(sources.isEmpty())
+         return;
+      final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      if(compiler == null)
+         throw new IOException("No system Java compiler is available, a JDK is required to compile generated injection points");
+
+      final StringBuilder path = new StringBuilder();
+      for(File entry : classpath)
+      {
+         if(path.length() > 0)
+            path.append(File.pathSeparatorChar);
+         path.append(entry.getAbsolutePath());
+      }
+      final List<String> options = new ArrayList<String>();
+      options.add("-d");
+      options.add(outputDirectory.getAbsolutePath());
+      options.add("-classpath");
+      options.add(path.toString());
+      if(source != null)
+      {
+         options.add("-source");
+         options.add(source);
+      }
+      if(target != null)
+      {
+         options.add("-target");
+         options.add(target);
+      }
+
+      final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+      try
+      {
+         final Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sources);
+         if(!compiler.getTask(null, fileManager, null, options, null, compilationUnits).call())
+            throw new IOException("Failed to compile generated injection points " + sources);
+      }
+      finally
+      {
+         fileManager.close();
+      }
+   }
+
+   /**
+    * Find the member for a target name.  Mirrors the InjectionProcessor: a non private single argument setter
+    * declared by the class is preferred to a declared field.
+    */
+   private Member findMember(final Class<?> targetClass, final String targetName)
+   {
+      final String packageName = getPackageName(targetClass);
+      final String methodName = "set" + targetName;
+      for(Method method : targetClass.getDeclaredMethods())
+      {
+         if(Modifier.isPrivate(method.getModifiers()) || method.getParameterTypes().length != 1 || !method.getName().equals(methodName))
+            continue;
+         if(!isAccessible(method.getParameterTypes()[0], packageName))
+         {
+            skip(targetClass.getName(), targetName, "setter parameter type is not accessible");
+            return null;
+         }
+         return method;
+      }
+      final Field field;
+      try
+      {
+         field = targetClass.getDeclaredField(targetName);
+      }
+      catch(NoSuchFieldException e)
+      {
+         skip(targetClass.getName(), targetName, "no setter or field found");
+         return null;
+      }
+      if(Modifier.isPrivate(field.getModifiers()))
+      {
+         skip(targetClass.getName(), targetName, "field is private");
+         return null;
+      }
+      if(Modifier.isFinal(field.getModifiers()))
+      {
+         skip(targetClass.getName(), targetName, "field is final");
+         return null;
+      }
+      if(!isAccessible(field.getType(), packageName))
+      {
+         skip(targetClass.getName(), targetName, "field type is not accessible");
+         return null;
+      }
+      return field;
+   }
+
+   private File write(final File sourceDirectory, final Class<?> targetClass, final Map<String, Member> members) throws IOException
+   {
+      final String packageName = getPackageName(targetClass);
+      final String generatedName = targetClass.getName().substring(packageName.length() == 0 ? 0 : packageName.length() + 1)
+         + GeneratedInjectionPoints.CLASS_SUFFIX;
+      final File directory = packageName.length() == 0 ? sourceDirectory : new File(sourceDirectory, packageName.replace('.', File.separatorChar));
+      if(!directory.isDirectory() && !directory.mkdirs())
+         throw new IOException("Failed to create directory " + directory);
+      final File file = new File(directory, generatedName + ".java");
+
+      final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try
+      {
+         if(packageName.length() > 0)
+         {
+            out.println("package " + packageName + ";");
+            out.println();
+         }
+         out.println("/**");
+         out.println(" * Injection points for " + targetClass.getName() + ", generated by the jboss-injection-maven-plugin.  Do not edit.");
+         out.println(" */");
+         out.println("public final class " + generatedName + " implements " + GeneratedInjectionPoints.class.getName());
+         out.println("{");
+         out.println("   public " + generatedName + "()");
+         out.println("   {");
+         out.println("   }");
+         out.println();
+         out.println("   public org.jboss.injection.inject.spi.InjectionPoint<Object, Object> getInjectionPoint(final String targetName)");
+         out.println("   {");
+         int index = 0;
+         for(String targetName : members.keySet())
+         {
+            out.println("      if(\"" + escape(targetName) + "\".equals(targetName))");
+            out.println("         return new InjectionPoint" + index++ + "();");
+         }
+         out.println("      return null;");
+         out.println("   }");
+
+         index = 0;
+         for(Member member : members.values())
+         {
+            out.println();
+            writeInjectionPoint(out, "InjectionPoint" + index++, targetClass, member);
+         }
+         out.println("}");
+      }
+      finally
+      {
+         out.close();
+      }
+      return file;
+   }
+
+   private static void writeInjectionPoint(final PrintWriter out, final String name, final Class<?> targetClass, final Member member)
+   {
+      final Class<?> valueType = member instanceof Method ? ((Method) member).getParameterTypes()[0] : ((Field) member).getType();
+      final String targetType = targetClass.getCanonicalName();
+      final String receiver = Modifier.isStatic(member.getModifiers()) ? targetType : "((" + targetType + ") target)";
+
+      out.println("   private static final class " + name + " extends " + AbstractGeneratedInjectionPoint.class.getName() + "<Object, Object>");
+      out.println("   {");
+      out.println("      private " + name + "()");
+      out.println("      {");
+      out.println("         super(" + targetType + ".class, " + valueType.getCanonicalName() + ".class);");
+      out.println("      }");
+      out.println();
+      out.println("      @SuppressWarnings(\"unchecked\")");
+      out.println("      public void set(final Object target, final Object value)");
+      out.println("      {");
+      out.println("         " + assignment(receiver, member, toValue(valueType)) + ";");
+      out.println("      }");
+      if(valueType == int.class || valueType == long.class || valueType == boolean.class || valueType == double.class)
+      {
+         final String typeName = valueType.getName();
+         out.println();
+         out.println("      @Override");
+         out.println("      public void set" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1) + "(final Object target, final " + typeName + " value)");
+         out.println("      {");
+         out.println("         " + assignment(receiver, member, "value") + ";");
+         out.println("      }");
+      }
+      out.println();
+      out.println("      @Override");
+      out.println("      public String toString()");
+      out.println("      {");
+      out.println("         return \"" + name + "{member=" + escape(member.toString()) + "}\";");
+      out.println("      }");
+      out.println("   }");
+   }
+
+   private static String assignment(final String receiver, final Member member, final String value)
+   {
+      if(member instanceof Method)
+         return receiver + "." + member.getName() + "(" + value + ")";
+      return receiver + "." + member.getName() + " = " + value;
+   }
+
+   /**
+    * Check and convert the value to the exact value type, so the same setter is selected even if it is overloaded.
+    * Invalid values fail with the IllegalArgumentException of the reflective injection points and boxed primitives
+    * are widened as with {@link Field#set(Object, Object)}.
+    */
+   private static String toValue(final Class<?> valueType)
+   {
+      if(!valueType.isPrimitive())
+         return "(" + valueType.getCanonicalName() + ") checkValue(value)";
+      final String typeName = valueType.getName();
+      return "to" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1) + "(value)";
+   }
+
+   /**
+    * Whether a type can be named from generated code in a package.
+    */
+   private static boolean isAccessible(final Class<?> type, final String packageName)
+   {
+      if(type.isArray())
+         return isAccessible(type.getComponentType(), packageName);
+      if(type.isPrimitive())
+         return true;
+      if(type.getCanonicalName() == null)
+         return false;
+      final int modifiers = type.getModifiers();
+      if(Modifier.isPrivate(modifiers))
+         return false;
+      if(!Modifier.isPublic(modifiers) && !getPackageName(type).equals(packageName))
+         return false;
+      final Class<?> enclosingClass = type.getEnclosingClass();
+      return enclosingClass == null || isAccessible(enclosingClass, packageName);
+   }
+
+   private static String getPackageName(final Class<?> type)
+   {
+      final String name = type.getName();
+      final int index = name.lastIndexOf('.');
+      return index < 0 ? "" : name.substring(0, index);
+   }
+
+   private static String escape(final String value)
+   {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"");
+   }
+
+   private void skip(final String className, final Iterable<String> targetNames, final String reason)
+   {
+      for(String targetName : targetNames)
+         skip(className, targetName, reason);
+   }
+
+   private void skip(final String className, final String targetName, final String reason)
+   {
+      skippedTargets.put(className + "." + targetName, reason);
+   }
+}
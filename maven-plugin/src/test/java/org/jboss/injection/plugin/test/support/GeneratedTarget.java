@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin.test.support;
+
+/**
+ * Injection target with members of every visibility.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class GeneratedTarget
+{
+   String packageField;
+
+   protected int intField;
+
+   long longField;
+
+   float floatField;
+
+   GeneratedTarget parentField;
+
+   private String privateField;
+
+   private String setterValue;
+
+   static String staticField;
+
+   public String getPackageField()
+   {
+      return packageField;
+   }
+
+   public int getIntField()
+   {
+      return intField;
+   }
+
+   public long getLongField()
+   {
+      return longField;
+   }
+
+   public float getFloatField()
+   {
+      return floatField;
+   }
+
+   public GeneratedTarget getParentField()
+   {
+      return parentField;
+   }
+
+   public String getPrivateField()
+   {
+      return privateField;
+   }
+
+   public String getSetterValue()
+   {
+      return setterValue;
+   }
+
+   public void setSetterValue(final String setterValue)
+   {
+      this.setterValue = setterValue;
+   }
+
+   public static String getStaticField()
+   {
+      return staticField;
+   }
+}
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin.test.unit;
+
+import org.jboss.injection.inject.generated.GeneratedInjectionPoints;
+import org.jboss.injection.plugin.GenerateInjectionPointsMojo;
+import org.jboss.injection.plugin.test.support.DescriptorTarget;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test to verify the mojo generates and compiles injection points for the targets of a SwitchBoard descriptor.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class GenerateInjectionPointsMojoTest
+{
+   @Test
+   public void testExecute() throws Exception
+   {
+      final File classesDirectory = new File(DescriptorTarget.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      final File descriptor = new File(getClass().getResource("/descriptor-switchboard.xml").toURI());
+      final File generatedSourcesDirectory = new File(System.getProperty("java.io.tmpdir"), "generated-injection-points-" + System.nanoTime());
+      final List<String> classpathElements = new ArrayList<String>(Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+
+      final GenerateInjectionPointsMojo mojo = new GenerateInjectionPointsMojo();
+      setParameter(mojo, "classesDirectory", classesDirectory);
+      setParameter(mojo, "generatedSourcesDirectory", generatedSourcesDirectory);
+      setParameter(mojo, "descriptors", new File[] {descriptor});
+      setParameter(mojo, "classpathElements", classpathElements);
+      mojo.execute();
+
+      final String generatedName = DescriptorTarget.class.getName() + GeneratedInjectionPoints.CLASS_SUFFIX;
+      Assert.assertTrue(new File(generatedSourcesDirectory, generatedName.replace('.', File.separatorChar) + ".java").isFile());
+      Assert.assertTrue(new File(classesDirectory, generatedName.replace('.', File.separatorChar) + ".class").isFile());
+
+      final GeneratedInjectionPoints injectionPoints = (GeneratedInjectionPoints) Class.forName(generatedName).newInstance();
+      // The module reference targets a private field, which is skipped
+      Assert.assertNull(injectionPoints.getInjectionPoint("privateBean"));
+      final DescriptorTarget target = new DescriptorTarget();
+      injectionPoints.getInjectionPoint("bean").set(target, "Bean");
+      Assert.assertEquals("Bean", target.getBean());
+   }
+
+   @Test
+   public void testSkip() throws Exception
+   {
+      final File generatedSourcesDirectory = new File(System.getProperty("java.io.tmpdir"), "generated-injection-points-" + System.nanoTime());
+      final GenerateInjectionPointsMojo mojo = new GenerateInjectionPointsMojo();
+      setParameter(mojo, "generatedSourcesDirectory", generatedSourcesDirectory);
+      setParameter(mojo, "skip", Boolean.TRUE);
+      mojo.execute();
+      Assert.assertFalse(generatedSourcesDirectory.exists());
+   }
+
+   private static void setParameter(final GenerateInjectionPointsMojo mojo, final String name, final Object value) throws Exception
+   {
+      final Field field = GenerateInjectionPointsMojo.class.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(mojo, value);
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin.test.unit;
+
+import org.jboss.injection.inject.index.IndexedMember;
+import org.jboss.injection.inject.index.InjectionTargetIndex;
+import org.jboss.injection.plugin.IndexInjectionTargetsMojo;
+import org.jboss.injection.plugin.test.support.DescriptorTarget;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test to verify the mojo writes an injection target index of the compiled classes.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class IndexInjectionTargetsMojoTest
+{
+   @Test
+   public void testExecute() throws Exception
+   {
+      final File classesDirectory = new File(DescriptorTarget.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      final File indexFile = new File(System.getProperty("java.io.tmpdir"), "injection-targets-" + System.nanoTime() + ".idx");
+      final List<String> classpathElements = new ArrayList<String>(Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+
+      final IndexInjectionTargetsMojo mojo = new IndexInjectionTargetsMojo();
+      setParameter(mojo, "classesDirectory", classesDirectory);
+      setParameter(mojo, "indexFile", indexFile);
+      setParameter(mojo, "classpathElements", classpathElements);
+      try
+      {
+         mojo.execute();
+
+         final InjectionTargetIndex index = InjectionTargetIndex.map(indexFile);
+         final IndexedMember member = index.lookup(DescriptorTarget.class.getName(), "bean");
+         Assert.assertNotNull(member);
+         Assert.assertEquals(IndexedMember.Kind.FIELD, member.getKind());
+         Assert.assertEquals(Object.class.getName(), member.getTypeName());
+      }
+      finally
+      {
+         indexFile.delete();
+      }
+   }
+
+   @Test
+   public void testSkip() throws Exception
+   {
+      final File indexFile = new File(System.getProperty("java.io.tmpdir"), "injection-targets-" + System.nanoTime() + ".idx");
+      final IndexInjectionTargetsMojo mojo = new IndexInjectionTargetsMojo();
+      setParameter(mojo, "indexFile", indexFile);
+      setParameter(mojo, "skip", Boolean.TRUE);
+      mojo.execute();
+      Assert.assertFalse(indexFile.exists());
+   }
+
+   private static void setParameter(final IndexInjectionTargetsMojo mojo, final String name, final Object value) throws Exception
+   {
+      final Field field = IndexInjectionTargetsMojo.class.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(mojo, value);
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.plugin.test.unit;
+
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.generated.AbstractGeneratedInjectionPoint;
+import org.jboss.injection.inject.generated.GeneratedInjectionPoints;
+import org.jboss.injection.inject.naming.InjectionProcessor;
+import org.jboss.injection.inject.spi.InjectionPoint;
+import org.jboss.injection.plugin.InjectionPointGenerator;
+import org.jboss.injection.plugin.test.support.GeneratedTarget;
+import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
+import org.jboss.metadata.javaee.spec.Environment;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test to verify generated injection points compile and are used by the InjectionProcessor.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class InjectionPointGeneratorTest
+{
+   private static InjectionPointGenerator generator;
+
+   @BeforeClass
+   public static void generate() throws Exception
+   {
+      generator = new InjectionPointGenerator(InjectionPointGeneratorTest.class.getClassLoader());
+      for(String targetName : new String[] {"packageField", "intField", "longField", "floatField", "parentField", "privateField", "SetterValue",
+         "staticField", "missing"})
+         generator.add(GeneratedTarget.class.getName(), targetName);
+
+      final File sourceDirectory = new File(System.getProperty("java.io.tmpdir"), "generated-injection-points-" + System.nanoTime());
+      final List<File> sources = generator.generate(sourceDirectory);
+      Assert.assertEquals(1, sources.size());
+
+      // The generated class must be defined by the same class loader as the target class
+      final File classesDirectory = getClassesDirectory();
+      final List<File> classpath = new ArrayList<File>();
+      for(String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+         classpath.add(new File(entry));
+      InjectionPointGenerator.compile(sources, classesDirectory, classpath, null, null);
+   }
+
+   @Test
+   public void testSkippedTargets() throws Exception
+   {
+      Assert.assertEquals("field is private", generator.getSkippedTargets().get(GeneratedTarget.class.getName() + ".privateField"));
+      Assert.assertEquals("no setter or field found", generator.getSkippedTargets().get(GeneratedTarget.class.getName() + ".missing"));
+      Assert.assertEquals(2, generator.getSkippedTargets().size());
+   }
+
+   @Test
+   public void testGeneratedInjectionPoints() throws Exception
+   {
+      final GeneratedInjectionPoints injectionPoints = getGeneratedInjectionPoints();
+      Assert.assertNull(injectionPoints.getInjectionPoint("privateField"));
+
+      final GeneratedTarget target = new GeneratedTarget();
+      injectionPoints.getInjectionPoint("packageField").set(target, "Package Value");
+      injectionPoints.getInjectionPoint("SetterValue").set(target, "Setter Value");
+      injectionPoints.getInjectionPoint("staticField").set(null, "Static Value");
+      final AbstractGeneratedInjectionPoint<Object, Object> intInjectionPoint = (AbstractGeneratedInjectionPoint<Object, Object>) injectionPoints.getInjectionPoint("intField");
+      Assert.assertEquals(int.class, intInjectionPoint.getPrimitiveType());
+      intInjectionPoint.setInt(target, 42);
+
+      Assert.assertEquals("Package Value", target.getPackageField());
+      Assert.assertEquals("Setter Value", target.getSetterValue());
+      Assert.assertEquals("Static Value", GeneratedTarget.getStaticField());
+      Assert.assertEquals(42, target.getIntField());
+   }
+
+   @Test
+   public void testPrimitiveWidening() throws Exception
+   {
+      final GeneratedInjectionPoints injectionPoints = getGeneratedInjectionPoints();
+      final GeneratedTarget target = new GeneratedTarget();
+      injectionPoints.getInjectionPoint("intField").set(target, Character.valueOf('a'));
+      injectionPoints.getInjectionPoint("longField").set(target, Integer.valueOf(42));
+      injectionPoints.getInjectionPoint("floatField").set(target, Long.valueOf(7));
+
+      Assert.assertEquals('a', target.getIntField());
+      Assert.assertEquals(42L, target.getLongField());
+      Assert.assertEquals(7f, target.getFloatField(), 0f);
+
+      try
+      {
+         injectionPoints.getInjectionPoint("intField").set(target, Long.valueOf(1));
+         Assert.fail("A long value should not be narrowed to an int");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+      try
+      {
+         injectionPoints.getInjectionPoint("intField").set(target, null);
+         Assert.fail("A null value can not be set on a primitive");
+      }
+      catch(IllegalArgumentException expected)
+      {
+      }
+   }
+
+   @Test
+   public void testInvalidValue() throws Exception
+   {
+      final GeneratedInjectionPoints injectionPoints = getGeneratedInjectionPoints();
+      final GeneratedTarget target = new GeneratedTarget();
+      try
+      {
+         injectionPoints.getInjectionPoint("packageField").set(target, Integer.valueOf(1));
+         Assert.fail("An Integer can not be set on a String field");
+      }
+      catch(IllegalArgumentException expected)
+      {
+         Assert.assertTrue(expected.getMessage(), expected.getMessage().startsWith("failed to set value 1 on "));
+      }
+
+      // The same class defined by another class loader
+      final ClassLoader otherLoader = new URLClassLoader(new URL[] {getClassesDirectory().toURI().toURL()}, null);
+      final Object otherTarget = otherLoader.loadClass(GeneratedTarget.class.getName()).newInstance();
+      try
+      {
+         injectionPoints.getInjectionPoint("parentField").set(target, otherTarget);
+         Assert.fail("A value from another class loader can not be set");
+      }
+      catch(IllegalArgumentException expected)
+      {
+         Assert.assertTrue(expected.getMessage(), expected.getMessage().endsWith("; Reason: ClassLoaders of value and target are not equal"));
+      }
+      Assert.assertNull(target.getParentField());
+   }
+
+   @Test
+   public void testGeneratedInjectionPointsDisabledByDefault() throws Exception
+   {
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor("packageField")));
+      processor.process(new ConstantContext("value"), getClass().getClassLoader(), null);
+      Assert.assertFalse(getInjectionPoint(processor, "packageField") instanceof AbstractGeneratedInjectionPoint);
+   }
+
+   @Test
+   public void testInjectionProcessor() throws Exception
+   {
+      final InjectionProcessor processor = new InjectionProcessor(Collections.singletonList(createVisitor("packageField", "privateField", "intField")));
+      processor.setGeneratedInjectionPoints(true);
+      final List<Injector<Object>> injectors = processor.process(new ConstantContext(Integer.valueOf(7)), getClass().getClassLoader(), null);
+      Assert.assertEquals(3, injectors.size());
+      Assert.assertTrue(getInjectionPoint(processor, "packageField") instanceof AbstractGeneratedInjectionPoint);
+      // Private targets fall back to the reflective injection points
+      Assert.assertFalse(getInjectionPoint(processor, "privateField") instanceof AbstractGeneratedInjectionPoint);
+
+      final GeneratedTarget target = new GeneratedTarget();
+      // The int field is injected, the String fields fail on the Integer value
+      for(Injector<Object> injector : injectors)
+      {
+         try
+         {
+            injector.inject(target);
+         }
+         catch(RuntimeException ignored)
+         {
+         }
+      }
+      Assert.assertEquals(7, target.getIntField());
+   }
+
+   private static File getClassesDirectory() throws Exception
+   {
+      return new File(GeneratedTarget.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+   }
+
+   private static GeneratedInjectionPoints getGeneratedInjectionPoints() throws Exception
+   {
+      return (GeneratedInjectionPoints) Class.forName(GeneratedTarget.class.getName() + GeneratedInjectionPoints.CLASS_SUFFIX).newInstance();
+   }
+
+   private static InjectionPoint<Object, Object> getInjectionPoint(final InjectionProcessor processor, final String targetName)
+   {
+      return processor.getInjectionPointCache().get(InjectionPointGeneratorTest.class.getClassLoader(), GeneratedTarget.class.getName(), targetName);
+   }
+
+   private EnvironmentMetaDataVisitor<ResourceInjectionMetaData> createVisitor(final String... targetNames)
+   {
+      final Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      for(String targetName : targetNames)
+      {
+         final ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+         injectionTarget.setInjectionTargetClass(GeneratedTarget.class.getName());
+         injectionTarget.setInjectionTargetName(targetName);
+         injectionTargets.add(injectionTarget);
+      }
+      final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+      environmentEntry.setEnvEntryName("env/test");
+      environmentEntry.setInjectionTargets(injectionTargets);
+
+      return new EnvironmentMetaDataVisitor<ResourceInjectionMetaData>()
+      {
+         public Iterable<ResourceInjectionMetaData> getMetaData(final Environment environment)
+         {
+            return Collections.<ResourceInjectionMetaData>singletonList(environmentEntry);
+         }
+
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+      };
+   }
+
+   /**
+    * Context which returns the same value for every lookup.
+    */
+   private static class ConstantContext extends InitialContext
+   {
+      private final Object value;
+
+      private ConstantContext(final Object value) throws NamingException
+      {
+         super(true);
+         this.value = value;
+      }
+
+      @Override
+      public Object lookup(final String name)
+      {
+         return value;
+      }
+   }
+}
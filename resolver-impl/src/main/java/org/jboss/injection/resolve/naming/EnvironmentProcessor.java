@@ -21,18 +21,27 @@
  */
 package org.jboss.injection.resolve.naming;
 
+import org.jboss.injection.resolve.spi.BatchResolver;
 import org.jboss.injection.resolve.spi.DuplicateReferenceValidator;
 import org.jboss.injection.resolve.spi.DuplicateReferenceValidator.ReferenceResultPair;
 import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
 import org.jboss.injection.resolve.spi.Resolver;
 import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.injection.resolve.spi.ResolverResultConsumer;
 import org.jboss.metadata.javaee.spec.Environment;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Process an {@link Environment} instance and creates all the {@link ResolverResult}
@@ -47,6 +56,10 @@ public class EnvironmentProcessor<C>
    private Map<Class<?>, Resolver<?, C, ?>> resolvers;
    private List<EnvironmentMetaDataVisitor<?>> visitors;
    private Map<Class<?>, DuplicateReferenceValidator<?>> duplicateReferenceValidators;
+   private volatile ExecutorService executor;
+   private volatile ResolverCache<C> resolverCache;
+   private volatile ResolverLookup resolverLookup;
+   private volatile List<PlannedVisitor<?>> plan;
 
    /**
     * Construct a new processor.  There will be no visitors or resolvers available.
@@ -94,63 +107,358 @@ public class EnvironmentProcessor<C>
     * @throws ResolutionException if any resolution problems occur
     */
    public List<ResolverResult<?>> process(C context, Iterable<Environment> environments) throws ResolutionException {
-      final MappedResults mappedresults = new MappedResults();
+      return process(context, environments, (ResolvedReferences) null, (ResolvedReferences) null);
+   }
+
+   /**
+    * Processes the Environment and returns the resolver results, reusing the results of references
+    * which are unchanged since a previous call.  Only new or modified references are resolved.
+    *
+    * @param context The context in which to resolve (usually DeploymentUnit)
+    * @param environments Environments to process references for
+    * @param previous The references processed by a previous call, or null to resolve every reference
+    * @param current Receives the references processed by this call, may be null
+    * @return The resolver results
+    * @throws ResolutionException if any resolution problems occur
+    */
+   public List<ResolverResult<?>> process(C context, Iterable<Environment> environments, ResolvedReferences previous, ResolvedReferences current) throws ResolutionException
+   {
+      final List<ResolverResult<?>> results = new LinkedList<ResolverResult<?>>();
+      process(context, environments, previous, current, new ResolverResultConsumer()
+      {
+         public void accept(final ResolverResult<?> result)
+         {
+            results.add(result);
+         }
+      });
+      return results;
+   }
+
+   /**
+    * Processes the Environment and passes each resolver result to a consumer as soon as it is accepted,
+    * without collecting the results.
+    *
+    * @param context The context in which to resolve (usually DeploymentUnit)
+    * @param environments Environments to process references for
+    * @param consumer Receives the resolver results, in the same order they would be returned
+    * @throws ResolutionException if any resolution problems occur, possibly after some results were consumed
+    */
+   public void process(C context, Iterable<Environment> environments, ResolverResultConsumer consumer) throws ResolutionException
+   {
+      process(context, environments, null, null, consumer);
+   }
+
+   /**
+    * Processes the Environment and passes each resolver result to a consumer as soon as it is accepted,
+    * reusing the results of references which are unchanged since a previous call.
+    *
+    * @param context The context in which to resolve (usually DeploymentUnit)
+    * @param environments Environments to process references for
+    * @param previous The references processed by a previous call, or null to resolve every reference
+    * @param current Receives the references processed by this call, may be null
+    * @param consumer Receives the resolver results, in the same order they would be returned
+    * @throws ResolutionException if any resolution problems occur, possibly after some results were consumed
+    */
+   public void process(C context, Iterable<Environment> environments, ResolvedReferences previous, ResolvedReferences current, ResolverResultConsumer consumer) throws ResolutionException
+   {
+      final MappedResults mappedresults = new MappedResults(previous, current, consumer);
+      final List<PlannedVisitor<?>> plan = getPlan();
+
+      if(executor != null || hasBatchResolver(plan))
+      {
+         processCollected(context, environments, plan, mappedresults);
+         return;
+      }
 
       for(Environment environment : environments)
       {
-         for(EnvironmentMetaDataVisitor<?> visitor : visitors)
+         for(PlannedVisitor<?> plannedVisitor : plan)
          {
-            process(context, environment, visitor, mappedresults);
+            process(context, environment, plannedVisitor, mappedresults);
          }
       }
-      return mappedresults.results;
    }
 
+   private boolean hasBatchResolver(final List<PlannedVisitor<?>> plan)
+   {
+      for(PlannedVisitor<?> plannedVisitor : plan)
+      {
+         if(plannedVisitor.resolver instanceof BatchResolver)
+            return true;
+      }
+      return false;
+   }
 
-   protected <M> void process(C context, Environment environment, EnvironmentMetaDataVisitor<M> visitor, MappedResults mappedresults) throws ResolutionException
+   /**
+    * Collect all references first, resolve them on the executor and through batch resolvers, and merge the
+    * results in visitor order.  Any failure, including a conflict, is reported for the first failing reference
+    * in that order, exactly as the sequential processing would.  A failing batch is reported for the first
+    * reference of the batch.  References after it may still have been resolved.
+    */
+   private void processCollected(final C context, final Iterable<Environment> environments, final List<PlannedVisitor<?>> plan, final MappedResults mappedresults) throws ResolutionException
    {
-      final Iterable<M> references = visitor.getMetaData(environment);
+      final List<PendingReference<?>> pendingReferences = new ArrayList<PendingReference<?>>();
+      final Map<Class<?>, ResolverBatch<?>> batches = new LinkedHashMap<Class<?>, ResolverBatch<?>>();
+      int unresolved = 0;
+      for(Environment environment : environments)
+      {
+         for(PlannedVisitor<?> plannedVisitor : plan)
+         {
+            unresolved += collect(environment, plannedVisitor, mappedresults, pendingReferences, batches);
+         }
+      }
+      final ExecutorService executor = this.executor;
+      if(executor != null && unresolved > 1)
+      {
+         for(PendingReference<?> pendingReference : pendingReferences)
+            pendingReference.submit(context, executor);
+         for(ResolverBatch<?> batch : batches.values())
+            batch.submit(context, executor);
+      }
+
+      boolean merged = false;
+      try
+      {
+         for(PendingReference<?> pendingReference : pendingReferences)
+            pendingReference.merge(context, mappedresults);
+         merged = true;
+      }
+      finally
+      {
+         if(!merged)
+         {
+            for(PendingReference<?> pendingReference : pendingReferences)
+               pendingReference.cancel();
+            for(ResolverBatch<?> batch : batches.values())
+               batch.cancel();
+         }
+      }
+   }
+
+   /**
+    * Collect the references of a visitor.  References for a batch resolver are added to the batch for their
+    * metadata type.
+    *
+    * @return The number of units of work added, counting each new batch once
+    */
+   private <M> int collect(final Environment environment, final PlannedVisitor<M> plannedVisitor, final MappedResults mappedresults,
+      final List<PendingReference<?>> pendingReferences, final Map<Class<?>, ResolverBatch<?>> batches)
+   {
+      final Iterable<M> references = plannedVisitor.visitor.getMetaData(environment);
+      if(references == null)
+         return 0;
+      final Class<M> referenceType = plannedVisitor.metaDataType;
+      int unresolved = 0;
+      for(M reference : references)
+      {
+         if(reference == null)
+            continue;
+         final Object fingerprint = mappedresults.fingerprint(referenceType, reference);
+         final ResolverResult<?> previousResult = mappedresults.getPrevious(fingerprint);
+         final Resolver<M, C, ?> resolver = previousResult == null ? plannedVisitor.resolver : null;
+         final PendingReference<M> pendingReference = new PendingReference<M>(referenceType, reference, fingerprint, previousResult, resolver);
+         if(resolver instanceof BatchResolver)
+         {
+            @SuppressWarnings("unchecked")
+            ResolverBatch<M> batch = (ResolverBatch<M>) batches.get(referenceType);
+            if(batch == null)
+            {
+               batch = new ResolverBatch<M>((BatchResolver<M, C, ?>) resolver);
+               batches.put(referenceType, batch);
+               unresolved++;
+            }
+            pendingReference.batch = batch;
+            pendingReference.batchIndex = batch.add(reference);
+         }
+         else if(resolver != null)
+         {
+            unresolved++;
+         }
+         pendingReferences.add(pendingReference);
+      }
+      return unresolved;
+   }
+
+
+   private <M> void process(C context, Environment environment, PlannedVisitor<M> plannedVisitor, MappedResults mappedresults) throws ResolutionException
+   {
+      final Iterable<M> references = plannedVisitor.visitor.getMetaData(environment);
       if(references == null)
          return;
       for(M reference : references)
       {
-         process(context, reference, visitor.getMetaDataType(), mappedresults);
+         process(context, reference, plannedVisitor.metaDataType, plannedVisitor.resolver, mappedresults);
       }
    }
 
-   protected <M> void process(C context, M reference, Class<M> referenceType, MappedResults mappedresults) throws ResolutionException
+   private <M> void process(C context, M reference, Class<M> referenceType, Resolver<M, C, ?> resolver, MappedResults mappedresults) throws ResolutionException
    {
       if(reference == null)
          return;
 
-      final Resolver<M, C, ?> resolver = getResolver(referenceType);
+      final Object fingerprint = mappedresults.fingerprint(referenceType, reference);
+      final ResolverResult<?> previousResult = mappedresults.getPrevious(fingerprint);
+      if(previousResult != null)
+      {
+         mappedresults.add(referenceType, reference, previousResult, fingerprint, true);
+         return;
+      }
 
       if(resolver == null)
       {
          throw new ResolutionException("Found reference [" + reference + "] but no Resolver could be found for type [" + referenceType + "]");
       }
 
-      final ResolverResult<?> result = resolver.resolve(context, reference);
+      final ResolverResult<?> result = resolve(resolver, context, reference);
       if(result == null)
          throw new ResolutionException("Found reference [" + reference + "] but resolution failed to produce a result");
-      mappedresults.add(referenceType, reference, result);
+      mappedresults.add(referenceType, reference, result, fingerprint, false);
+   }
+
+   private <M> ResolverResult<?> resolve(final Resolver<M, C, ?> resolver, final C context, final M reference)
+   {
+      final ResolverCache<C> resolverCache = this.resolverCache;
+      if(resolverCache == null)
+         return resolver.resolve(context, reference);
+      return resolverCache.resolve(resolver, context, reference);
+   }
+
+   private <M> List<? extends ResolverResult> resolveAll(final BatchResolver<M, C, ?> resolver, final C context, final List<M> references)
+   {
+      final ResolverCache<C> resolverCache = this.resolverCache;
+      if(resolverCache == null)
+         return resolver.resolveAll(context, references);
+      return resolverCache.resolveAll(resolver, context, references);
    }
 
+   /**
+    * Get the resolver for a metadata type.  A resolver registered for the type itself is preferred, then
+    * one registered for the closest superclass, then one registered for any of its interfaces, nearest
+    * first.  The answer is computed once per metadata type.
+    *
+    * @param metaDataType The metadata type
+    * @return The resolver or null if none is registered for the type or its supertypes
+    */
    @SuppressWarnings("unchecked")
    protected <M, C> Resolver<M, C, ?> getResolver(Class<M> metaDataType)
    {
-      return (Resolver<M, C, ?>) resolvers.get(metaDataType);
+      return (Resolver<M, C, ?>) getResolverLookup().get(metaDataType);
+   }
+
+   private ResolverLookup getResolverLookup()
+   {
+      ResolverLookup resolverLookup = this.resolverLookup;
+      if(resolverLookup == null)
+      {
+         synchronized(this)
+         {
+            resolverLookup = this.resolverLookup;
+            if(resolverLookup == null)
+            {
+               resolverLookup = new ResolverLookup(new HashMap<Class<?>, Resolver<?, C, ?>>(resolvers));
+               this.resolverLookup = resolverLookup;
+            }
+         }
+      }
+      return resolverLookup;
+   }
+
+   /**
+    * Get the plan pairing each visitor with the resolver for its metadata type.  The plan is rebuilt
+    * after visitors or resolvers are added.
+    */
+   private List<PlannedVisitor<?>> getPlan()
+   {
+      List<PlannedVisitor<?>> plan = this.plan;
+      if(plan == null)
+      {
+         synchronized(this)
+         {
+            plan = this.plan;
+            if(plan == null)
+            {
+               final List<PlannedVisitor<?>> plannedVisitors = new ArrayList<PlannedVisitor<?>>(visitors.size());
+               for(EnvironmentMetaDataVisitor<?> visitor : visitors)
+                  plannedVisitors.add(plan(visitor));
+               plan = Collections.unmodifiableList(plannedVisitors);
+               this.plan = plan;
+            }
+         }
+      }
+      return plan;
+   }
+
+   private <M> PlannedVisitor<M> plan(final EnvironmentMetaDataVisitor<M> visitor)
+   {
+      final Class<M> metaDataType = visitor.getMetaDataType();
+      final Resolver<M, C, ?> resolver = getResolver(metaDataType);
+      return new PlannedVisitor<M>(visitor, metaDataType, resolver);
+   }
+
+   private synchronized void invalidatePlan()
+   {
+      resolverLookup = null;
+      plan = null;
+   }
+
+   /**
+    * Get the executor used to resolve references in parallel.
+    *
+    * @return The executor, or null if references are resolved on the calling thread
+    */
+   public ExecutorService getExecutor()
+   {
+      return executor;
+   }
+
+   /**
+    * Set the executor used to resolve references in parallel.  The results are merged in the same order,
+    * and conflicts are detected the same way, as when resolving on the calling thread.
+    *
+    * @param executor The executor, or null to resolve references on the calling thread
+    */
+   public void setExecutor(final ExecutorService executor)
+   {
+      this.executor = executor;
    }
 
-   public void addMetaDataVisitor(final EnvironmentMetaDataVisitor<?> visitor)
+   /**
+    * Get the cache shared by the resolvers.
+    *
+    * @return The resolver cache, or null if results are not cached
+    */
+   public ResolverCache<C> getResolverCache()
+   {
+      return resolverCache;
+   }
+
+   /**
+    * Set the cache shared by the resolvers.  Every resolver call goes through the cache.
+    *
+    * @param resolverCache The resolver cache, or null to not cache results
+    */
+   public void setResolverCache(final ResolverCache<C> resolverCache)
+   {
+      this.resolverCache = resolverCache;
+   }
+
+   public synchronized void addMetaDataVisitor(final EnvironmentMetaDataVisitor<?> visitor)
    {
       visitors.add(visitor);
+      invalidatePlan();
    }
 
-   public <M> void addResolver(final Resolver<M, C, ?> resolver)
+   /**
+    * Add a resolver.  The resolver is also used for references whose metadata type is a subtype of its
+    * metadata type, unless a resolver is added for a closer type.
+    *
+    * @param resolver The resolver
+    */
+   public synchronized <M> void addResolver(final Resolver<M, C, ?> resolver)
    {
       Class<M> metaDataType = resolver.getMetaDataType();
       resolvers.put(metaDataType, resolver);
+      invalidatePlan();
    }
 
    public <M> void addDuplicateReferenceValidator(final DuplicateReferenceValidator<M> duplicateReferenceValidator)
@@ -159,18 +467,282 @@ public class EnvironmentProcessor<C>
       duplicateReferenceValidators.put(metaDataType, duplicateReferenceValidator);
    }
 
+   /**
+    * A visitor paired with the resolver for its metadata type.
+    */
+   private class PlannedVisitor<M>
+   {
+      private final EnvironmentMetaDataVisitor<M> visitor;
+      private final Class<M> metaDataType;
+      private final Resolver<M, C, ?> resolver;
+
+      private PlannedVisitor(final EnvironmentMetaDataVisitor<M> visitor, final Class<M> metaDataType, final Resolver<M, C, ?> resolver)
+      {
+         this.visitor = visitor;
+         this.metaDataType = metaDataType;
+         this.resolver = resolver;
+      }
+   }
+
+   /**
+    * Finds the resolver for each metadata type once by walking its superclasses, then its interfaces.
+    */
+   private class ResolverLookup extends ClassValue<Resolver<?, C, ?>>
+   {
+      private final Map<Class<?>, Resolver<?, C, ?>> resolvers;
+
+      private ResolverLookup(final Map<Class<?>, Resolver<?, C, ?>> resolvers)
+      {
+         this.resolvers = resolvers;
+      }
+
+      @Override
+      protected Resolver<?, C, ?> computeValue(final Class<?> type)
+      {
+         for(Class<?> current = type; current != null; current = current.getSuperclass())
+         {
+            final Resolver<?, C, ?> resolver = resolvers.get(current);
+            if(resolver != null)
+               return resolver;
+         }
+         // Breadth first over the interfaces, nearest first
+         final List<Class<?>> interfaces = new ArrayList<Class<?>>();
+         for(Class<?> current = type; current != null; current = current.getSuperclass())
+            interfaces.addAll(Arrays.asList(current.getInterfaces()));
+         for(int i = 0; i < interfaces.size(); i++)
+         {
+            final Class<?> current = interfaces.get(i);
+            final Resolver<?, C, ?> resolver = resolvers.get(current);
+            if(resolver != null)
+               return resolver;
+            interfaces.addAll(Arrays.asList(current.getInterfaces()));
+         }
+         return null;
+      }
+   }
+
+   /**
+    * A reference waiting to be resolved on the executor, or already resolved by a previous call.
+    */
+   private class PendingReference<M>
+   {
+      private final Class<M> referenceType;
+      private final M reference;
+      private final Object fingerprint;
+      private final ResolverResult<?> previousResult;
+      private final Resolver<M, C, ?> resolver;
+      private Future<ResolverResult<?>> future;
+      private ResolverBatch<M> batch;
+      private int batchIndex;
+
+      private PendingReference(final Class<M> referenceType, final M reference, final Object fingerprint, final ResolverResult<?> previousResult, final Resolver<M, C, ?> resolver)
+      {
+         this.referenceType = referenceType;
+         this.reference = reference;
+         this.fingerprint = fingerprint;
+         this.previousResult = previousResult;
+         this.resolver = resolver;
+      }
+
+      private void submit(final C context, final ExecutorService executor)
+      {
+         if(previousResult != null || resolver == null || batch != null)
+            return;
+         future = executor.submit(new Callable<ResolverResult<?>>()
+         {
+            public ResolverResult<?> call() throws Exception
+            {
+               return resolve(resolver, context, reference);
+            }
+         });
+      }
+
+      private void merge(final C context, final MappedResults mappedresults) throws ResolutionException
+      {
+         if(previousResult != null)
+         {
+            mappedresults.add(referenceType, reference, previousResult, fingerprint, true);
+            return;
+         }
+         if(resolver == null)
+         {
+            throw new ResolutionException("Found reference [" + reference + "] but no Resolver could be found for type [" + referenceType + "]");
+         }
+
+         final ResolverResult<?> result;
+         if(batch != null)
+            result = batch.getResult(context, batchIndex);
+         else
+            result = future == null ? resolve(resolver, context, reference) : getResult();
+         if(result == null)
+            throw new ResolutionException("Found reference [" + reference + "] but resolution failed to produce a result");
+         mappedresults.add(referenceType, reference, result, fingerprint, false);
+      }
+
+      private ResolverResult<?> getResult() throws ResolutionException
+      {
+         try
+         {
+            return future.get();
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new ResolutionException("Interrupted while resolving reference [" + reference + "]", e);
+         }
+         catch(ExecutionException e)
+         {
+            final Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+               throw (RuntimeException) cause;
+            if(cause instanceof Error)
+               throw (Error) cause;
+            throw new RuntimeException(cause);
+         }
+      }
+
+      private void cancel()
+      {
+         if(future != null)
+            future.cancel(true);
+      }
+   }
+
+   /**
+    * References of one metadata type resolved together by a batch resolver.  The batch is resolved on the
+    * executor, or on the calling thread when the first of its results is needed.
+    */
+   private class ResolverBatch<M>
+   {
+      private final BatchResolver<M, C, ?> resolver;
+      private final List<M> references = new ArrayList<M>();
+      private List<? extends ResolverResult> results;
+      private Throwable failure;
+      private boolean resolved;
+      private Future<?> future;
+
+      private ResolverBatch(final BatchResolver<M, C, ?> resolver)
+      {
+         this.resolver = resolver;
+      }
+
+      private int add(final M reference)
+      {
+         references.add(reference);
+         return references.size() - 1;
+      }
+
+      private void submit(final C context, final ExecutorService executor)
+      {
+         future = executor.submit(new Runnable()
+         {
+            public void run()
+            {
+               resolve(context);
+            }
+         });
+      }
+
+      private void resolve(final C context)
+      {
+         resolved = true;
+         try
+         {
+            final List<? extends ResolverResult> results = resolveAll(resolver, context, references);
+            if(results == null || results.size() != references.size())
+            {
+               failure = new ResolutionException("Batch resolver [" + resolver + "] produced " + (results == null ? 0 : results.size())
+                  + " results for " + references.size() + " references");
+               return;
+            }
+            this.results = results;
+         }
+         catch(RuntimeException e)
+         {
+            failure = e;
+         }
+         catch(Error e)
+         {
+            failure = e;
+         }
+      }
+
+      private ResolverResult<?> getResult(final C context, final int index) throws ResolutionException
+      {
+         if(future == null)
+         {
+            if(!resolved)
+               resolve(context);
+         }
+         else
+         {
+            try
+            {
+               future.get();
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+               throw new ResolutionException("Interrupted while resolving references [" + references + "]", e);
+            }
+            catch(ExecutionException e)
+            {
+               throw new RuntimeException(e.getCause());
+            }
+         }
+         if(failure instanceof ResolutionException)
+            throw (ResolutionException) failure;
+         if(failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+         if(failure instanceof Error)
+            throw (Error) failure;
+         return results.get(index);
+      }
+
+      private void cancel()
+      {
+         if(future != null)
+            future.cancel(true);
+      }
+   }
+
    private class MappedResults
    {
       private final Map<String, ReferenceResultPair<?>> referenceMap = new HashMap<String, ReferenceResultPair<?>>();
-      private final List<ResolverResult<?>> results = new LinkedList<ResolverResult<?>>();
+      private final ResolverResultConsumer consumer;
+      private final ResolvedReferences previous;
+      private final ResolvedReferences current;
+
+      private MappedResults(final ResolvedReferences previous, final ResolvedReferences current, final ResolverResultConsumer consumer)
+      {
+         this.consumer = consumer;
+         this.previous = previous;
+         this.current = current;
+      }
 
-      public <M> void add(Class<M> referenceType, final M newReference, final ResolverResult result) throws ResolutionException
+      private Object fingerprint(final Class<?> referenceType, final Object reference)
       {
+         if(previous == null && current == null)
+            return null;
+         return ResolvedReferences.fingerprint(referenceType, reference);
+      }
+
+      private ResolverResult<?> getPrevious(final Object fingerprint)
+      {
+         if(previous == null)
+            return null;
+         return previous.get(fingerprint);
+      }
+
+      public <M> void add(Class<M> referenceType, final M newReference, final ResolverResult result, final Object fingerprint, final boolean reused) throws ResolutionException
+      {
+         if(current != null)
+            current.put(fingerprint, result, reused);
          final ReferenceResultPair<M> newReferenceResult =  new ReferenceResultPair<M>(newReference, result);
          final ReferenceResultPair<?> previousReferenceResult = referenceMap.put(result.getRefName(), newReferenceResult);
          if(previousReferenceResult == null)
          {
-            results.add(result);
+            consumer.accept(result);
          }
          else
          {
@@ -0,0 +1,353 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.resolve.naming;
+
+import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of the references processed by an {@link EnvironmentProcessor} and the results they
+ * resolved to.
+ * <p>
+ * When passed back into a later call to
+ * {@link EnvironmentProcessor#process(Object, Iterable, ResolvedReferences, ResolvedReferences)} the
+ * results of references which did not change are reused instead of being resolved again.  References are
+ * compared by type and by the attributes their resolution depends on, as listed for each metadata type: the
+ * reference name, the mapped, JNDI and lookup names, the injection targets and the type specific attributes such as
+ * the EJB link and interfaces or the resource type.  Descriptions are ignored, and collections are compared by
+ * content, so the iteration order of a {@link java.util.HashSet} of injection targets does not matter.  A reference
+ * of a type without known attributes, or whose attributes can not be read, is always resolved.
+ * </p>
+ * <p>
+ * The result of a reference which depends on another bean is not reused, since that bean may have been redeployed
+ * with another binding, the reference is resolved again and only counts as unchanged if it resolves the same way.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class ResolvedReferences
+{
+   private final Map<Fingerprint, ResolverResult<?>> results = new HashMap<Fingerprint, ResolverResult<?>>();
+   private int resolvedCount;
+   private int reusedCount;
+
+   /**
+    * Get the number of references in this snapshot.
+    *
+    * @return The number of references
+    */
+   public int size()
+   {
+      return results.size();
+   }
+
+   /**
+    * Get the number of references which had to be resolved.
+    *
+    * @return The number of resolved references
+    */
+   public int getResolvedCount()
+   {
+      return resolvedCount;
+   }
+
+   /**
+    * Get the number of references whose result was reused from the previous snapshot.
+    *
+    * @return The number of reused references
+    */
+   public int getReusedCount()
+   {
+      return reusedCount;
+   }
+
+   /**
+    * Determine whether this snapshot holds exactly the references of a previous snapshot, each of
+    * them resolved the same way.
+    *
+    * @param previous The previous snapshot, may be null
+    * @return true if nothing changed since the previous snapshot
+    */
+   public boolean isUnchanged(final ResolvedReferences previous)
+   {
+      if(previous == null || !results.keySet().equals(previous.results.keySet()))
+         return false;
+      for(Map.Entry<Fingerprint, ResolverResult<?>> entry : results.entrySet())
+      {
+         if(!isSameResult(entry.getValue(), previous.results.get(entry.getKey())))
+            return false;
+      }
+      return true;
+   }
+
+   private static boolean isSameResult(final ResolverResult<?> result, final ResolverResult<?> previous)
+   {
+      if(result == previous)
+         return true;
+      return isEqual(result.getRefName(), previous.getRefName()) && isEqual(result.getBeanName(), previous.getBeanName())
+         && isEqual(result.getValue(), previous.getValue());
+   }
+
+   private static boolean isEqual(final Object value, final Object other)
+   {
+      return value == null ? other == null : value.equals(other);
+   }
+
+   /**
+    * Get the previous result of a reference, to reuse it.
+    *
+    * @param fingerprint The reference fingerprint, may be null
+    * @return The result or null if the reference is not part of this snapshot or its result depends on another bean
+    */
+   ResolverResult<?> get(final Object fingerprint)
+   {
+      if(fingerprint == null)
+         return null;
+      final ResolverResult<?> result = results.get(fingerprint);
+      if(result == null || result.getBeanName() != null)
+         return null;
+      return result;
+   }
+
+   /**
+    * Record the result of a reference.
+    *
+    * @param fingerprint The reference fingerprint, may be null
+    * @param result      The result
+    * @param reused      true if the result was reused from a previous snapshot
+    */
+   void put(final Object fingerprint, final ResolverResult<?> result, final boolean reused)
+   {
+      if(reused)
+         reusedCount++;
+      else
+         resolvedCount++;
+      if(fingerprint != null)
+         results.put((Fingerprint) fingerprint, result);
+   }
+
+   /**
+    * Create the fingerprint identifying a reference.
+    *
+    * @param referenceType The reference type
+    * @param reference     The reference
+    * @return The fingerprint or null if the reference can not be compared, in which case it is always resolved
+    */
+   static Object fingerprint(final Class<?> referenceType, final Object reference)
+   {
+      if(reference == null)
+         return null;
+      try
+      {
+         return new Fingerprint(referenceType.getName(), getAttributes(reference, 0));
+      }
+      catch(IllegalArgumentException e)
+      {
+         if(log.isDebugEnabled())
+            log.debug("Can not fingerprint reference [" + reference + "], it will be resolved every time", e);
+         return null;
+      }
+   }
+
+   private static final Logger log = Logger.getLogger(ResolvedReferences.class);
+
+   private static final int MAX_DEPTH = 8;
+
+   // The attributes each metadata type contributes to the resolution of a reference, by class name
+   private static final Map<String, String[]> RESOLUTION_ATTRIBUTES = new HashMap<String, String[]>();
+
+   static
+   {
+      addAttributes("org.jboss.metadata.javaee.spec.ResourceInjectionMetaData", "name", "mappedName", "jndiName", "lookupName", "injectionTargets", "dependencyIgnored");
+      addAttributes("org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData", "injectionTargetClass", "injectionTargetName");
+      addAttributes("org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData", "type", "value");
+      addAttributes("org.jboss.metadata.javaee.spec.AbstractEJBReferenceMetaData", "ejbRefType", "link");
+      addAttributes("org.jboss.metadata.javaee.spec.EJBReferenceMetaData", "home", "remote");
+      addAttributes("org.jboss.metadata.javaee.spec.EJBLocalReferenceMetaData", "localHome", "local");
+      addAttributes("org.jboss.metadata.javaee.spec.AnnotatedEJBReferenceMetaData", "beanInterface");
+      addAttributes("org.jboss.metadata.javaee.spec.ResourceReferenceMetaData", "type", "resAuth", "resSharingScope", "resourceName", "resUrl");
+      addAttributes("org.jboss.metadata.javaee.spec.ResourceEnvironmentReferenceMetaData", "type", "link");
+      addAttributes("org.jboss.metadata.javaee.spec.MessageDestinationReferenceMetaData", "type", "messageDestinationUsage", "link");
+      addAttributes("org.jboss.metadata.javaee.spec.PersistenceUnitReferenceMetaData", "persistenceUnitName");
+      addAttributes("org.jboss.metadata.javaee.spec.PersistenceContextReferenceMetaData", "persistenceUnitName", "persistenceContextType", "properties");
+      addAttributes("org.jboss.metadata.javaee.spec.PropertyMetaData", "name", "value");
+   }
+
+   private static void addAttributes(final String className, final String... attributes)
+   {
+      RESOLUTION_ATTRIBUTES.put(className, attributes);
+   }
+
+   private static final ClassValue<Method[]> ATTRIBUTE_GETTERS = new ClassValue<Method[]>()
+   {
+      @Override
+      protected Method[] computeValue(final Class<?> type)
+      {
+         final Set<String> attributes = new LinkedHashSet<String>();
+         for(Class<?> current = type; current != null; current = current.getSuperclass())
+         {
+            final String[] declared = RESOLUTION_ATTRIBUTES.get(current.getName());
+            if(declared != null)
+               attributes.addAll(Arrays.asList(declared));
+         }
+         if(attributes.isEmpty())
+         {
+            log.debugf("No resolution attributes are known for %s, references of this type are resolved every time", type.getName());
+            return null;
+         }
+         final List<Method> getters = new ArrayList<Method>(attributes.size());
+         for(String attribute : attributes)
+         {
+            final Method getter = getGetter(type, attribute);
+            if(getter != null)
+               getters.add(getter);
+         }
+         return getters.toArray(new Method[getters.size()]);
+      }
+   };
+
+   /**
+    * Get a value which is equal for references which resolve the same way.
+    *
+    * @throws IllegalArgumentException If the value can not be compared
+    */
+   private static Object getAttributes(final Object value, final int depth)
+   {
+      if(value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+         || value instanceof Character || value instanceof Enum<?>)
+         return value;
+      if(value instanceof Class<?>)
+         return ((Class<?>) value).getName();
+      if(depth > MAX_DEPTH)
+         throw new IllegalArgumentException("Metadata nested too deep " + value.getClass());
+      if(value instanceof Set<?>)
+      {
+         final Set<Object> attributes = new HashSet<Object>();
+         for(Object element : (Set<?>) value)
+            attributes.add(getAttributes(element, depth + 1));
+         return attributes;
+      }
+      if(value instanceof Collection<?>)
+      {
+         final List<Object> attributes = new ArrayList<Object>();
+         for(Object element : (Collection<?>) value)
+            attributes.add(getAttributes(element, depth + 1));
+         return attributes;
+      }
+      if(value instanceof Map<?, ?>)
+      {
+         final Map<Object, Object> attributes = new HashMap<Object, Object>();
+         for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+            attributes.put(getAttributes(entry.getKey(), depth + 1), getAttributes(entry.getValue(), depth + 1));
+         return attributes;
+      }
+
+      final Method[] getters = ATTRIBUTE_GETTERS.get(value.getClass());
+      if(getters == null)
+         throw new IllegalArgumentException("No resolution attributes are known for " + value.getClass().getName());
+      final Map<String, Object> attributes = new TreeMap<String, Object>();
+      attributes.put("class", value.getClass().getName());
+      for(Method getter : getters)
+      {
+         try
+         {
+            attributes.put(getter.getName(), getAttributes(getter.invoke(value), depth + 1));
+         }
+         catch(IllegalAccessException e)
+         {
+            throw new IllegalArgumentException("Can not read " + getter, e);
+         }
+         catch(InvocationTargetException e)
+         {
+            throw new IllegalArgumentException("Can not read " + getter, e.getCause());
+         }
+      }
+      return attributes;
+   }
+
+   /**
+    * Get the public getter of an attribute, or null if the metadata version in use does not have the attribute.
+    */
+   private static Method getGetter(final Class<?> type, final String attribute)
+   {
+      final String suffix = Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
+      for(String prefix : new String[] {"get", "is"})
+      {
+         try
+         {
+            final Method getter = type.getMethod(prefix + suffix);
+            if(getter.getReturnType() != void.class && !Modifier.isStatic(getter.getModifiers()))
+               return getter;
+         }
+         catch(NoSuchMethodException ignored)
+         {
+            // Not part of this version of the metadata
+         }
+      }
+      return null;
+   }
+
+   private static class Fingerprint
+   {
+      private final String referenceType;
+      private final Object attributes;
+      private final int hashCode;
+
+      private Fingerprint(final String referenceType, final Object attributes)
+      {
+         this.referenceType = referenceType;
+         this.attributes = attributes;
+         this.hashCode = 31 * referenceType.hashCode() + attributes.hashCode();
+      }
+
+      @Override
+      public boolean equals(final Object o)
+      {
+         if(this == o)
+            return true;
+         if(!(o instanceof Fingerprint))
+            return false;
+         final Fingerprint other = (Fingerprint) o;
+         return hashCode == other.hashCode && referenceType.equals(other.referenceType) && attributes.equals(other.attributes);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+   }
+}
@@ -0,0 +1,496 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.resolve.naming;
+
+import org.jboss.injection.resolve.spi.BatchResolver;
+import org.jboss.injection.resolve.spi.Resolver;
+import org.jboss.injection.resolve.spi.ResolverResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of {@link Resolver} results shared by every deployment processed through an
+ * {@link EnvironmentProcessor}.
+ * <p>
+ * Results are keyed by the metadata type, the scope of the resolving context and the attributes of the
+ * reference relevant to its resolution, as compared by {@link ResolvedReferences}, so identical references
+ * resolved several times within the same scope are resolved once.  The least recently used entries are evicted
+ * once the maximum size is reached.  Failed resolutions, either a null result or a runtime exception, can
+ * optionally be cached for a short time, a cached exception is rethrown as the cause of a new
+ * {@link IllegalStateException}.  References {@link ResolvedReferences} can not compare are never cached.
+ * </p>
+ * <p>
+ * The scope defaults to the resolving context itself.  Subclasses can widen it for the resolvers which opt in,
+ * for instance to the top level deployment, as long as the results of those resolvers do not depend on the
+ * context beyond the scope.  The entries of every scope a context belongs to should be evicted with
+ * {@link #evict(Object)} when the context is undeployed.
+ * </p>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <C> The context in which to resolve (usually DeploymentUnit)
+ */
+public class ResolverCache<C>
+{
+   /** The default maximum number of cached results */
+   public static final int DEFAULT_MAX_SIZE = 1024;
+
+   private final Map<Key, CachedResult> entries;
+   private final int maxSize;
+   private volatile long negativeTtlNanos;
+
+   private final AtomicLong hitCount = new AtomicLong();
+   private final AtomicLong negativeHitCount = new AtomicLong();
+   private final AtomicLong missCount = new AtomicLong();
+   private final AtomicLong evictionCount = new AtomicLong();
+
+   /**
+    * Create a cache holding at most {@link #DEFAULT_MAX_SIZE} results.
+    */
+   public ResolverCache()
+   {
+      this(DEFAULT_MAX_SIZE);
+   }
+
+   /**
+    * Create a cache with a maximum size.
+    *
+    * @param maxSize The maximum number of cached results
+    */
+   public ResolverCache(final int maxSize)
+   {
+      if(maxSize <= 0) throw new IllegalArgumentException("Maximum size must be positive");
+      this.maxSize = maxSize;
+      this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true)
+      {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(final Map.Entry<Key, CachedResult> eldest)
+         {
+            if(size() <= ResolverCache.this.maxSize)
+               return false;
+            evictionCount.incrementAndGet();
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Resolve a reference, returning the cached result if there is one.
+    *
+    * @param resolver The resolver to use on a cache miss
+    * @param context  The resolving context
+    * @param metaData The reference metadata
+    * @param <M>      The metadata type
+    * @return The resolver result
+    */
+   public <M> ResolverResult<?> resolve(final Resolver<M, C, ?> resolver, final C context, final M metaData)
+   {
+      final Object fingerprint = ResolvedReferences.fingerprint(resolver.getMetaDataType(), metaData);
+      if(fingerprint == null)
+      {
+         missCount.incrementAndGet();
+         return resolver.resolve(context, metaData);
+      }
+      final Key key = new Key(getScope(resolver, context), fingerprint);
+
+      final CachedResult entry = lookup(key);
+      if(entry != null)
+      {
+         if(entry.result != null)
+         {
+            hitCount.incrementAndGet();
+            return entry.result;
+         }
+         negativeHitCount.incrementAndGet();
+         if(entry.failure != null)
+            throw createCachedFailure(metaData, entry.failure);
+         return null;
+      }
+
+      missCount.incrementAndGet();
+      final ResolverResult<?> result;
+      try
+      {
+         result = resolver.resolve(context, metaData);
+      }
+      catch(RuntimeException e)
+      {
+         cacheFailure(key, e);
+         throw e;
+      }
+      if(result == null)
+         cacheFailure(key, null);
+      else
+         put(key, new CachedResult(result, null, Long.MAX_VALUE));
+      return result;
+   }
+
+   /**
+    * Resolve a batch of references, passing only the references without a cached result to the resolver.
+    *
+    * @param resolver The batch resolver to use for the cache misses
+    * @param context  The resolving context
+    * @param metaData The reference metadata
+    * @param <M>      The metadata type
+    * @return The resolver results in the same order as the metadata, or null if the resolver did not
+    *         produce a result for each reference passed to it
+    */
+   public <M> List<ResolverResult<?>> resolveAll(final BatchResolver<M, C, ?> resolver, final C context, final List<M> metaData)
+   {
+      final ResolverResult<?>[] results = new ResolverResult<?>[metaData.size()];
+      final List<M> missed = new ArrayList<M>();
+      final List<Integer> missedIndexes = new ArrayList<Integer>();
+      final List<Key> missedKeys = new ArrayList<Key>();
+      final Object scope = getScope(resolver, context);
+      for(int i = 0; i < results.length; i++)
+      {
+         final M reference = metaData.get(i);
+         final Object fingerprint = ResolvedReferences.fingerprint(resolver.getMetaDataType(), reference);
+         final Key key = fingerprint == null ? null : new Key(scope, fingerprint);
+         final CachedResult entry = key == null ? null : lookup(key);
+         if(entry == null)
+         {
+            missed.add(reference);
+            missedIndexes.add(i);
+            missedKeys.add(key);
+         }
+         else if(entry.result != null)
+         {
+            hitCount.incrementAndGet();
+            results[i] = entry.result;
+         }
+         else
+         {
+            negativeHitCount.incrementAndGet();
+            if(entry.failure != null)
+               throw createCachedFailure(reference, entry.failure);
+         }
+      }
+      if(!missed.isEmpty())
+      {
+         missCount.addAndGet(missed.size());
+         final List<? extends ResolverResult> resolved = resolver.resolveAll(context, missed);
+         if(resolved == null || resolved.size() != missed.size())
+            return null;
+         for(int i = 0; i < missed.size(); i++)
+         {
+            final ResolverResult<?> result = resolved.get(i);
+            results[missedIndexes.get(i)] = result;
+            final Key key = missedKeys.get(i);
+            if(key == null)
+               continue;
+            if(result == null)
+               cacheFailure(key, null);
+            else
+               put(key, new CachedResult(result, null, Long.MAX_VALUE));
+         }
+      }
+      return Arrays.asList(results);
+   }
+
+   private CachedResult lookup(final Key key)
+   {
+      synchronized(entries)
+      {
+         final CachedResult entry = entries.get(key);
+         if(entry != null && entry.isExpired())
+         {
+            entries.remove(key);
+            return null;
+         }
+         return entry;
+      }
+   }
+
+   /**
+    * Create the exception thrown for a cached failure, a new one for each caller so the cached failure is not shared.
+    */
+   private static IllegalStateException createCachedFailure(final Object metaData, final RuntimeException failure)
+   {
+      return new IllegalStateException("Resolution of [" + metaData + "] failed recently: " + failure.getMessage(), failure);
+   }
+
+   private void cacheFailure(final Key key, final RuntimeException failure)
+   {
+      final long negativeTtlNanos = this.negativeTtlNanos;
+      if(negativeTtlNanos > 0)
+         put(key, new CachedResult(null, failure, System.nanoTime() + negativeTtlNanos));
+   }
+
+   private void put(final Key key, final CachedResult entry)
+   {
+      synchronized(entries)
+      {
+         entries.put(key, entry);
+      }
+   }
+
+   /**
+    * Get the scope the results of a resolver in a context are shared within.  Defaults to the context itself.
+    *
+    * @param resolver The resolver
+    * @param context  The resolving context
+    * @return The scope
+    */
+   protected Object getScope(final Resolver<?, C, ?> resolver, final C context)
+   {
+      return context;
+   }
+
+   /**
+    * Get every scope the results resolved in a context can be cached in.  Defaults to the context itself.
+    *
+    * @param context The resolving context
+    * @return The scopes
+    */
+   protected Collection<?> getScopes(final C context)
+   {
+      return Collections.singleton(context);
+   }
+
+   /**
+    * Evict every result cached for the scopes of a context.
+    *
+    * @param context The context, usually being undeployed
+    * @return The number of evicted results
+    */
+   public int evict(final C context)
+   {
+      final Collection<?> scopes = getScopes(context);
+      int evicted = 0;
+      synchronized(entries)
+      {
+         final Iterator<Key> keys = entries.keySet().iterator();
+         while(keys.hasNext())
+         {
+            if(keys.next().isScope(scopes))
+            {
+               keys.remove();
+               evicted++;
+            }
+         }
+      }
+      evictionCount.addAndGet(evicted);
+      return evicted;
+   }
+
+   /**
+    * Evict every cached result.
+    */
+   public void clear()
+   {
+      synchronized(entries)
+      {
+         evictionCount.addAndGet(entries.size());
+         entries.clear();
+      }
+   }
+
+   /**
+    * Get the number of cached results, including cached failures.
+    *
+    * @return The number of cached results
+    */
+   public int size()
+   {
+      synchronized(entries)
+      {
+         return entries.size();
+      }
+   }
+
+   /**
+    * Get the maximum number of cached results.
+    *
+    * @return The maximum size
+    */
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * Get the time failed resolutions are cached for.
+    *
+    * @param unit The time unit
+    * @return The time, 0 if failures are not cached
+    */
+   public long getNegativeTtl(final TimeUnit unit)
+   {
+      return unit.convert(negativeTtlNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Set the time failed resolutions are cached for.
+    *
+    * @param ttl  The time, 0 to not cache failures
+    * @param unit The time unit
+    */
+   public void setNegativeTtl(final long ttl, final TimeUnit unit)
+   {
+      if(ttl < 0) throw new IllegalArgumentException("Negative cache time can not be negative");
+      this.negativeTtlNanos = unit.toNanos(ttl);
+   }
+
+   /**
+    * Set the time in milliseconds failed resolutions are cached for.
+    *
+    * @param ttl The time in milliseconds, 0 to not cache failures
+    */
+   public void setNegativeTtlMillis(final long ttl)
+   {
+      setNegativeTtl(ttl, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Get the number of resolutions answered with a cached result.
+    *
+    * @return The hit count
+    */
+   public long getHitCount()
+   {
+      return hitCount.get();
+   }
+
+   /**
+    * Get the number of resolutions answered with a cached failure.
+    *
+    * @return The negative hit count
+    */
+   public long getNegativeHitCount()
+   {
+      return negativeHitCount.get();
+   }
+
+   /**
+    * Get the number of resolutions which had to call the resolver.
+    *
+    * @return The miss count
+    */
+   public long getMissCount()
+   {
+      return missCount.get();
+   }
+
+   /**
+    * Get the number of results evicted because the cache was full or their scope was evicted.
+    *
+    * @return The eviction count
+    */
+   public long getEvictionCount()
+   {
+      return evictionCount.get();
+   }
+
+   /**
+    * Get the fraction of resolutions answered from the cache, including cached failures.
+    *
+    * @return The hit ratio, 0 if nothing was resolved yet
+    */
+   public double getHitRatio()
+   {
+      final long hits = hitCount.get() + negativeHitCount.get();
+      final long total = hits + missCount.get();
+      return total == 0 ? 0 : (double) hits / total;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ResolverCache{" + "size=" + size() + ", maxSize=" + maxSize + ", hitRatio=" + getHitRatio() + '}';
+   }
+
+   private static class Key
+   {
+      private final Object scope;
+      private final Object fingerprint;
+      private final int hashCode;
+
+      private Key(final Object scope, final Object fingerprint)
+      {
+         this.scope = scope;
+         this.fingerprint = fingerprint;
+         this.hashCode = 31 * (scope == null ? 0 : scope.hashCode()) + fingerprint.hashCode();
+      }
+
+      private boolean isScope(final Object scope)
+      {
+         return this.scope == null ? scope == null : this.scope.equals(scope);
+      }
+
+      private boolean isScope(final Collection<?> scopes)
+      {
+         for(Object scope : scopes)
+         {
+            if(isScope(scope))
+               return true;
+         }
+         return false;
+      }
+
+      @Override
+      public boolean equals(final Object o)
+      {
+         if(this == o)
+            return true;
+         if(!(o instanceof Key))
+            return false;
+         final Key other = (Key) o;
+         return hashCode == other.hashCode && isScope(other.scope) && fingerprint.equals(other.fingerprint);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+   }
+
+   private static class CachedResult
+   {
+      private final ResolverResult<?> result;
+      private final RuntimeException failure;
+      private final long expiresAt;
+
+      private CachedResult(final ResolverResult<?> result, final RuntimeException failure, final long expiresAt)
+      {
+         this.result = result;
+         this.failure = failure;
+         this.expiresAt = expiresAt;
+      }
+
+      private boolean isExpired()
+      {
+         return expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt > 0;
+      }
+   }
+}
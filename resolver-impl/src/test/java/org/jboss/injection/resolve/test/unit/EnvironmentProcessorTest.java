@@ -25,16 +25,23 @@ import org.jboss.deployers.structure.spi.DeploymentUnit;
 import org.jboss.injection.resolve.naming.EnvironmentProcessor;
 import org.jboss.injection.resolve.naming.ReferenceResolverResult;
 import org.jboss.injection.resolve.naming.ResolutionException;
+import org.jboss.injection.resolve.naming.ResolvedReferences;
+import org.jboss.injection.resolve.spi.BatchResolver;
 import org.jboss.injection.resolve.spi.DuplicateReferenceValidator;
 import org.jboss.injection.resolve.spi.EnvironmentMetaDataVisitor;
 import org.jboss.injection.resolve.spi.Resolver;
 import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.injection.resolve.spi.ResolverResultConsumer;
+import org.jboss.metadata.javaee.spec.DescriptionImpl;
+import org.jboss.metadata.javaee.spec.DescriptionsImpl;
 import org.jboss.metadata.javaee.spec.EJBReferenceMetaData;
 import org.jboss.metadata.javaee.spec.EJBReferencesMetaData;
 import org.jboss.metadata.javaee.spec.Environment;
 import org.jboss.metadata.javaee.spec.EnvironmentEntriesMetaData;
 import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
 import org.jboss.metadata.javaee.spec.ResourceAuthorityType;
+import org.jboss.metadata.javaee.spec.ResourceInjectionMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
 import org.jboss.metadata.javaee.spec.ResourceReferenceMetaData;
 import org.jboss.metadata.javaee.spec.ResourceReferencesMetaData;
 import org.jboss.metadata.javaee.spec.ResourceSharingScopeType;
@@ -42,7 +49,14 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import javax.naming.LinkRef;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -360,4 +374,498 @@ public class EnvironmentProcessorTest
       }
    }
 
+   @Test
+   public void testIncrementalProcessing() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+      entryMetaData.setType(String.class.getName());
+      entryMetaData.setValue("value");
+      entryMetaData.setEnvEntryName("test");
+      entriesMetaData.add(entryMetaData);
+      EnvironmentEntryMetaData otherEntryMetaData = new EnvironmentEntryMetaData();
+      otherEntryMetaData.setType(String.class.getName());
+      otherEntryMetaData.setValue("other value");
+      otherEntryMetaData.setEnvEntryName("other");
+      entriesMetaData.add(otherEntryMetaData);
+
+      Environment environment = mock(Environment.class);
+      when(environment.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      final List<String> resolved = new ArrayList<String>();
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            resolved.add(metaData.getEnvEntryName());
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+         }
+      });
+
+      ResolvedReferences first = new ResolvedReferences();
+      List<ResolverResult<?>> results = processor.process(unit, Collections.singletonList(environment), null, first);
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals(2, first.getResolvedCount());
+      Assert.assertEquals(Arrays.asList("test", "other"), resolved);
+
+      resolved.clear();
+      ResolvedReferences second = new ResolvedReferences();
+      results = processor.process(unit, Collections.singletonList(environment), first, second);
+      Assert.assertEquals(2, results.size());
+      Assert.assertTrue(resolved.isEmpty());
+      Assert.assertTrue(second.isUnchanged(first));
+
+      otherEntryMetaData.setValue("changed value");
+      ResolvedReferences third = new ResolvedReferences();
+      results = processor.process(unit, Collections.singletonList(environment), second, third);
+      Assert.assertEquals(Arrays.asList("other"), resolved);
+      Assert.assertEquals(1, third.getReusedCount());
+      Assert.assertFalse(third.isUnchanged(second));
+      Assert.assertEquals("value", results.get(0).getValue());
+      Assert.assertEquals("changed value", results.get(1).getValue());
+   }
+
+   @Test
+   public void testIncrementalProcessingComparesAttributes() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      entriesMetaData.add(createEntry("test", "value", "A description", "first", "second"));
+
+      Environment environment = mock(Environment.class);
+      when(environment.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      final List<String> resolved = new ArrayList<String>();
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            resolved.add(metaData.getEnvEntryName());
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+         }
+      });
+
+      ResolvedReferences first = new ResolvedReferences();
+      processor.process(unit, Collections.singletonList(environment), null, first);
+      Assert.assertEquals(Arrays.asList("test"), resolved);
+
+      // A reparsed descriptor with another description and the injection targets added in another order
+      resolved.clear();
+      entriesMetaData.clear();
+      entriesMetaData.add(createEntry("test", "value", "Another description", "second", "first"));
+      ResolvedReferences second = new ResolvedReferences();
+      processor.process(unit, Collections.singletonList(environment), first, second);
+      Assert.assertTrue(resolved.isEmpty());
+      Assert.assertTrue(second.isUnchanged(first));
+
+      entriesMetaData.clear();
+      entriesMetaData.add(createEntry("test", "value", "Another description", "second", "third"));
+      ResolvedReferences third = new ResolvedReferences();
+      processor.process(unit, Collections.singletonList(environment), second, third);
+      Assert.assertEquals(Arrays.asList("test"), resolved);
+      Assert.assertFalse(third.isUnchanged(second));
+   }
+
+   @Test
+   public void testIncrementalProcessingResolvesDependentReferences() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      entriesMetaData.add(createEntry("test", "value", "A description", "first"));
+
+      Environment environment = mock(Environment.class);
+      when(environment.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      final List<String> resolved = new ArrayList<String>();
+      final String[] binding = {"java:global/first"};
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            resolved.add(metaData.getEnvEntryName());
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), "jboss:service=Target", binding[0]);
+         }
+      });
+
+      ResolvedReferences first = new ResolvedReferences();
+      processor.process(unit, Collections.singletonList(environment), null, first);
+      Assert.assertEquals(Arrays.asList("test"), resolved);
+
+      // The target bean may have been redeployed, so the reference is resolved again
+      resolved.clear();
+      ResolvedReferences second = new ResolvedReferences();
+      processor.process(unit, Collections.singletonList(environment), first, second);
+      Assert.assertEquals(Arrays.asList("test"), resolved);
+      Assert.assertTrue(second.isUnchanged(first));
+
+      binding[0] = "java:global/second";
+      ResolvedReferences third = new ResolvedReferences();
+      List<ResolverResult<?>> results = processor.process(unit, Collections.singletonList(environment), second, third);
+      Assert.assertFalse(third.isUnchanged(second));
+      Assert.assertEquals("java:global/second", results.get(0).getValue());
+   }
+
+   private static EnvironmentEntryMetaData createEntry(final String name, final String value, final String description, final String... targetNames)
+   {
+      EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+      entryMetaData.setType(String.class.getName());
+      entryMetaData.setValue(value);
+      entryMetaData.setEnvEntryName(name);
+      DescriptionImpl descriptionImpl = new DescriptionImpl();
+      descriptionImpl.setDescription(description);
+      DescriptionsImpl descriptions = new DescriptionsImpl();
+      descriptions.add(descriptionImpl);
+      entryMetaData.setDescriptions(descriptions);
+      Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      for(String targetName : targetNames)
+      {
+         ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+         injectionTarget.setInjectionTargetClass("org.jboss.test.Target");
+         injectionTarget.setInjectionTargetName(targetName);
+         injectionTargets.add(injectionTarget);
+      }
+      entryMetaData.setInjectionTargets(injectionTargets);
+      return entryMetaData;
+   }
+
+   @Test
+   public void testParallelProcessing() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      for(int i = 0; i < 8; i++)
+      {
+         EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+         entryMetaData.setType(String.class.getName());
+         entryMetaData.setValue(String.valueOf(i));
+         entryMetaData.setEnvEntryName("test" + i);
+         entriesMetaData.add(entryMetaData);
+      }
+      Environment environmentOne = mock(Environment.class);
+      when(environmentOne.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentEntriesMetaData conflictingEntriesMetaData = new EnvironmentEntriesMetaData();
+      EnvironmentEntryMetaData conflictingEntryMetaData = new EnvironmentEntryMetaData();
+      conflictingEntryMetaData.setType(String.class.getName());
+      conflictingEntryMetaData.setValue("other value");
+      conflictingEntryMetaData.setEnvEntryName("test3");
+      conflictingEntriesMetaData.add(conflictingEntryMetaData);
+      Environment environmentTwo = mock(Environment.class);
+      when(environmentTwo.getEnvironmentEntries()).thenReturn(conflictingEntriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            // Later references finish first
+            try
+            {
+               Thread.sleep(8 - metaData.getEnvEntryName().charAt(4) + '0');
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+         }
+      });
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         processor.setExecutor(executor);
+         List<ResolverResult<?>> results = processor.process(unit, environmentOne);
+         Assert.assertEquals(8, results.size());
+         for(int i = 0; i < 8; i++)
+         {
+            Assert.assertEquals("java:comp/env/test" + i, results.get(i).getRefName());
+         }
+
+         try
+         {
+            processor.process(unit, environmentOne, environmentTwo);
+            Assert.fail("Should have thrown ResolutionException based on conflicting references");
+         }
+         catch(ResolutionException expected)
+         {
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testResolverHierarchyMatching() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+      entryMetaData.setType(String.class.getName());
+      entryMetaData.setValue("value");
+      entryMetaData.setEnvEntryName("test");
+      entriesMetaData.add(entryMetaData);
+
+      Environment environment = mock(Environment.class);
+      when(environment.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      processor.addResolver(new Resolver<ResourceInjectionMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<ResourceInjectionMetaData> getMetaDataType()
+         {
+            return ResourceInjectionMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final ResourceInjectionMetaData metaData)
+         {
+            return new ResolverResult<String>("java:comp/env/" + metaData.getName(), null, "injection");
+         }
+      });
+
+      List<ResolverResult<?>> results = processor.process(unit, environment);
+      Assert.assertEquals(1, results.size());
+      Assert.assertEquals("injection", results.get(0).getValue());
+
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+         }
+      });
+
+      results = processor.process(unit, environment);
+      Assert.assertEquals(1, results.size());
+      Assert.assertEquals("value", results.get(0).getValue());
+   }
+
+   @Test
+   public void testStreamingProcessing() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+      entryMetaData.setType(String.class.getName());
+      entryMetaData.setValue("value");
+      entryMetaData.setEnvEntryName("test");
+      entriesMetaData.add(entryMetaData);
+      EnvironmentEntryMetaData otherEntryMetaData = new EnvironmentEntryMetaData();
+      otherEntryMetaData.setType(String.class.getName());
+      otherEntryMetaData.setValue("other value");
+      otherEntryMetaData.setEnvEntryName("other");
+      entriesMetaData.add(otherEntryMetaData);
+
+      Environment environmentOne = mock(Environment.class);
+      when(environmentOne.getEnvironmentEntries()).thenReturn(entriesMetaData);
+      Environment environmentTwo = mock(Environment.class);
+      when(environmentTwo.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      processor.addResolver(new Resolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+         }
+      });
+
+      final List<String> refNames = new ArrayList<String>();
+      processor.process(unit, Arrays.asList(environmentOne, environmentTwo), new ResolverResultConsumer()
+      {
+         public void accept(final ResolverResult<?> result)
+         {
+            refNames.add(result.getRefName());
+         }
+      });
+      Assert.assertEquals(Arrays.asList("java:comp/env/test", "java:comp/env/other"), refNames);
+   }
+
+   @Test
+   public void testBatchResolver() throws Exception
+   {
+      EnvironmentEntriesMetaData entriesMetaData = new EnvironmentEntriesMetaData();
+      for(int i = 0; i < 3; i++)
+      {
+         EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+         entryMetaData.setType(String.class.getName());
+         entryMetaData.setValue(String.valueOf(i));
+         entryMetaData.setEnvEntryName("test" + i);
+         entriesMetaData.add(entryMetaData);
+      }
+      Environment environmentOne = mock(Environment.class);
+      when(environmentOne.getEnvironmentEntries()).thenReturn(entriesMetaData);
+      Environment environmentTwo = mock(Environment.class);
+      when(environmentTwo.getEnvironmentEntries()).thenReturn(entriesMetaData);
+
+      EnvironmentProcessor<DeploymentUnit> processor = new EnvironmentProcessor<DeploymentUnit>();
+      DeploymentUnit unit = mock(DeploymentUnit.class);
+
+      processor.addMetaDataVisitor(new EnvironmentMetaDataVisitor<EnvironmentEntryMetaData>()
+      {
+         public Iterable<EnvironmentEntryMetaData> getMetaData(final Environment environment)
+         {
+            return environment.getEnvironmentEntries();
+         }
+
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+      });
+
+      final List<Integer> batchSizes = new ArrayList<Integer>();
+      processor.addResolver(new BatchResolver<EnvironmentEntryMetaData, DeploymentUnit, ResolverResult<String>>()
+      {
+         public Class<EnvironmentEntryMetaData> getMetaDataType()
+         {
+            return EnvironmentEntryMetaData.class;
+         }
+
+         public ResolverResult<String> resolve(final DeploymentUnit context, final EnvironmentEntryMetaData metaData)
+         {
+            throw new IllegalStateException("References should be resolved in a batch");
+         }
+
+         public List<ResolverResult<String>> resolveAll(final DeploymentUnit context, final List<EnvironmentEntryMetaData> metaData)
+         {
+            batchSizes.add(metaData.size());
+            List<ResolverResult<String>> results = new ArrayList<ResolverResult<String>>();
+            for(EnvironmentEntryMetaData entryMetaData : metaData)
+            {
+               results.add(new ResolverResult<String>("java:comp/env/" + entryMetaData.getEnvEntryName(), null, entryMetaData.getValue()));
+            }
+            return results;
+         }
+      });
+
+      List<ResolverResult<?>> results = processor.process(unit, environmentOne, environmentTwo);
+      Assert.assertEquals(Arrays.asList(6), batchSizes);
+      Assert.assertEquals(3, results.size());
+      for(int i = 0; i < 3; i++)
+      {
+         Assert.assertEquals("java:comp/env/test" + i, results.get(i).getRefName());
+      }
+   }
+
 }
@@ -0,0 +1,296 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.resolve.test.unit;
+
+import org.jboss.injection.resolve.naming.ResolverCache;
+import org.jboss.injection.resolve.spi.BatchResolver;
+import org.jboss.injection.resolve.spi.Resolver;
+import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.metadata.javaee.spec.DescriptionImpl;
+import org.jboss.metadata.javaee.spec.DescriptionsImpl;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceInjectionTargetMetaData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test to ensure the functionality of the ResolverCache
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class ResolverCacheTest
+{
+   private CountingResolver resolver;
+
+   @Before
+   public void setup()
+   {
+      resolver = new CountingResolver();
+   }
+
+   @Test
+   public void testHit() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>();
+
+      ResolverResult<?> result = cache.resolve(resolver, "app", createEntry("test", "value"));
+      Assert.assertEquals("value", result.getValue());
+      Assert.assertSame(result, cache.resolve(resolver, "app", createEntry("test", "value")));
+      Assert.assertEquals(1, resolver.count);
+      Assert.assertEquals(1, cache.getHitCount());
+      Assert.assertEquals(1, cache.getMissCount());
+      Assert.assertEquals(0.5, cache.getHitRatio(), 0.0);
+
+      cache.resolve(resolver, "app", createEntry("test", "other value"));
+      cache.resolve(resolver, "other app", createEntry("test", "value"));
+      Assert.assertEquals(3, resolver.count);
+   }
+
+   @Test
+   public void testLeastRecentlyUsedEviction() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>(2);
+
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      cache.resolve(resolver, "app", createEntry("two", "value"));
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      cache.resolve(resolver, "app", createEntry("three", "value"));
+      Assert.assertEquals(2, cache.size());
+      Assert.assertEquals(1, cache.getEvictionCount());
+
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      Assert.assertEquals(3, resolver.count);
+      cache.resolve(resolver, "app", createEntry("two", "value"));
+      Assert.assertEquals(4, resolver.count);
+   }
+
+   @Test
+   public void testEvictScope() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>();
+
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      cache.resolve(resolver, "app", createEntry("two", "value"));
+      cache.resolve(resolver, "other app", createEntry("one", "value"));
+      Assert.assertEquals(2, cache.evict("app"));
+      Assert.assertEquals(1, cache.size());
+
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      cache.resolve(resolver, "other app", createEntry("one", "value"));
+      Assert.assertEquals(4, resolver.count);
+   }
+
+   @Test
+   public void testNegativeCaching() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>();
+      resolver.fail = true;
+
+      assertFails(cache);
+      assertFails(cache);
+      Assert.assertEquals(2, resolver.count);
+
+      cache.setNegativeTtl(1, TimeUnit.MINUTES);
+      IllegalStateException failure = assertFails(cache);
+      IllegalStateException cachedFailure = assertFails(cache);
+      Assert.assertEquals(3, resolver.count);
+      Assert.assertEquals(1, cache.getNegativeHitCount());
+      Assert.assertSame(failure, cachedFailure.getCause());
+      Assert.assertNotSame(cachedFailure, assertFails(cache));
+
+      cache.setNegativeTtl(1, TimeUnit.MILLISECONDS);
+      cache.clear();
+      assertFails(cache);
+      Thread.sleep(5);
+      resolver.fail = false;
+      Assert.assertEquals("value", cache.resolve(resolver, "app", createEntry("test", "value")).getValue());
+      Assert.assertEquals(5, resolver.count);
+   }
+
+   @Test
+   public void testBatch() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>();
+
+      cache.resolve(resolver, "app", createEntry("one", "value"));
+      List<ResolverResult<?>> results = cache.resolveAll(resolver, "app", Arrays.asList(createEntry("one", "value"), createEntry("two", "value")));
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals("java:comp/env/one", results.get(0).getRefName());
+      Assert.assertEquals("java:comp/env/two", results.get(1).getRefName());
+      Assert.assertEquals(2, resolver.count);
+      Assert.assertEquals(1, resolver.batchCount);
+      Assert.assertEquals(1, cache.getHitCount());
+
+      cache.resolve(resolver, "app", createEntry("two", "value"));
+      Assert.assertEquals(2, resolver.count);
+   }
+
+   @Test
+   public void testKeyIgnoresDescriptionsAndInjectionTargetOrder() throws Exception
+   {
+      ResolverCache<String> cache = new ResolverCache<String>();
+
+      ResolverResult<?> result = cache.resolve(resolver, "app", createEntry("test", "value", "A description", "first", "second"));
+      Assert.assertSame(result, cache.resolve(resolver, "app", createEntry("test", "value", "Another description", "second", "first")));
+      Assert.assertEquals(1, resolver.count);
+
+      cache.resolve(resolver, "app", createEntry("test", "value", "A description", "first", "third"));
+      Assert.assertEquals(2, resolver.count);
+   }
+
+   @Test
+   public void testResolverScope() throws Exception
+   {
+      CountingResolver sharedResolver = new CountingResolver();
+      ModuleResolverCache cache = new ModuleResolverCache(sharedResolver);
+
+      // Results are shared within the module by default
+      cache.resolve(resolver, "app/one", createEntry("test", "value"));
+      cache.resolve(resolver, "app/two", createEntry("test", "value"));
+      cache.resolve(resolver, "app/one", createEntry("test", "value"));
+      Assert.assertEquals(2, resolver.count);
+
+      // The shared resolver opted in to sharing its results within the application
+      cache.resolve(sharedResolver, "app/one", createEntry("test", "value"));
+      cache.resolve(sharedResolver, "app/two", createEntry("test", "value"));
+      Assert.assertEquals(1, sharedResolver.count);
+
+      Assert.assertEquals(2, cache.evict("app/one"));
+      cache.resolve(resolver, "app/two", createEntry("test", "value"));
+      Assert.assertEquals(2, resolver.count);
+   }
+
+   private IllegalStateException assertFails(final ResolverCache<String> cache)
+   {
+      try
+      {
+         cache.resolve(resolver, "app", createEntry("test", "value"));
+         Assert.fail("Should have thrown the resolver failure");
+         return null;
+      }
+      catch(IllegalStateException expected)
+      {
+         return expected;
+      }
+   }
+
+   private static EnvironmentEntryMetaData createEntry(final String name, final String value)
+   {
+      EnvironmentEntryMetaData entryMetaData = new EnvironmentEntryMetaData();
+      entryMetaData.setType(String.class.getName());
+      entryMetaData.setValue(value);
+      entryMetaData.setEnvEntryName(name);
+      return entryMetaData;
+   }
+
+   private static EnvironmentEntryMetaData createEntry(final String name, final String value, final String description, final String... targetNames)
+   {
+      EnvironmentEntryMetaData entryMetaData = createEntry(name, value);
+      DescriptionImpl descriptionImpl = new DescriptionImpl();
+      descriptionImpl.setDescription(description);
+      DescriptionsImpl descriptions = new DescriptionsImpl();
+      descriptions.add(descriptionImpl);
+      entryMetaData.setDescriptions(descriptions);
+      Set<ResourceInjectionTargetMetaData> injectionTargets = new HashSet<ResourceInjectionTargetMetaData>();
+      for(String targetName : targetNames)
+      {
+         ResourceInjectionTargetMetaData injectionTarget = new ResourceInjectionTargetMetaData();
+         injectionTarget.setInjectionTargetClass("org.jboss.test.Target");
+         injectionTarget.setInjectionTargetName(targetName);
+         injectionTargets.add(injectionTarget);
+      }
+      entryMetaData.setInjectionTargets(injectionTargets);
+      return entryMetaData;
+   }
+
+   /**
+    * Cache for contexts named application/module, sharing the results of one resolver within the application.
+    */
+   private static class ModuleResolverCache extends ResolverCache<String>
+   {
+      private final Resolver<?, String, ?> sharedResolver;
+
+      private ModuleResolverCache(final Resolver<?, String, ?> sharedResolver)
+      {
+         this.sharedResolver = sharedResolver;
+      }
+
+      @Override
+      protected Object getScope(final Resolver<?, String, ?> resolver, final String context)
+      {
+         if(resolver == sharedResolver)
+            return getApplication(context);
+         return context;
+      }
+
+      @Override
+      protected Collection<?> getScopes(final String context)
+      {
+         return Arrays.asList(context, getApplication(context));
+      }
+
+      private static String getApplication(final String context)
+      {
+         return context.substring(0, context.indexOf('/'));
+      }
+   }
+
+   private static class CountingResolver implements BatchResolver<EnvironmentEntryMetaData, String, ResolverResult<String>>
+   {
+      private int count;
+      private int batchCount;
+      private boolean fail;
+
+      public Class<EnvironmentEntryMetaData> getMetaDataType()
+      {
+         return EnvironmentEntryMetaData.class;
+      }
+
+      public ResolverResult<String> resolve(final String context, final EnvironmentEntryMetaData metaData)
+      {
+         count++;
+         if(fail)
+            throw new IllegalStateException("Failed to resolve " + metaData.getEnvEntryName());
+         return new ResolverResult<String>("java:comp/env/" + metaData.getEnvEntryName(), null, metaData.getValue());
+      }
+
+      public List<ResolverResult<String>> resolveAll(final String context, final List<EnvironmentEntryMetaData> metaData)
+      {
+         batchCount++;
+         List<ResolverResult<String>> results = new ArrayList<ResolverResult<String>>();
+         for(EnvironmentEntryMetaData entryMetaData : metaData)
+         {
+            results.add(resolve(context, entryMetaData));
+         }
+         return results;
+      }
+   }
+}
@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.resolve.spi;
+
+import java.util.List;
+
+/**
+ * Resolver able to resolve many references of the same metadata type in one call, for instance
+ * with a single registry scan or lock acquisition.
+ * <p/>
+ * Implementing this interface is optional.  References are still resolved one at a time through
+ * {@link #resolve(Object, Object)} where batching does not apply.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ * @param <M> The required metadata type
+ * @param <C> The context in which to resolve (usually DeploymentUnit)
+ * @param <R> The resolved result type
+ */
+public interface BatchResolver<M, C, R extends ResolverResult> extends Resolver<M, C, R>
+{
+   /**
+    * Resolve a batch of references in the same context.
+    *
+    * @param context  The resolving context (usually DeploymentUnit)
+    * @param metaData The metadata referencing the dependencies
+    * @return The ResolverResults, in the same order as the metadata.  An entry may be null if
+    *         the corresponding reference could not be resolved.
+    */
+   List<R> resolveAll(C context, List<M> metaData);
+}
@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.naming.deployer;
+
+import org.jboss.deployers.structure.spi.DeploymentUnit;
+import org.jboss.injection.resolve.naming.ResolverCache;
+import org.jboss.injection.resolve.spi.Resolver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * ResolverCache for deployment units.  Resolver results are shared within the deployment unit they were
+ * resolved in, as most results depend on the unit, such as references resolved against the module.
+ * <p>
+ * Resolvers whose results only depend on the top level deployment can opt in to sharing their results between
+ * all the deployment units of the same top level deployment, see {@link #setTopLevelResolvers(Set)}, so references
+ * repeated across the modules of an application are resolved once.  No resolver is listed by default, as none of
+ * the resolvers is known to be independent of its unit, so until they are configured the cache only saves the
+ * resolution of references repeated within a unit, for instance across its components:
+ * </p>
+ * <pre>
+ * &lt;bean name="ResolverCache" class="org.jboss.injection.naming.deployer.DeploymentUnitResolverCache"&gt;
+ *    &lt;property name="topLevelResolvers"&gt;
+ *       &lt;set elementClass="java.lang.String"&gt;
+ *          &lt;value&gt;org.example.EnvironmentEntryResolver&lt;/value&gt;
+ *       &lt;/set&gt;
+ *    &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class DeploymentUnitResolverCache extends ResolverCache<DeploymentUnit>
+{
+   private final Set<String> topLevelResolvers = new CopyOnWriteArraySet<String>();
+
+   /**
+    * Create a cache holding at most {@link #DEFAULT_MAX_SIZE} results.
+    */
+   public DeploymentUnitResolverCache()
+   {
+   }
+
+   /**
+    * Create a cache with a maximum size.
+    *
+    * @param maxSize The maximum number of cached results
+    */
+   public DeploymentUnitResolverCache(final int maxSize)
+   {
+      super(maxSize);
+   }
+
+   /**
+    * Get the class names of the resolvers whose results are shared within the top level deployment.
+    *
+    * @return The resolver class names
+    */
+   public Set<String> getTopLevelResolvers()
+   {
+      return Collections.unmodifiableSet(topLevelResolvers);
+   }
+
+   /**
+    * Set the class names of the resolvers whose results are shared within the top level deployment.  The results of
+    * the other resolvers are only shared within the deployment unit they were resolved in.  Only resolvers whose
+    * results do not depend on the deployment unit beyond its top level deployment should be listed.
+    *
+    * @param topLevelResolvers The resolver class names
+    */
+   public void setTopLevelResolvers(final Set<String> topLevelResolvers)
+   {
+      this.topLevelResolvers.clear();
+      if(topLevelResolvers != null)
+         this.topLevelResolvers.addAll(topLevelResolvers);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Object getScope(final Resolver<?, DeploymentUnit, ?> resolver, final DeploymentUnit context)
+   {
+      if(topLevelResolvers.contains(resolver.getClass().getName()))
+         return context.getTopLevel();
+      return context;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Collection<?> getScopes(final DeploymentUnit context)
+   {
+      final DeploymentUnit topLevel = context.getTopLevel();
+      if(topLevel == context)
+         return Collections.singleton(context);
+      return Arrays.asList(context, topLevel);
+   }
+}
@@ -33,27 +33,46 @@ import org.jboss.deployers.structure.spi.DeploymentUnit;
 import org.jboss.injection.inject.naming.ContextInjectionPoint;
 import org.jboss.injection.inject.naming.SwitchBoardOperator;
 import org.jboss.injection.inject.Injector;
+import org.jboss.injection.inject.metrics.InjectionMetrics;
 import org.jboss.injection.inject.pojo.GenericValueRetriever;
 import org.jboss.injection.inject.spi.ValueRetriever;
 import org.jboss.injection.naming.switchboard.SwitchBoardComponentMetaData;
 import org.jboss.injection.naming.switchboard.SwitchBoardMetaData;
 import org.jboss.injection.resolve.naming.EnvironmentProcessor;
 import org.jboss.injection.resolve.naming.ResolutionException;
+import org.jboss.injection.resolve.naming.ResolvedReferences;
+import org.jboss.injection.resolve.naming.ResolverCache;
 import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.injection.resolve.spi.ResolverResultConsumer;
 import org.jboss.logging.Logger;
 import org.jboss.metadata.javaee.spec.Environment;
 import org.jboss.reloaded.naming.deployers.javaee.JavaEEComponentInformer;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.naming.Context;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Deployer capable of creating SwitchBoardOperator beans from SwitchBoardMetaData.
+ * <p>
+ * If the environment processor has a {@link ResolverCache}, its results cached for a unit are evicted when the unit
+ * is undeployed.  A {@link DeploymentUnitResolverCache} shares results within a single unit until resolvers are
+ * listed as top level scoped, see {@link DeploymentUnitResolverCache#setTopLevelResolvers(java.util.Set)}.
+ * </p>
  *
  * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
  */
@@ -65,6 +84,23 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
 
    private EnvironmentProcessor<DeploymentUnit> environmentProcessor;
 
+   private volatile boolean incremental;
+
+   private MBeanServer mbeanServer;
+
+   // Whether start registered the InjectionMetrics MBean, so stop only unregisters it then
+   private boolean metricsRegistered;
+
+   // The operators deployed for each unit, by unit name and bean name, kept for incremental redeployment
+   private final ConcurrentMap<String, Map<String, DeployedOperator>> deployedOperators = new ConcurrentHashMap<String, Map<String, DeployedOperator>>();
+
+   // The operators of undeployed units, oldest first, kept for a while in case the unit is redeployed
+   private final Map<String, UndeployedOperators> undeployedOperators = new LinkedHashMap<String, UndeployedOperators>();
+
+   private volatile long redeployTimeout = 60000;
+
+   private volatile int maxUndeployedUnits = 16;
+
    /**
     * Create the deployer and setup the inputs
     */
@@ -74,6 +110,48 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
       setOutput(BeanMetaData.class);
    }
 
+   /**
+    * Register the {@link InjectionMetrics} MBean, unless it is already registered.
+    */
+   public void start()
+   {
+      final MBeanServer server = getMBeanServer();
+      try
+      {
+         if(!server.isRegistered(new ObjectName(InjectionMetrics.OBJECT_NAME)))
+         {
+            InjectionMetrics.getInstance().register(server);
+            metricsRegistered = true;
+         }
+      }
+      catch(JMException e)
+      {
+         log.warn("Failed to register " + InjectionMetrics.OBJECT_NAME, e);
+      }
+   }
+
+   /**
+    * Unregister the {@link InjectionMetrics} MBean if it was registered by {@link #start()}.
+    */
+   public void stop()
+   {
+      synchronized(undeployedOperators)
+      {
+         undeployedOperators.clear();
+      }
+      if(!metricsRegistered)
+         return;
+      metricsRegistered = false;
+      try
+      {
+         InjectionMetrics.getInstance().unregister(getMBeanServer());
+      }
+      catch(JMException e)
+      {
+         log.warn("Failed to unregister " + InjectionMetrics.OBJECT_NAME, e);
+      }
+   }
+
    /**
     * Deploy a list of Environments as a single SwitchBoardOperator
     *
@@ -87,14 +165,14 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
       if(environmentProcessor == null)
          throw new IllegalStateException("SwitchBoardOperator deployers require an EnvironmentPorcessor, which has not been set.");
 
+      final Map<String, DeployedOperator> previousOperators = incremental ? getPreviousOperators(unit.getName()) : null;
+      final Map<String, DeployedOperator> currentOperators = incremental ? new HashMap<String, DeployedOperator>() : null;
+
       //First the module level entries
       try
       {
-         List<ResolverResult<?>> results = environmentProcessor.process(unit, switchBoardMetaData);
-         if(results != null && !results.isEmpty())
-         {
-            deployBeanMetaData(unit, null, results);
-         }
+         final List<Environment> moduleMetaData = Collections.<Environment>singletonList(switchBoardMetaData);
+         process(environmentProcessor, unit, null, moduleMetaData, previousOperators, currentOperators);
       }
       catch(ResolutionException e)
       {
@@ -102,8 +180,16 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
       }
 
       //Now the component level entries
-      if(switchBoardMetaData.getComponents() == null)
-         return;
+      if(switchBoardMetaData.getComponents() != null)
+         deployComponents(environmentProcessor, unit, switchBoardMetaData, previousOperators, currentOperators);
+
+      if(currentOperators != null)
+         deployedOperators.put(unit.getName(), currentOperators);
+   }
+
+   private void deployComponents(final EnvironmentProcessor<DeploymentUnit> environmentProcessor, final DeploymentUnit unit, final SwitchBoardMetaData switchBoardMetaData,
+      final Map<String, DeployedOperator> previousOperators, final Map<String, DeployedOperator> currentOperators) throws DeploymentException
+   {
       final Map<String, Collection<Environment>> componentsByName = new HashMap<String, Collection<Environment>>();
       for(SwitchBoardComponentMetaData componentMetaData : switchBoardMetaData.getComponents())
       {
@@ -120,19 +206,120 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
          final Collection<Environment> componentMetaData = entry.getValue();
          try
          {
-            List<ResolverResult<?>> results = environmentProcessor.process(unit, componentMetaData);
-            if(results != null && !results.isEmpty())
-            {
-               deployBeanMetaData(unit, componentName, results);
-            }
+            process(environmentProcessor, unit, componentName, componentMetaData, previousOperators, currentOperators);
          }
          catch(ResolutionException e)
          {
             throw DeploymentException.rethrowAsDeploymentException("Failed to resolve references for component " + componentName + " in " + unit, e);
          }
       }
+   }
 
+   /**
+    * Evict the resolver results cached for the scope of the unit, if the environment processor caches them.  In
+    * incremental mode the operators deployed for the unit are kept in case it is deployed again, until the redeploy
+    * timeout passes or more than the maximum number of undeployed units are kept.
+    *
+    * @param unit                The deployment unit
+    * @param switchBoardMetaData The switchboard metadata
+    */
+   @Override
+   public void undeploy(final DeploymentUnit unit, final SwitchBoardMetaData switchBoardMetaData)
+   {
+      final Map<String, DeployedOperator> operators = deployedOperators.remove(unit.getName());
+      synchronized(undeployedOperators)
+      {
+         undeployedOperators.remove(unit.getName());
+         if(operators != null && incremental)
+            undeployedOperators.put(unit.getName(), new UndeployedOperators(operators, System.currentTimeMillis()));
+         evictUndeployedOperators();
+      }
+
+      final EnvironmentProcessor<DeploymentUnit> environmentProcessor = getEnvironmentProcessor();
+      if(environmentProcessor == null)
+         return;
+      final ResolverCache<DeploymentUnit> resolverCache = environmentProcessor.getResolverCache();
+      if(resolverCache != null)
+      {
+         final int evicted = resolverCache.evict(unit);
+         log.debugf("Evicted %d cached resolver results on undeploy of [%s], %s", evicted, unit, resolverCache);
+      }
+   }
+
+   /**
+    * Get the operators previously deployed for a unit, either still deployed or kept since the unit was undeployed.
+    */
+   private Map<String, DeployedOperator> getPreviousOperators(final String unitName)
+   {
+      final Map<String, DeployedOperator> operators = deployedOperators.get(unitName);
+      if(operators != null)
+         return operators;
+      synchronized(undeployedOperators)
+      {
+         evictUndeployedOperators();
+         final UndeployedOperators undeployed = undeployedOperators.remove(unitName);
+         return undeployed == null ? null : undeployed.operators;
+      }
+   }
 
+   /**
+    * Forget the operators of the units undeployed longer than the redeploy timeout ago, and of the oldest units
+    * beyond the maximum number kept.  Must be called holding the lock on undeployedOperators.
+    */
+   private void evictUndeployedOperators()
+   {
+      final long expired = System.currentTimeMillis() - redeployTimeout;
+      final Iterator<Map.Entry<String, UndeployedOperators>> iterator = undeployedOperators.entrySet().iterator();
+      while(iterator.hasNext())
+      {
+         final Map.Entry<String, UndeployedOperators> entry = iterator.next();
+         if(undeployedOperators.size() <= maxUndeployedUnits && entry.getValue().undeployTime > expired)
+            break;
+         iterator.remove();
+         log.debugf("Forgetting the SwitchBoardOperators of [%s], it was not redeployed", entry.getKey());
+      }
+   }
+
+   /**
+    * Process the environments of a single SwitchBoardOperator and deploy it, creating the injectors as the results
+    * are resolved.  In incremental mode only the references which changed since the previous deployment of the
+    * unit are resolved, and the operator previously deployed is reused if none of them changed.
+    */
+   private void process(final EnvironmentProcessor<DeploymentUnit> environmentProcessor, final DeploymentUnit unit, final String componentName,
+      final Iterable<Environment> environments, final Map<String, DeployedOperator> previousOperators, final Map<String, DeployedOperator> currentOperators) throws ResolutionException
+   {
+      final InjectorCollector collector = new InjectorCollector();
+      if(currentOperators == null)
+      {
+         environmentProcessor.process(unit, environments, collector);
+         if(!collector.injectors.isEmpty())
+            deployBeanMetaData(unit, componentName, collector.injectors, collector.dependencies);
+         return;
+      }
+
+      final String name = getBeanName(unit, componentName);
+      final DeployedOperator previous = previousOperators == null ? null : previousOperators.get(name);
+      final ResolvedReferences current = new ResolvedReferences();
+      environmentProcessor.process(unit, environments, previous == null ? null : previous.references, current, collector);
+      if(collector.injectors.isEmpty())
+      {
+         currentOperators.put(name, new DeployedOperator(current, null));
+         return;
+      }
+
+      final String attachmentName = BeanMetaData.class.getName() + "." + name;
+      if(previous != null && previous.beanMetaData != null && current.isUnchanged(previous.references))
+      {
+         // Nothing to redeploy if the bean is still attached, otherwise the unit was undeployed and gets it back
+         if(unit.getTopLevel().getAttachment(attachmentName) == null)
+            unit.getTopLevel().addAttachment(attachmentName, previous.beanMetaData, BeanMetaData.class);
+         currentOperators.put(name, new DeployedOperator(current, previous.beanMetaData));
+         log.debugf("References of SwitchBoardOperator [%s] are unchanged for deployment [%s], reusing it", name, unit);
+         return;
+      }
+      log.debugf("Resolved %d and reused %d references of SwitchBoardOperator [%s] for deployment [%s]", current.getResolvedCount(), current.getReusedCount(), name, unit);
+      deployBeanMetaData(unit, componentName, collector.injectors, collector.dependencies);
+      currentOperators.put(name, new DeployedOperator(current, unit.getTopLevel().getAttachment(attachmentName, BeanMetaData.class)));
    }
 
    /**
@@ -141,27 +328,48 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
     * @param unit            The deploymentUnit
     * @param componentName   The component name
     * @param resolverResults The list of resolver results
+    * @deprecated No longer called by {@link #deploy(DeploymentUnit, SwitchBoardMetaData)}, which creates the injectors
+    *             with {@link #createInjector(ResolverResult)} as the results are resolved and then calls
+    *             {@link #deployBeanMetaData(DeploymentUnit, String, List, Collection)}, override those instead
     */
+   @Deprecated
    protected void deployBeanMetaData(final DeploymentUnit unit, final String componentName, final List<ResolverResult<?>> resolverResults)
+   {
+      final Collection<String> dependencies = new LinkedHashSet<String>();
+      for(ResolverResult resolverResult : resolverResults)
+      {
+         final String beanName = resolverResult.getBeanName();
+         if(beanName != null)
+         {
+            dependencies.add(beanName);
+         }
+      }
+      deployBeanMetaData(unit, componentName, createInjectors(resolverResults), dependencies);
+   }
+
+   /**
+    * Deploy the BeanMetaData for the SwitchBoardOperator.  Called by {@link #deploy(DeploymentUnit, SwitchBoardMetaData)}
+    * for each SwitchBoardOperator with injectors, unless it is reused on an incremental redeployment.
+    *
+    * @param unit          The deploymentUnit
+    * @param componentName The component name
+    * @param injectors     The injectors created from the resolver results
+    * @param dependencies  The names of the beans the resolver results depend on
+    */
+   protected void deployBeanMetaData(final DeploymentUnit unit, final String componentName, final List<Injector<Context>> injectors, final Collection<String> dependencies)
    {
       final String name = getBeanName(unit, componentName);
 
-      final BeanMetaDataBuilder builder = BeanMetaDataBuilderFactory.createBuilder(name, SwitchBoardOperator.class.getName());
+      final BeanMetaDataBuilder builder = BeanMetaDataBuilderFactory.createBuilder(name, getOperatorClassName());
 
       final ValueMetaData contextValueMetaData = createContextValueMetaData(unit, componentName);
       builder.addConstructorParameter(Context.class.getName(), contextValueMetaData);
 
-      final List<Injector<Context>> injectors = createInjectors(resolverResults);
       builder.addConstructorParameter(List.class.getName(), injectors);
 
-      for(ResolverResult resolverResult : resolverResults)
+      for(String dependency : dependencies)
       {
-         final String beanName = resolverResult.getBeanName();
-         if(beanName != null)
-         {
-            builder.addDependency(beanName);
-         }
-
+         builder.addDependency(dependency);
       }
 
       final BeanMetaData beanMetaData = builder.getBeanMetaData();
@@ -169,6 +377,17 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
       log.debugf("Deploying SwitchBoardOperator [%s] for deployment [%s]", name, unit);
    }
 
+   /**
+    * Get the class of the SwitchBoardOperator bean deployed for each set of resolver results.
+    * The class must provide a constructor taking the Context and the list of injectors.
+    *
+    * @return The operator class name
+    */
+   protected String getOperatorClassName()
+   {
+      return SwitchBoardOperator.class.getName();
+   }
+
    /**
     * Create the metdata required to access the correct Context for this deployment.
     *
@@ -187,7 +406,10 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
     *
     * @param resolverResults The list of resolver results
     * @return A list of injectors
+    * @deprecated No longer called by {@link #deploy(DeploymentUnit, SwitchBoardMetaData)}, which creates each injector
+    *             with {@link #createInjector(ResolverResult)} as the results are resolved, override that instead
     */
+   @Deprecated
    protected List<Injector<Context>> createInjectors(final List<ResolverResult<?>> resolverResults)
    {
       final List<Injector<Context>> injectors = new ArrayList<Injector<Context>>(resolverResults.size());
@@ -200,7 +422,8 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
    }
 
    /**
-    * Create an injector for a specified resolver result
+    * Create an injector for a specified resolver result.  Called by {@link #deploy(DeploymentUnit, SwitchBoardMetaData)}
+    * for each result as it is resolved.
     *
     * @param resolverResult The resolver result to create an injection for
     * @param <V>            The value type for the resolver result
@@ -272,6 +495,148 @@ public class SwitchBoardOperatorDeployer extends AbstractSimpleRealDeployer<Swit
       this.environmentProcessor = environmentProcessor;
    }
 
+   /**
+    * Get the MBeanServer the {@link InjectionMetrics} MBean is registered with.  Defaults to the platform MBeanServer.
+    *
+    * @return The MBeanServer
+    */
+   public MBeanServer getMBeanServer()
+   {
+      if(mbeanServer == null)
+         return ManagementFactory.getPlatformMBeanServer();
+      return mbeanServer;
+   }
+
+   /**
+    * Set the MBeanServer the {@link InjectionMetrics} MBean is registered with.
+    *
+    * @param mbeanServer The MBeanServer
+    */
+   public void setMBeanServer(final MBeanServer mbeanServer)
+   {
+      this.mbeanServer = mbeanServer;
+   }
+
+   /**
+    * Whether redeployments only resolve the references which changed since the previous deployment of the unit.
+    *
+    * @return true if redeployments are incremental
+    */
+   public boolean isIncremental()
+   {
+      return incremental;
+   }
+
+   /**
+    * Set whether redeployments only resolve the references which changed since the previous deployment of the unit,
+    * and keep the SwitchBoardOperators whose references did not change.  The resolved references of each unit are
+    * kept by unit name while it is deployed, and after it is undeployed until it is deployed again or forgotten, see
+    * {@link #setRedeployTimeout(long)} and {@link #setMaxUndeployedUnits(int)}, or incremental mode is turned off.
+    *
+    * @param incremental true to make redeployments incremental
+    */
+   public void setIncremental(final boolean incremental)
+   {
+      this.incremental = incremental;
+      if(!incremental)
+      {
+         deployedOperators.clear();
+         synchronized(undeployedOperators)
+         {
+            undeployedOperators.clear();
+         }
+      }
+   }
+
+   /**
+    * Get how long the references of an undeployed unit are kept for its redeployment.
+    *
+    * @return The timeout in milliseconds
+    */
+   public long getRedeployTimeout()
+   {
+      return redeployTimeout;
+   }
+
+   /**
+    * Set how long the references of an undeployed unit are kept for its redeployment.  They are forgotten by the
+    * first deploy or undeploy after the timeout.  Defaults to one minute.
+    *
+    * @param redeployTimeout The timeout in milliseconds
+    */
+   public void setRedeployTimeout(final long redeployTimeout)
+   {
+      this.redeployTimeout = redeployTimeout;
+   }
+
+   /**
+    * Get the maximum number of undeployed units whose references are kept for their redeployment.
+    *
+    * @return The maximum number of units
+    */
+   public int getMaxUndeployedUnits()
+   {
+      return maxUndeployedUnits;
+   }
+
+   /**
+    * Set the maximum number of undeployed units whose references are kept for their redeployment, the references of
+    * the units undeployed first are forgotten beyond it.  Defaults to 16.
+    *
+    * @param maxUndeployedUnits The maximum number of units, 0 to keep none
+    */
+   public void setMaxUndeployedUnits(final int maxUndeployedUnits)
+   {
+      this.maxUndeployedUnits = maxUndeployedUnits;
+   }
+
+   /**
+    * The references resolved for a SwitchBoardOperator and the BeanMetaData deployed for it.
+    */
+   private static class DeployedOperator
+   {
+      private final ResolvedReferences references;
+      private final BeanMetaData beanMetaData;
+
+      private DeployedOperator(final ResolvedReferences references, final BeanMetaData beanMetaData)
+      {
+         this.references = references;
+         this.beanMetaData = beanMetaData;
+      }
+   }
+
+   /**
+    * The operators of an undeployed unit and when it was undeployed.
+    */
+   private static class UndeployedOperators
+   {
+      private final Map<String, DeployedOperator> operators;
+      private final long undeployTime;
+
+      private UndeployedOperators(final Map<String, DeployedOperator> operators, final long undeployTime)
+      {
+         this.operators = operators;
+         this.undeployTime = undeployTime;
+      }
+   }
+
+   /**
+    * Creates the injectors and collects the bean dependencies of the resolver results as they are resolved.
+    */
+   private class InjectorCollector implements ResolverResultConsumer
+   {
+      private final List<Injector<Context>> injectors = new ArrayList<Injector<Context>>();
+      private final Collection<String> dependencies = new LinkedHashSet<String>();
+
+      public void accept(final ResolverResult<?> result)
+      {
+         injectors.add(createInjector(result));
+         final String beanName = result.getBeanName();
+         if(beanName != null)
+            dependencies.add(beanName);
+      }
+   }
+
    /**
     * Set the component informer
     *
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.naming.test.deployer.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the wall-clock time spent in each deployment phase by the timing deployers.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class StartupTimer
+{
+   /**
+    * The timed deployment phases
+    */
+   public enum Phase
+   {
+      PARSE, RESOLVE, BEAN_METADATA, START
+   }
+
+   private static final AtomicLong[] nanos = new AtomicLong[Phase.values().length];
+
+   static
+   {
+      for(int i = 0; i < nanos.length; i++)
+         nanos[i] = new AtomicLong();
+   }
+
+   private StartupTimer()
+   {
+   }
+
+   /**
+    * Add time to a phase.
+    *
+    * @param phase The phase
+    * @param elapsed The elapsed time in nanoseconds
+    */
+   public static void record(final Phase phase, final long elapsed)
+   {
+      nanos[phase.ordinal()].addAndGet(elapsed);
+   }
+
+   /**
+    * Get the time recorded for a phase.
+    *
+    * @param phase The phase
+    * @return The time in nanoseconds
+    */
+   public static long getNanos(final Phase phase)
+   {
+      return nanos[phase.ordinal()].get();
+   }
+
+   /**
+    * Clear the recorded times.
+    */
+   public static void reset()
+   {
+      for(AtomicLong phaseNanos : nanos)
+         phaseNanos.set(0);
+   }
+}
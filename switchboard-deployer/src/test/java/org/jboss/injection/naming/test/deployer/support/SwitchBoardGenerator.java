@@ -0,0 +1,312 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.naming.test.deployer.support;
+
+import org.jboss.injection.naming.switchboard.AbstractSwitchBoardMetaData;
+import org.jboss.injection.naming.switchboard.SwitchBoardComponentMetaData;
+import org.jboss.injection.naming.switchboard.SwitchBoardMetaData;
+import org.jboss.metadata.javaee.spec.EJBReferenceMetaData;
+import org.jboss.metadata.javaee.spec.EJBReferencesMetaData;
+import org.jboss.metadata.javaee.spec.EnvironmentEntriesMetaData;
+import org.jboss.metadata.javaee.spec.EnvironmentEntryMetaData;
+import org.jboss.metadata.javaee.spec.ResourceReferenceMetaData;
+import org.jboss.metadata.javaee.spec.ResourceReferencesMetaData;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Generates synthetic switchboard metadata, and the matching <code>-switchboard.xml</code>, of a configurable
+ * size.  Each component gets the configured number of env-entry, ejb-ref and resource-ref references.  A
+ * fraction of each component's references, given by the duplicate ratio, is repeated in a second fragment with
+ * the same component name, the way interceptors repeat the references of the bean they are bound to.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class SwitchBoardGenerator
+{
+   private static final String NAMESPACE = "urn:jboss:switchboard:1.0";
+
+   private int moduleReferences;
+   private int components = 1;
+   private int environmentEntriesPerComponent;
+   private int ejbReferencesPerComponent;
+   private int resourceReferencesPerComponent;
+   private double duplicateRatio;
+
+   /**
+    * Generate the switchboard metadata
+    *
+    * @return The switchboard metadata
+    */
+   public SwitchBoardMetaData generate()
+   {
+      final SwitchBoardMetaData switchBoardMetaData = new SwitchBoardMetaData();
+      addReferences(switchBoardMetaData, "module", moduleReferences, moduleReferences, moduleReferences);
+      for(int i = 0; i < components; i++)
+      {
+         final String componentName = "Component" + i;
+         final SwitchBoardComponentMetaData componentMetaData = new SwitchBoardComponentMetaData();
+         componentMetaData.setComponentName(componentName);
+         addReferences(componentMetaData, componentName, environmentEntriesPerComponent, ejbReferencesPerComponent, resourceReferencesPerComponent);
+         switchBoardMetaData.addComponent(componentMetaData);
+
+         final int duplicateEnvironmentEntries = duplicates(environmentEntriesPerComponent);
+         final int duplicateEjbReferences = duplicates(ejbReferencesPerComponent);
+         final int duplicateResourceReferences = duplicates(resourceReferencesPerComponent);
+         if(duplicateEnvironmentEntries + duplicateEjbReferences + duplicateResourceReferences > 0)
+         {
+            final SwitchBoardComponentMetaData duplicateMetaData = new SwitchBoardComponentMetaData();
+            duplicateMetaData.setComponentName(componentName);
+            addReferences(duplicateMetaData, componentName, duplicateEnvironmentEntries, duplicateEjbReferences, duplicateResourceReferences);
+            switchBoardMetaData.addComponent(duplicateMetaData);
+         }
+      }
+      return switchBoardMetaData;
+   }
+
+   private int duplicates(final int references)
+   {
+      return (int) Math.round(references * duplicateRatio);
+   }
+
+   private static void addReferences(final AbstractSwitchBoardMetaData metaData, final String prefix, final int environmentEntries,
+      final int ejbReferences, final int resourceReferences)
+   {
+      if(environmentEntries > 0)
+      {
+         final EnvironmentEntriesMetaData environmentEntriesMetaData = new EnvironmentEntriesMetaData();
+         for(int i = 0; i < environmentEntries; i++)
+         {
+            final EnvironmentEntryMetaData environmentEntry = new EnvironmentEntryMetaData();
+            environmentEntry.setEnvEntryName(prefix + "/entry" + i);
+            environmentEntry.setType(String.class.getName());
+            environmentEntry.setValue("value" + i);
+            environmentEntriesMetaData.add(environmentEntry);
+         }
+         metaData.setEnvironmentEntries(environmentEntriesMetaData);
+      }
+      if(ejbReferences > 0)
+      {
+         final EJBReferencesMetaData ejbReferencesMetaData = new EJBReferencesMetaData();
+         for(int i = 0; i < ejbReferences; i++)
+         {
+            final EJBReferenceMetaData ejbReference = new EJBReferenceMetaData();
+            ejbReference.setEjbRefName(prefix + "/ejb" + i);
+            ejbReference.setLink("Bean" + i);
+            ejbReferencesMetaData.add(ejbReference);
+         }
+         metaData.setEjbReferences(ejbReferencesMetaData);
+      }
+      if(resourceReferences > 0)
+      {
+         final ResourceReferencesMetaData resourceReferencesMetaData = new ResourceReferencesMetaData();
+         for(int i = 0; i < resourceReferences; i++)
+         {
+            final ResourceReferenceMetaData resourceReference = new ResourceReferenceMetaData();
+            resourceReference.setResourceRefName(prefix + "/resource" + i);
+            resourceReference.setType("javax.sql.DataSource");
+            resourceReference.setMappedName("java:/DataSource" + i);
+            resourceReferencesMetaData.add(resourceReference);
+         }
+         metaData.setResourceReferences(resourceReferencesMetaData);
+      }
+   }
+
+   /**
+    * Write switchboard metadata as a <code>-switchboard.xml</code> document.  Only the reference types
+    * created by this generator are written.
+    *
+    * @param switchBoardMetaData The switchboard metadata
+    * @param writer              The writer to write to
+    * @throws IOException If the document can not be written
+    */
+   public static void writeXml(final SwitchBoardMetaData switchBoardMetaData, final Writer writer) throws IOException
+   {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      writer.write("<switchboard xmlns=\"" + NAMESPACE + "\">\n");
+      if(switchBoardMetaData.getComponents() != null)
+      {
+         for(SwitchBoardComponentMetaData componentMetaData : switchBoardMetaData.getComponents())
+         {
+            writer.write("  <component>\n");
+            writer.write("    <component-name>" + componentMetaData.getComponentName() + "</component-name>\n");
+            writeReferences(componentMetaData, writer, "    ");
+            writer.write("  </component>\n");
+         }
+      }
+      writeReferences(switchBoardMetaData, writer, "  ");
+      writer.write("</switchboard>\n");
+   }
+
+   /**
+    * Write switchboard metadata to a <code>-switchboard.xml</code> file.
+    *
+    * @param switchBoardMetaData The switchboard metadata
+    * @param file                The file to write
+    * @throws IOException If the file can not be written
+    */
+   public static void writeXml(final SwitchBoardMetaData switchBoardMetaData, final File file) throws IOException
+   {
+      final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      try
+      {
+         writeXml(switchBoardMetaData, writer);
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+
+   private static void writeReferences(final AbstractSwitchBoardMetaData metaData, final Writer writer, final String indent) throws IOException
+   {
+      if(metaData.getEnvironmentEntries() != null)
+      {
+         for(EnvironmentEntryMetaData environmentEntry : metaData.getEnvironmentEntries())
+         {
+            writer.write(indent + "<env-entry>\n");
+            writer.write(indent + "  <env-entry-name>" + environmentEntry.getEnvEntryName() + "</env-entry-name>\n");
+            writer.write(indent + "  <env-entry-type>" + environmentEntry.getType() + "</env-entry-type>\n");
+            writer.write(indent + "  <env-entry-value>" + environmentEntry.getValue() + "</env-entry-value>\n");
+            writer.write(indent + "</env-entry>\n");
+         }
+      }
+      if(metaData.getEjbReferences() != null)
+      {
+         for(EJBReferenceMetaData ejbReference : metaData.getEjbReferences())
+         {
+            writer.write(indent + "<ejb-ref>\n");
+            writer.write(indent + "  <ejb-ref-name>" + ejbReference.getEjbRefName() + "</ejb-ref-name>\n");
+            writer.write(indent + "  <ejb-link>" + ejbReference.getLink() + "</ejb-link>\n");
+            writer.write(indent + "</ejb-ref>\n");
+         }
+      }
+      if(metaData.getResourceReferences() != null)
+      {
+         for(ResourceReferenceMetaData resourceReference : metaData.getResourceReferences())
+         {
+            writer.write(indent + "<resource-ref>\n");
+            writer.write(indent + "  <res-ref-name>" + resourceReference.getResourceRefName() + "</res-ref-name>\n");
+            writer.write(indent + "  <res-type>" + resourceReference.getType() + "</res-type>\n");
+            writer.write(indent + "  <mapped-name>" + resourceReference.getMappedName() + "</mapped-name>\n");
+            writer.write(indent + "</resource-ref>\n");
+         }
+      }
+   }
+
+   /**
+    * Get the total number of distinct references generated.
+    *
+    * @return The number of references
+    */
+   public int getReferenceCount()
+   {
+      return moduleReferences * 3 + components * (environmentEntriesPerComponent + ejbReferencesPerComponent + resourceReferencesPerComponent);
+   }
+
+   public int getModuleReferences()
+   {
+      return moduleReferences;
+   }
+
+   /**
+    * Set the number of module level references of each type
+    *
+    * @param moduleReferences The number of references
+    */
+   public void setModuleReferences(final int moduleReferences)
+   {
+      this.moduleReferences = moduleReferences;
+   }
+
+   public int getComponents()
+   {
+      return components;
+   }
+
+   public void setComponents(final int components)
+   {
+      this.components = components;
+   }
+
+   public int getEnvironmentEntriesPerComponent()
+   {
+      return environmentEntriesPerComponent;
+   }
+
+   public void setEnvironmentEntriesPerComponent(final int environmentEntriesPerComponent)
+   {
+      this.environmentEntriesPerComponent = environmentEntriesPerComponent;
+   }
+
+   public int getEjbReferencesPerComponent()
+   {
+      return ejbReferencesPerComponent;
+   }
+
+   public void setEjbReferencesPerComponent(final int ejbReferencesPerComponent)
+   {
+      this.ejbReferencesPerComponent = ejbReferencesPerComponent;
+   }
+
+   public int getResourceReferencesPerComponent()
+   {
+      return resourceReferencesPerComponent;
+   }
+
+   public void setResourceReferencesPerComponent(final int resourceReferencesPerComponent)
+   {
+      this.resourceReferencesPerComponent = resourceReferencesPerComponent;
+   }
+
+   /**
+    * Set the number of references of every type in each component
+    *
+    * @param referencesPerType The number of references of each type
+    */
+   public void setReferencesPerType(final int referencesPerType)
+   {
+      setEnvironmentEntriesPerComponent(referencesPerType);
+      setEjbReferencesPerComponent(referencesPerType);
+      setResourceReferencesPerComponent(referencesPerType);
+   }
+
+   public double getDuplicateRatio()
+   {
+      return duplicateRatio;
+   }
+
+   /**
+    * Set the fraction of each component's references which are repeated in a second fragment of the component
+    *
+    * @param duplicateRatio A ratio between 0 and 1
+    */
+   public void setDuplicateRatio(final double duplicateRatio)
+   {
+      if(duplicateRatio < 0 || duplicateRatio > 1) throw new IllegalArgumentException("Duplicate ratio must be between 0 and 1");
+      this.duplicateRatio = duplicateRatio;
+   }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.naming.test.deployer.support;
+
+import org.jboss.deployers.structure.spi.DeploymentUnit;
+import org.jboss.injection.inject.Injector;
+import org.jboss.injection.naming.deployer.SwitchBoardOperatorDeployer;
+import org.jboss.injection.resolve.naming.EnvironmentProcessor;
+import org.jboss.injection.resolve.naming.ResolutionException;
+import org.jboss.injection.resolve.naming.ResolvedReferences;
+import org.jboss.injection.resolve.naming.ResolverCache;
+import org.jboss.injection.resolve.spi.ResolverResult;
+import org.jboss.injection.resolve.spi.ResolverResultConsumer;
+import org.jboss.metadata.javaee.spec.Environment;
+
+import javax.naming.Context;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SwitchBoardOperatorDeployer which records the time spent resolving references and creating the operator
+ * BeanMetaData with the {@link StartupTimer}, and deploys {@link TimingSwitchBoardOperator}s.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class TimingSwitchBoardOperatorDeployer extends SwitchBoardOperatorDeployer
+{
+   @Override
+   protected EnvironmentProcessor<DeploymentUnit> getEnvironmentProcessor()
+   {
+      final EnvironmentProcessor<DeploymentUnit> environmentProcessor = super.getEnvironmentProcessor();
+      if(environmentProcessor == null)
+         return null;
+      return new TimingEnvironmentProcessor(environmentProcessor);
+   }
+
+   @Override
+   protected void deployBeanMetaData(final DeploymentUnit unit, final String componentName, final List<Injector<Context>> injectors, final Collection<String> dependencies)
+   {
+      final long start = System.nanoTime();
+      try
+      {
+         super.deployBeanMetaData(unit, componentName, injectors, dependencies);
+      }
+      finally
+      {
+         StartupTimer.record(StartupTimer.Phase.BEAN_METADATA, System.nanoTime() - start);
+      }
+   }
+
+   @Override
+   protected String getOperatorClassName()
+   {
+      return TimingSwitchBoardOperator.class.getName();
+   }
+
+   private static class TimingEnvironmentProcessor extends EnvironmentProcessor<DeploymentUnit>
+   {
+      private final EnvironmentProcessor<DeploymentUnit> delegate;
+
+      private TimingEnvironmentProcessor(final EnvironmentProcessor<DeploymentUnit> delegate)
+      {
+         this.delegate = delegate;
+      }
+
+      @Override
+      public List<ResolverResult<?>> process(final DeploymentUnit context, final Iterable<Environment> environments) throws ResolutionException
+      {
+         final long start = System.nanoTime();
+         try
+         {
+            return delegate.process(context, environments);
+         }
+         finally
+         {
+            StartupTimer.record(StartupTimer.Phase.RESOLVE, System.nanoTime() - start);
+         }
+      }
+
+      @Override
+      public ResolverCache<DeploymentUnit> getResolverCache()
+      {
+         return delegate.getResolverCache();
+      }
+
+      @Override
+      public void process(final DeploymentUnit context, final Iterable<Environment> environments, final ResolvedReferences previous, final ResolvedReferences current, final ResolverResultConsumer consumer) throws ResolutionException
+      {
+         final long start = System.nanoTime();
+         try
+         {
+            delegate.process(context, environments, previous, current, consumer);
+         }
+         finally
+         {
+            StartupTimer.record(StartupTimer.Phase.RESOLVE, System.nanoTime() - start);
+         }
+      }
+   }
+}
@@ -66,6 +66,17 @@ public abstract class AbstractSwitchBoardOperatorDeployerTestCase
 
    @BeforeClass
    public static void setupServer() throws Exception
+   {
+      startServer("/conf/bootstrap/switchboard-operator-deployer.xml");
+   }
+
+   /**
+    * Start the MC server with naming, classloading, the deployers and the provided switchboard deployer configuration.
+    *
+    * @param switchBoardDescriptor The resource holding the switchboard deployer beans
+    * @throws Exception if the server fails to start
+    */
+   protected static void startServer(final String switchBoardDescriptor) throws Exception
    {
       ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
@@ -76,7 +87,7 @@ public abstract class AbstractSwitchBoardOperatorDeployerTestCase
       descriptors.add(new UrlBootstrapDescriptor(BaseTestCase.findResource(EJBSwitchBoardOperatorDeployerTest.class, "/conf/bootstrap/classloader.xml")));
       descriptors.add(new UrlBootstrapDescriptor(BaseTestCase.findResource(EJBSwitchBoardOperatorDeployerTest.class, "/conf/bootstrap/deployers.xml")));
       descriptors.add(new UrlBootstrapDescriptor(BaseTestCase.findResource(EJBSwitchBoardOperatorDeployerTest.class, "/conf/bootstrap/pojo.xml")));
-      descriptors.add(new UrlBootstrapDescriptor(BaseTestCase.findResource(EJBSwitchBoardOperatorDeployerTest.class, "/conf/bootstrap/switchboard-operator-deployer.xml")));
+      descriptors.add(new UrlBootstrapDescriptor(BaseTestCase.findResource(EJBSwitchBoardOperatorDeployerTest.class, switchBoardDescriptor)));
 
       ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
       Thread.currentThread().setContextClassLoader(classLoader);
@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.injection.naming.test.deployer.unit;
+
+import org.jboss.beans.metadata.spi.BeanMetaData;
+import org.jboss.beans.metadata.spi.builder.BeanMetaDataBuilder;
+import org.jboss.deployers.client.spi.Deployment;
+import org.jboss.deployers.spi.attachments.MutableAttachments;
+import org.jboss.injection.naming.test.deployer.support.StartupTimer;
+import org.jboss.injection.naming.test.deployer.support.SwitchBoardGenerator;
+import org.jboss.reloaded.naming.spi.JavaEEComponent;
+import org.jboss.util.naming.Util;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.naming.Context;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deploys generated modules through the SwitchBoardParsingDeployer and SwitchBoardOperatorDeployer and records
+ * the wall-clock time of each phase in <code>target/startup-times.properties</code>.
+ * <p/>
+ * The deployment size can be changed with the <code>startup.modules</code>, <code>startup.components</code>
+ * and <code>startup.references</code> system properties.  To check for regressions, point the
+ * <code>startup.baseline</code> system property at the times file of a run on the reference machine; the test
+ * then fails if a phase is slower than the baseline by more than <code>startup.tolerance</code>, or if the
+ * baseline was recorded for another deployment size.
+ *
+ * @author <a href="mailto:jbailey@redhat.com">John Bailey</a>
+ */
+public class SwitchBoardStartupTimeTest extends AbstractSwitchBoardOperatorDeployerTestCase
+{
+   private static final Logger log = Logger.getLogger(SwitchBoardStartupTimeTest.class);
+
+   private static final int MODULES = Integer.getInteger("startup.modules", 20);
+   private static final int COMPONENTS = Integer.getInteger("startup.components", 10);
+   private static final int REFERENCES = Integer.getInteger("startup.references", 20);
+   private static final double TOLERANCE = Double.parseDouble(System.getProperty("startup.tolerance", "0.5"));
+   private static final String BASELINE = System.getProperty("startup.baseline");
+
+   private static final String TOTAL = "total";
+
+   @BeforeClass
+   public static void setupServer() throws Exception
+   {
+      startServer("/conf/bootstrap/switchboard-startup-deployer.xml");
+   }
+
+   @Test
+   public void testStartupTime() throws Exception
+   {
+      final File root = new File(System.getProperty("basedir", "."), "target/startup");
+      final Deployment[] deployments = new Deployment[MODULES];
+      for(int module = 0; module < MODULES; module++)
+         deployments[module] = createModule(root, module);
+
+      StartupTimer.reset();
+      final long start = System.nanoTime();
+      deploy(deployments);
+      final long total = System.nanoTime() - start;
+      try
+      {
+         final Context componentContext = (Context) context.lookup(getComponentContextName(MODULES - 1, COMPONENTS - 1));
+         Assert.assertEquals("value" + (REFERENCES - 1), componentContext.lookup("env/" + getComponentName(COMPONENTS - 1) + "/entry" + (REFERENCES - 1)));
+      }
+      finally
+      {
+         undeploy(deployments);
+      }
+
+      final Properties results = new Properties();
+      results.setProperty("modules", String.valueOf(MODULES));
+      results.setProperty("components", String.valueOf(COMPONENTS));
+      results.setProperty("references", String.valueOf(REFERENCES));
+      for(StartupTimer.Phase phase : StartupTimer.Phase.values())
+         results.setProperty(getKey(phase), String.valueOf(millis(StartupTimer.getNanos(phase))));
+      results.setProperty(TOTAL, String.valueOf(millis(total)));
+      writeResults(new File(System.getProperty("basedir", "."), "target/startup-times.properties"), results);
+
+      if(BASELINE == null)
+         log.info("Startup times written to target/startup-times.properties, set startup.baseline to compare them to a baseline");
+      else
+         compareToBaseline(new File(BASELINE), results);
+   }
+
+   private Deployment createModule(final File root, final int module) throws Exception
+   {
+      final File moduleRoot = new File(root, "module" + module + ".jar");
+      final File metaInf = new File(moduleRoot, "META-INF");
+      if(!metaInf.isDirectory() && !metaInf.mkdirs())
+         throw new IOException("Unable to create " + metaInf);
+      final SwitchBoardGenerator generator = new SwitchBoardGenerator();
+      generator.setComponents(COMPONENTS);
+      generator.setEnvironmentEntriesPerComponent(REFERENCES);
+      generator.setResourceReferencesPerComponent(REFERENCES);
+      SwitchBoardGenerator.writeXml(generator.generate(), new File(metaInf, "jboss-switchboard.xml"));
+
+      final Deployment deployment = createDeployment(moduleRoot.toURI().toURL());
+      final MutableAttachments attachments = (MutableAttachments) deployment.getPredeterminedManagedObjects();
+      for(int component = 0; component < COMPONENTS; component++)
+      {
+         final String componentName = getComponentName(component);
+         final JavaEEComponent javaEEComponent = mock(JavaEEComponent.class);
+         when(javaEEComponent.getContext()).thenReturn(Util.createSubcontext(context, getComponentContextName(module, component)));
+         final BeanMetaData beanMetaData = BeanMetaDataBuilder.createBuilder("jboss.naming:module=Module" + module + ",component=" + componentName, JavaEEComponent.class.getName())
+            .setConstructorValue(javaEEComponent)
+            .getBeanMetaData();
+         attachments.addAttachment(BeanMetaData.class.getName() + "." + componentName, beanMetaData);
+      }
+      return deployment;
+   }
+
+   private void compareToBaseline(final File file, final Properties results) throws IOException
+   {
+      Assert.assertTrue("No startup time baseline at " + file.getAbsolutePath(), file.isFile());
+      final Properties baseline = new Properties();
+      final InputStream in = new FileInputStream(file);
+      try
+      {
+         baseline.load(in);
+      }
+      finally
+      {
+         in.close();
+      }
+      for(String size : new String[]{"modules", "components", "references"})
+      {
+         Assert.assertEquals("The baseline was recorded with a different " + size, baseline.getProperty(size), results.getProperty(size));
+      }
+
+      final StringBuilder regressions = new StringBuilder();
+      final List<String> keys = new ArrayList<String>();
+      for(StartupTimer.Phase phase : StartupTimer.Phase.values())
+         keys.add(getKey(phase));
+      keys.add(TOTAL);
+      int checked = 0;
+      for(String key : keys)
+      {
+         final String expected = baseline.getProperty(key);
+         if(expected == null || expected.trim().length() == 0)
+            continue;
+         checked++;
+         final long baselineMillis = Long.parseLong(expected.trim());
+         final long actualMillis = Long.parseLong(results.getProperty(key));
+         if(actualMillis > baselineMillis * (1 + TOLERANCE))
+            regressions.append(key).append(" took ").append(actualMillis).append("ms, baseline is ").append(baselineMillis).append("ms; ");
+      }
+      Assert.assertTrue("The baseline " + file.getAbsolutePath() + " has no phase times", checked > 0);
+      if(regressions.length() > 0)
+         Assert.fail("Startup time regressed beyond " + (int) (TOLERANCE * 100) + "% of the baseline: " + regressions);
+   }
+
+   private static void writeResults(final File file, final Properties results) throws IOException
+   {
+      final OutputStream out = new FileOutputStream(file);
+      try
+      {
+         results.store(out, "SwitchBoardStartupTimeTest results in milliseconds");
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static String getComponentName(final int component)
+   {
+      return "Component" + component;
+   }
+
+   private static String getComponentContextName(final int module, final int component)
+   {
+      return "startup/module" + module + "/component" + component;
+   }
+
+   private static String getKey(final StartupTimer.Phase phase)
+   {
+      return phase.name().toLowerCase();
+   }
+
+   private static long millis(final long nanos)
+   {
+      return nanos / 1000000L;
+   }
+}